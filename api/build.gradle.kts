@@ -12,6 +12,26 @@ java {
 	targetCompatibility = JavaVersion.VERSION_1_8
 }
 
+tasks.withType<JavaCompile> {
+	// never depend on the platform charset
+	options.encoding = "UTF-8"
+}
+
+// JfrMetrics needs jdk.jfr, which Java 8 only has from 8u262 on and never through --release 8.
+// It is compiled on its own and loaded reflectively, so the rest of the api stays plain Java 8.
+val jfr by sourceSets.creating {
+	compileClasspath += sourceSets["main"].output
+}
+sourceSets["test"].runtimeClasspath += jfr.output
+tasks.named<Jar>("jar") {
+	from(jfr.output)
+}
+if (JavaVersion.current().isJava9Compatible) {
+	tasks.named<JavaCompile>("compileJava") {
+		options.compilerArgs.addAll(listOf("--release", "8"))
+	}
+}
+
 repositories {
 	jcenter()
 }
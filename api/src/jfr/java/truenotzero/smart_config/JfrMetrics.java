@@ -0,0 +1,127 @@
+package truenotzero.smart_config;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+import truenotzero.smart_config.api.ConfigMetrics;
+
+import java.nio.file.Path;
+
+/**
+ * Emits a JDK Flight Recorder event for every call, then passes it on
+ * <p>
+ *     Only linked when {@code jdk.jfr} is present; use {@link ConfigMetrics#withJfr(ConfigMetrics)} to create one.
+ *     The events carry their duration in an {@code elapsed} field, since they are emitted once the operation is over.
+ * </p>
+ * <p>
+ *     Lives in the {@code jfr} source set, since Java 8 only has {@code jdk.jfr} from 8u262 on, and never through
+ *     {@code --release 8}. Its classes are packed into the api jar all the same.
+ * </p>
+ */
+public final class JfrMetrics implements ConfigMetrics {
+    private final ConfigMetrics delegate;
+
+    /**
+     * @param delegate The metrics to pass every call on to
+     * @throws NoClassDefFoundError If JFR isn't available
+     */
+    public JfrMetrics(ConfigMetrics delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void scanned(int classes, long nanos) {
+        ScanEvent event = new ScanEvent();
+        if (event.isEnabled()) {
+            event.classes = classes;
+            event.elapsed = nanos;
+            event.commit();
+        }
+        this.delegate.scanned(classes, nanos);
+    }
+
+    @Override
+    public void completed(Operation operation, Class<?> type, long size, long nanos) {
+        commit(operation, type, "completed", size, null, nanos);
+        this.delegate.completed(operation, type, size, nanos);
+    }
+
+    @Override
+    public void skipped(Operation operation, Class<?> type, long size, long nanos) {
+        commit(operation, type, "skipped", size, null, nanos);
+        this.delegate.skipped(operation, type, size, nanos);
+    }
+
+    @Override
+    public void failed(Operation operation, Class<?> type, Throwable error, long nanos) {
+        commit(operation, type, "failed", -1, error, nanos);
+        this.delegate.failed(operation, type, error, nanos);
+    }
+
+    @Override
+    public void eventsDropped(Class<?> type, Throwable error) {
+        this.delegate.eventsDropped(type, error);
+    }
+
+    @Override
+    public void snapshotFailed(Path file, Throwable error) {
+        this.delegate.snapshotFailed(file, error);
+    }
+
+    private static void commit(Operation operation, Class<?> type, String outcome, long size, Throwable error,
+                               long nanos) {
+        OperationEvent event = new OperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation.name();
+            event.configClass = type;
+            event.outcome = outcome;
+            event.size = size;
+            event.error = error == null ? null : error.toString();
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Name("truenotzero.smart_config.Scan")
+    @Label("Config Scan")
+    @Category("Smart Config")
+    @Description("The classpath was scanned for config classes")
+    static final class ScanEvent extends Event {
+        @Label("Classes")
+        int classes;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("truenotzero.smart_config.Operation")
+    @Label("Config Operation")
+    @Category("Smart Config")
+    @Description("A config was loaded, reloaded, stored or defaulted")
+    static final class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Config Class")
+        Class<?> configClass;
+
+        @Label("Outcome")
+        @Description("completed, skipped or failed")
+        String outcome;
+
+        @Label("Size")
+        @Description("Chars or bytes read or written, -1 on failure")
+        long size;
+
+        @Label("Error")
+        String error;
+
+        @Label("Elapsed")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+}
@@ -0,0 +1,133 @@
+package truenotzero.smart_config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a load changed in a config
+ * <p>
+ *     Paths name fields the way they are declared in Java, separated by dots. List elements are written
+ *     {@code [index]} and map entries {@code [key]}, so a change can be {@code "limits[eu].max"}. The empty path
+ *     stands for the whole config: it is the only change when an instance was replaced rather than
+ *     {@link ConfigLoader.ReloadMode#PATCH patched}.
+ * </p>
+ */
+public final class ChangeSet {
+    /**
+     * A value that changed
+     */
+    public static final class Change {
+        private final String path;
+        private final Object oldValue;
+        private final Object newValue;
+
+        Change(String path, Object oldValue, Object newValue) {
+            this.path = path;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+        }
+
+        /**
+         * @return Where the value is, empty for the whole config
+         */
+        public String path() {
+            return path;
+        }
+
+        /**
+         * @return The value before, {@code null} if there was none
+         */
+        public Object oldValue() {
+            return oldValue;
+        }
+
+        /**
+         * @return The value after, {@code null} if there is none
+         */
+        public Object newValue() {
+            return newValue;
+        }
+
+        @Override
+        public String toString() {
+            return (path.isEmpty() ? "<config>" : path) + ": " + oldValue + " -> " + newValue;
+        }
+    }
+
+    private final Class<?> type;
+    private final List<Change> changes;
+
+    ChangeSet(Class<?> type, List<Change> changes) {
+        this.type = type;
+        this.changes = Collections.unmodifiableList(new ArrayList<>(changes));
+    }
+
+    /**
+     * A change set without changes
+     */
+    static ChangeSet none(Class<?> type) {
+        return new ChangeSet(type, Collections.emptyList());
+    }
+
+    /**
+     * A change set for a whole instance being replaced
+     */
+    static ChangeSet replaced(Class<?> type, Object oldValue, Object newValue) {
+        return new ChangeSet(type, Collections.singletonList(new Change("", oldValue, newValue)));
+    }
+
+    /**
+     * @return The config class that changed
+     */
+    public Class<?> type() {
+        return type;
+    }
+
+    /**
+     * @return Every change, in field declaration order
+     */
+    public List<Change> changes() {
+        return changes;
+    }
+
+    /**
+     * @return {@code true} if nothing changed
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Check if a value, or anything in it, changed
+     *
+     * @param path The path of the value, empty for the whole config
+     * @return {@code true} if a change is at, under or above the path
+     */
+    public boolean touches(String path) {
+        for (Change change : changes) {
+            if (overlaps(change.path, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean overlaps(String a, String b) {
+        String shorter = a.length() <= b.length() ? a : b;
+        String longer = shorter == a ? b : a;
+        if (!longer.startsWith(shorter)) {
+            return false;
+        }
+        if (shorter.isEmpty() || longer.length() == shorter.length()) {
+            return true;
+        }
+        char next = longer.charAt(shorter.length());
+        return next == '.' || next == '[';
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet{" + type.getName() + ", " + changes + '}';
+    }
+}
@@ -0,0 +1,50 @@
+package truenotzero.smart_config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+/**
+ * The full content of a binary config file, held in memory between the file and a binary
+ * {@link truenotzero.smart_config.api.Translator}
+ *
+ * @see ConfigContent
+ */
+final class ConfigBytes extends ByteArrayOutputStream {
+    ConfigBytes() {
+        super(4096);
+    }
+
+    /**
+     * Read everything from an {@link InputStream}
+     */
+    static ConfigBytes read(InputStream in) throws IOException {
+        ConfigBytes content = new ConfigBytes();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk, 0, chunk.length)) >= 0) {
+            content.write(chunk, 0, n);
+        }
+        return content;
+    }
+
+    byte[] bytes() {
+        return buf;
+    }
+
+    int length() {
+        return count;
+    }
+
+    /**
+     * Hash the content
+     *
+     * @return The SHA-256 digest of the content
+     */
+    byte[] digest() {
+        MessageDigest digest = ConfigContent.newDigest();
+        digest.update(buf, 0, count);
+        return digest.digest();
+    }
+}
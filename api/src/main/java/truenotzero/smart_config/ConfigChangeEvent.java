@@ -0,0 +1,70 @@
+package truenotzero.smart_config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One or more loads of a config, delivered together to a {@link ConfigListener}
+ *
+ * @param <T> The config type
+ */
+public final class ConfigChangeEvent<T> {
+    private final Class<T> type;
+    private final ConfigRef.Snapshot<T> current;
+    private final List<ChangeSet> changeSets;
+
+    ConfigChangeEvent(Class<T> type, ConfigRef.Snapshot<T> current, List<ChangeSet> changeSets) {
+        this.type = type;
+        this.current = current;
+        this.changeSets = Collections.unmodifiableList(new ArrayList<>(changeSets));
+    }
+
+    /**
+     * @return The config class that changed
+     */
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * @return The config's instance when the event was delivered, which includes every change in it
+     */
+    public T value() {
+        return current.value();
+    }
+
+    /**
+     * @return The {@link ConfigRef#version() version} of {@link #value()}
+     */
+    public long version() {
+        return current.version();
+    }
+
+    /**
+     * @return What each of the coalesced loads changed, oldest first
+     */
+    public List<ChangeSet> changeSets() {
+        return changeSets;
+    }
+
+    /**
+     * Check if any of the coalesced loads changed a value, or anything in it
+     *
+     * @see ChangeSet#touches(String)
+     */
+    public boolean touches(String path) {
+        for (ChangeSet changes : changeSets) {
+            if (changes.touches(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ConfigChangeEvent{" + type.getName() + " v" + current.version() + ", " + changeSets.size()
+                + " load(s)}";
+    }
+}
@@ -0,0 +1,85 @@
+package truenotzero.smart_config;
+
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The full text of a config file, held in memory between the file and the {@link truenotzero.smart_config.api.Translator}
+ * <p>
+ *     Buffering the text lets {@link ConfigLoader} hash it, so it can tell whether a file really changed before
+ *     writing (or parsing) it.
+ * </p>
+ */
+final class ConfigContent extends CharArrayWriter {
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    ConfigContent() {
+        super(4096);
+    }
+
+    /**
+     * Read everything from a {@link Reader}
+     */
+    static ConfigContent read(Reader reader) throws IOException {
+        ConfigContent content = new ConfigContent();
+        char[] chunk = new char[4096];
+        int n;
+        while ((n = reader.read(chunk, 0, chunk.length)) >= 0) {
+            content.write(chunk, 0, n);
+        }
+        return content;
+    }
+
+    char[] chars() {
+        return buf;
+    }
+
+    int length() {
+        return count;
+    }
+
+    /**
+     * Get a {@link Reader} over the content, without copying it
+     */
+    Reader reader() {
+        return new CharArrayReader(buf, 0, count);
+    }
+
+    /**
+     * Hash the content
+     *
+     * @return The SHA-256 digest of the content's UTF-16 code units
+     */
+    byte[] digest() {
+        MessageDigest digest = newDigest();
+
+        byte[] chunk = new byte[Math.min(2 * count, 8192)];
+        int i = 0;
+        while (i < count) {
+            int n = 0;
+            for (; n < chunk.length && i < count; ++i) {
+                char c = buf[i];
+                chunk[n++] = (byte) (c >>> 8);
+                chunk[n++] = (byte) c;
+            }
+            digest.update(chunk, 0, n);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Create the {@link MessageDigest} content is hashed with
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            // every JRE has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
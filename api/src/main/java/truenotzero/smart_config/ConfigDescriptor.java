@@ -0,0 +1,264 @@
+package truenotzero.smart_config;
+
+import truenotzero.smart_config.api.ConfigClassLocator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Everything {@link ConfigLoader} needs to know about a config class, resolved once
+ * <p>
+ *     Building a descriptor validates the class: it must have {@link Config @Config}, exactly one accessible
+ *     {@link Config.Instance @Instance} field of its own type and an accessible default constructor.
+ *     Its {@link Constraint}s are compiled too. After that, loading and storing need no more annotation lookups or
+ *     reflective access checks.
+ * </p>
+ *
+ * @param <T> The config type
+ */
+final class ConfigDescriptor<T> {
+    private static final Class<Config.Instance> INSTANCE_ANNOTATION = Config.Instance.class;
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final ConcurrentMap<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<>();
+
+    private final Class<T> type;
+    private final String path;
+    private final MethodHandle instanceGetter;
+    private final MethodHandle instanceSetter;
+    private final MethodHandle constructor;
+    private final ConfigValidator validator;
+    private final ConfigRef<T> ref;
+    // dirty tracking: the instance last loaded or stored, and its fingerprint then
+    private volatile Object clean;
+    private volatile long fingerprint;
+    private volatile boolean dirty;
+
+    private ConfigDescriptor(Class<T> type, String path, MethodHandle instanceGetter, MethodHandle instanceSetter,
+                             MethodHandle constructor, ConfigValidator validator) {
+        this.type = type;
+        this.path = path;
+        this.instanceGetter = instanceGetter;
+        this.instanceSetter = instanceSetter;
+        this.constructor = constructor;
+        this.validator = validator;
+        this.ref = new ConfigRef<>(type);
+    }
+
+    /**
+     * Resolve and validate a config class
+     *
+     * @param clazz The config class
+     * @param <T> The config type
+     * @return The class's descriptor
+     * @throws IllegalStateException If the class is not a valid config class
+     */
+    static <T> ConfigDescriptor<T> of(Class<T> clazz) {
+        String path = path(clazz);
+        Field instanceField = instanceField(clazz);
+
+        MethodHandle getter;
+        MethodHandle setter;
+        try {
+            getter = LOOKUP.unreflectGetter(instanceField)
+                    .asType(MethodType.methodType(Object.class));
+            setter = LOOKUP.unreflectSetter(instanceField)
+                    .asType(MethodType.methodType(void.class, Object.class));
+        } catch (IllegalAccessException e) {
+            String msg = "Inacessible @" + INSTANCE_ANNOTATION.getCanonicalName() + " field in "
+                    + clazz.getCanonicalName();
+            throw new IllegalStateException(msg, e);
+        }
+
+        return new ConfigDescriptor<>(clazz, path, getter, setter, constructor(clazz), ConfigValidator.of(clazz));
+    }
+
+    /**
+     * Get @Config.path()
+     */
+    private static String path(Class<?> clazz) {
+        Config annotation = clazz.getAnnotation(ConfigClassLocator.CONFIG_ANNOTATION);
+        if (annotation == null) {
+            throw new IllegalStateException("Expected @" + ConfigClassLocator.CONFIG_ANNOTATION.getCanonicalName() + " on " + clazz.getCanonicalName());
+        }
+
+        return annotation.value();
+    }
+
+    /**
+     * Get the marked @Instance field
+     */
+    private static Field instanceField(Class<?> clazz) {
+        Field instanceField = null;
+        for (Field field: clazz.getDeclaredFields()) {
+            if (field.getAnnotation(INSTANCE_ANNOTATION) != null) {
+                if (instanceField == null) {
+                    instanceField = field;
+                } else {
+                    // Two instance fields not allowed
+                    throw new IllegalStateException(clazz.getCanonicalName() + " has multiple fields with @"
+                            + INSTANCE_ANNOTATION.getCanonicalName());
+                }
+            }
+        }
+        if (instanceField == null) {
+            throw new IllegalStateException(clazz.getCanonicalName() + " missing field with " + INSTANCE_ANNOTATION.getCanonicalName());
+        }
+        Class<?> instanceFieldClass = instanceField.getType();
+        if (!clazz.equals(instanceFieldClass)) {
+            // check that the instance is of type T
+            String msg = '@' + INSTANCE_ANNOTATION.getCanonicalName() + " on field with type other than "
+                    + clazz.getCanonicalName();
+            throw new IllegalStateException(msg);
+        }
+        if (!Modifier.isStatic(instanceField.getModifiers())) {
+            throw new IllegalStateException('@' + INSTANCE_ANNOTATION.getCanonicalName() + " on non-static field in "
+                    + clazz.getCanonicalName());
+        }
+
+        return instanceField;
+    }
+
+    /**
+     * Get the default constructor as a {@code () -> Object} handle
+     */
+    private static MethodHandle constructor(Class<?> clazz) {
+        if (Modifier.isAbstract(clazz.getModifiers())) {
+            throw new IllegalStateException(clazz.getCanonicalName() + " is abstract");
+        }
+        try {
+            return LOOKUP.findConstructor(clazz, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(clazz.getCanonicalName() + " has no default constructor", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(clazz.getCanonicalName() + " has a non-public default constructor", e);
+        }
+    }
+
+    /**
+     * Get the persisted fields of a class, made accessible: everything that isn't {@code static} or
+     * {@code transient}, superclasses included
+     * <p>
+     *     Also used for the nested objects of a config, which have no descriptor of their own. Cached per class.
+     * </p>
+     */
+    static List<Field> fields(Class<?> clazz) {
+        return FIELDS.computeIfAbsent(clazz, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            return Collections.unmodifiableList(fields);
+        });
+    }
+
+    Class<T> type() {
+        return type;
+    }
+
+    String path() {
+        return path;
+    }
+
+    ConfigRef<T> ref() {
+        return ref;
+    }
+
+    /**
+     * Check an instance against the config's {@link Constraint}s
+     *
+     * @throws ConfigValidationException If it breaks any
+     */
+    void validate(T instance) throws ConfigValidationException {
+        this.validator.validate(type, instance);
+    }
+
+    /**
+     * Make a fully built instance current: swap it into the {@link ConfigRef}, then write the
+     * {@link Config.Instance @Instance} field
+     */
+    void publish(T instance) {
+        this.ref.publish(instance);
+        this.setInstance(instance);
+    }
+
+    /**
+     * Remember an instance as matching the file
+     *
+     * @param fingerprint The instance's {@link ConfigFingerprint}, or 0 if not tracked
+     */
+    void markClean(Object instance, long fingerprint) {
+        this.dirty = false;
+        this.fingerprint = fingerprint;
+        this.clean = instance;
+    }
+
+    /**
+     * Flag the config as modified, until it is next loaded or stored
+     */
+    void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * Check if an instance may differ from the file
+     *
+     * @param fingerprint The instance's current {@link ConfigFingerprint}, or 0 if not tracked
+     */
+    boolean isDirty(Object instance, long fingerprint) {
+        return this.dirty || this.clean != instance || this.fingerprint != fingerprint;
+    }
+
+    /**
+     * Create an instance holding the defaults
+     */
+    T newInstance() {
+        try {
+            return type.cast(constructor.invokeExact());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to construct " + type.getCanonicalName(), t);
+        }
+    }
+
+    /**
+     * Read the {@link Config.Instance @Instance} field
+     */
+    T getInstance() {
+        try {
+            return type.cast(instanceGetter.invokeExact());
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+
+    /**
+     * Write the {@link Config.Instance @Instance} field
+     */
+    void setInstance(T instance) {
+        try {
+            instanceSetter.invokeExact((Object) instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException(t);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package truenotzero.smart_config;
+
+import truenotzero.smart_config.api.ConfigMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Delivers the {@link ChangeSet}s of loads to {@link ConfigListener}s, coalescing them per listener
+ * <p>
+ *     Every subscriber has a queue of pending change sets and at most one task on the executor at a time. A load
+ *     only appends to the queues and schedules the tasks that aren't already scheduled, so it never waits for a
+ *     listener, and a slow listener only delays itself.
+ * </p>
+ * <p>
+ *     If the executor rejects a task, the pending changes of that subscriber are dropped and reported to
+ *     {@link ConfigMetrics#eventsDropped(Class, Throwable)}; the load that caused them still succeeds.
+ * </p>
+ */
+final class ConfigEventBus {
+    private final ConcurrentMap<Class<?>, List<Subscriber<?>>> subscribers = new ConcurrentHashMap<>();
+    private final Function<Class<?>, ConfigRef<?>> refs;
+    private final Supplier<ConfigMetrics> metrics;
+    private volatile Executor executor;
+
+    /**
+     * @param executor Where listeners are called
+     * @param refs Looks up the current {@link ConfigRef} of a config class when delivering
+     * @param metrics Where dropped events are reported
+     */
+    ConfigEventBus(Executor executor, Function<Class<?>, ConfigRef<?>> refs, Supplier<ConfigMetrics> metrics) {
+        this.executor = executor;
+        this.refs = refs;
+        this.metrics = metrics;
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    <T> ConfigListener.Subscription subscribe(Class<T> type, String path, ConfigListener<T> listener) {
+        Subscriber<T> subscriber = new Subscriber<>(type, path, listener);
+        this.subscribers.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>()).add(subscriber);
+        return subscriber;
+    }
+
+    /**
+     * Queue a load's changes for every interested subscriber
+     */
+    void publish(ChangeSet changes) {
+        List<Subscriber<?>> subscribers = this.subscribers.get(changes.type());
+        if (subscribers == null) {
+            return;
+        }
+        for (Subscriber<?> subscriber : subscribers) {
+            subscriber.offer(changes);
+        }
+    }
+
+    private final class Subscriber<T> implements ConfigListener.Subscription {
+        private final Class<T> type;
+        private final String path;
+        private final ConfigListener<T> listener;
+        private List<ChangeSet> pending;
+        private boolean scheduled;
+        private volatile boolean closed;
+
+        Subscriber(Class<T> type, String path, ConfigListener<T> listener) {
+            this.type = type;
+            this.path = path;
+            this.listener = listener;
+        }
+
+        void offer(ChangeSet changes) {
+            if (this.closed || (this.path != null && !changes.touches(this.path))) {
+                return;
+            }
+            synchronized (this) {
+                if (this.pending == null) {
+                    this.pending = new ArrayList<>();
+                }
+                this.pending.add(changes);
+                if (this.scheduled) {
+                    // coalesced into the notification that is already coming
+                    return;
+                }
+                this.scheduled = true;
+            }
+            this.schedule();
+        }
+
+        private void schedule() {
+            try {
+                ConfigEventBus.this.executor.execute(this::deliver);
+            } catch (RuntimeException e) {
+                // rejected, drop what is pending rather than stall the subscriber forever
+                synchronized (this) {
+                    this.pending = null;
+                    this.scheduled = false;
+                }
+                ConfigEventBus.this.metrics.get().eventsDropped(this.type, e);
+            }
+        }
+
+        private void deliver() {
+            List<ChangeSet> batch;
+            synchronized (this) {
+                batch = this.pending;
+                this.pending = null;
+                if (batch == null || this.closed) {
+                    this.scheduled = false;
+                    return;
+                }
+            }
+            try {
+                @SuppressWarnings("unchecked")
+                ConfigRef<T> ref = (ConfigRef<T>) ConfigEventBus.this.refs.apply(this.type);
+                this.listener.changed(new ConfigChangeEvent<>(this.type, ref.snapshot(), batch));
+            } catch (RuntimeException e) {
+                Thread t = Thread.currentThread();
+                t.getUncaughtExceptionHandler().uncaughtException(t, e);
+            } finally {
+                // even if the listener threw an Error, or the subscriber would never be notified again
+                this.next();
+            }
+        }
+
+        private void next() {
+            synchronized (this) {
+                if (this.pending == null) {
+                    this.scheduled = false;
+                    return;
+                }
+            }
+            // more changes came in meanwhile: go again, after whatever else is waiting on the executor
+            this.schedule();
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+            List<Subscriber<?>> subscribers = ConfigEventBus.this.subscribers.get(this.type);
+            if (subscribers != null) {
+                subscribers.remove(this);
+            }
+        }
+    }
+}
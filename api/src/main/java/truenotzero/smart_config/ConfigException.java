@@ -0,0 +1,53 @@
+package truenotzero.smart_config;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thrown when a bulk operation fails for one or more config classes
+ * <p>
+ *     Bulk operations ({@link ConfigLoader#load()}, {@link ConfigLoader#store()}, etc) that run on an
+ *     {@link java.util.concurrent.Executor} do not stop at the first failure. Every class is processed and
+ *     every failure is collected into a single {@link ConfigException}.
+ * </p>
+ */
+public class ConfigException extends IOException {
+    private final Map<Class<?>, Throwable> failures;
+
+    /**
+     * Create a {@link ConfigException}
+     *
+     * @param failures The failures, keyed by the config class that caused them
+     */
+    public ConfigException(Map<Class<?>, Throwable> failures) {
+        super(message(failures));
+        this.failures = Collections.unmodifiableMap(new LinkedHashMap<>(failures));
+        for (Throwable t : this.failures.values()) {
+            this.addSuppressed(t);
+        }
+    }
+
+    /**
+     * Get every failure of the bulk operation
+     *
+     * @return An unmodifiable {@link Map} from config class to the {@link Throwable} it failed with
+     */
+    public Map<Class<?>, Throwable> getFailures() {
+        return failures;
+    }
+
+    private static String message(Map<Class<?>, Throwable> failures) {
+        StringBuilder sb = new StringBuilder()
+                .append(failures.size())
+                .append(" config(s) failed:");
+        for (Map.Entry<Class<?>, Throwable> e : failures.entrySet()) {
+            sb.append("\n\t")
+                    .append(e.getKey().getName())
+                    .append(": ")
+                    .append(e.getValue());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,77 @@
+package truenotzero.smart_config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link java.util.concurrent.Executor}s for the asynchronous {@link ConfigLoader} methods
+ * <p>
+ *     Loading and storing configs is mostly waiting on files. On a JDK with virtual threads (21 and later) each
+ *     config can get a virtual thread of its own, so many small reads don't tie up platform threads. On older JDKs
+ *     a small pool of daemon threads is used instead.
+ * </p>
+ *
+ * @see ConfigLoader#loadAsync(java.util.concurrent.Executor)
+ */
+public final class ConfigExecutors {
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = virtualThreadExecutorFactory();
+
+    private ConfigExecutors() {
+    }
+
+    private static Method virtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Check if this JDK has virtual threads
+     *
+     * @return {@code true} if {@link #newVirtualThreadExecutor()} can be used
+     */
+    public static boolean virtualThreadsSupported() {
+        return NEW_VIRTUAL_THREAD_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor that starts a virtual thread per task
+     *
+     * @throws UnsupportedOperationException If this JDK has no virtual threads
+     * @see #virtualThreadsSupported()
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads need JDK 21 or later");
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads are not available", e);
+        }
+    }
+
+    /**
+     * Create an executor for config I/O: virtual threads if this JDK has them, a fixed pool of daemon threads if not
+     *
+     * @param threads The size of the pool, if one is used
+     * @return The executor. Shut it down when done.
+     */
+    public static ExecutorService newIoExecutor(int threads) {
+        if (virtualThreadsSupported()) {
+            return newVirtualThreadExecutor();
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadFactory factory = r -> {
+            Thread t = new Thread(r, "smart_config-io-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+}
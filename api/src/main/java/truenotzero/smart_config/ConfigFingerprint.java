@@ -0,0 +1,180 @@
+package truenotzero.smart_config;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A 64 bit hash of everything reachable from a config instance, to tell if it was modified without serializing it
+ * <p>
+ *     The persisted fields of the instance are walked recursively: collections, maps and arrays element by element,
+ *     strings char by char, numbers by their bits, enums by their name, other JDK value types ({@code java.time},
+ *     {@code BigDecimal}, etc) by their {@code toString()}, and other objects by their own persisted fields. Content
+ *     is hashed rather than {@code hashCode()}, whose 32 bits collide far too easily (as {@code "Aa"} and
+ *     {@code "BB"} do). This costs a fraction of serializing, and allocates almost nothing.
+ * </p>
+ */
+final class ConfigFingerprint {
+    /**
+     * Returned when the instance can't be walked, for example because a field isn't accessible. Never matches.
+     */
+    static final long UNKNOWN = 0;
+
+    private static final long PRIME = 0x9E3779B97F4A7C15L;
+    private static final long NULL = 0x5bd1e995L;
+    private static final long CYCLE = 0x1b873593L;
+
+    private final IdentityHashMap<Object, Boolean> visiting = new IdentityHashMap<>();
+    private long hash = 1;
+
+    private ConfigFingerprint() {
+    }
+
+    /**
+     * Fingerprint an instance
+     *
+     * @return The fingerprint, or {@link #UNKNOWN}
+     */
+    static long of(Object instance) {
+        ConfigFingerprint fingerprint = new ConfigFingerprint();
+        try {
+            fingerprint.value(instance);
+        } catch (RuntimeException | IllegalAccessException | StackOverflowError e) {
+            return UNKNOWN;
+        }
+        return fingerprint.hash == UNKNOWN ? 1 : fingerprint.hash;
+    }
+
+    private void mix(long value) {
+        this.hash = (Long.rotateLeft(this.hash, 31) ^ value) * PRIME;
+    }
+
+    private void value(Object value) throws IllegalAccessException {
+        if (value == null) {
+            this.mix(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (value instanceof String) {
+            this.string((String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            this.mix(Double.doubleToLongBits(((Number) value).doubleValue()));
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            this.mix(((Number) value).longValue());
+        } else if (value instanceof Boolean) {
+            this.mix((Boolean) value ? 1 : 2);
+        } else if (value instanceof Character) {
+            this.mix((Character) value);
+        } else if (value instanceof Enum) {
+            this.string(((Enum<?>) value).name());
+        } else if (value instanceof MappedTable) {
+            // the digest stands for the content, no need to read the mapping
+            this.mix(((MappedTable) value).fingerprint());
+        } else if (type.isArray()) {
+            this.array(value);
+        } else if (value instanceof Collection || value instanceof Map) {
+            if (this.visiting.put(value, Boolean.TRUE) != null) {
+                this.mix(CYCLE);
+                return;
+            }
+            if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                this.mix(collection.size());
+                for (Object element : collection) {
+                    this.value(element);
+                }
+            } else {
+                Map<?, ?> map = (Map<?, ?>) value;
+                this.mix(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    this.value(entry.getKey());
+                    this.value(entry.getValue());
+                }
+            }
+            this.visiting.remove(value);
+        } else if (type.getClassLoader() == null) {
+            // a JDK type (BigDecimal, java.time, etc), treated as a value
+            this.string(value.toString());
+        } else {
+            if (this.visiting.put(value, Boolean.TRUE) != null) {
+                this.mix(CYCLE);
+                return;
+            }
+            this.mix(type.getName().hashCode());
+            for (Field field : ConfigDescriptor.fields(type)) {
+                this.value(field.get(value));
+            }
+            this.visiting.remove(value);
+        }
+    }
+
+    private void string(String value) {
+        int length = value.length();
+        this.mix(length);
+        // four chars per mix
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            this.mix((long) value.charAt(i) << 48 | (long) value.charAt(i + 1) << 32
+                    | (long) value.charAt(i + 2) << 16 | value.charAt(i + 3));
+        }
+        for (; i < length; ++i) {
+            this.mix(value.charAt(i));
+        }
+    }
+
+    private void array(Object array) throws IllegalAccessException {
+        if (array instanceof Object[]) {
+            Object[] elements = (Object[]) array;
+            this.mix(elements.length);
+            for (Object element : elements) {
+                this.value(element);
+            }
+        } else if (array instanceof long[]) {
+            long[] elements = (long[]) array;
+            this.mix(elements.length);
+            for (long element : elements) {
+                this.mix(element);
+            }
+        } else if (array instanceof int[]) {
+            int[] elements = (int[]) array;
+            this.mix(elements.length);
+            for (int element : elements) {
+                this.mix(element);
+            }
+        } else if (array instanceof double[]) {
+            double[] elements = (double[]) array;
+            this.mix(elements.length);
+            for (double element : elements) {
+                this.mix(Double.doubleToLongBits(element));
+            }
+        } else if (array instanceof char[]) {
+            this.string(new String((char[]) array));
+        } else if (array instanceof byte[]) {
+            byte[] elements = (byte[]) array;
+            this.mix(elements.length);
+            for (byte element : elements) {
+                this.mix(element);
+            }
+        } else if (array instanceof short[]) {
+            short[] elements = (short[]) array;
+            this.mix(elements.length);
+            for (short element : elements) {
+                this.mix(element);
+            }
+        } else if (array instanceof float[]) {
+            float[] elements = (float[]) array;
+            this.mix(elements.length);
+            for (float element : elements) {
+                this.mix(Float.floatToIntBits(element));
+            }
+        } else {
+            boolean[] elements = (boolean[]) array;
+            this.mix(elements.length);
+            for (boolean element : elements) {
+                this.mix(element ? 1 : 2);
+            }
+        }
+    }
+}
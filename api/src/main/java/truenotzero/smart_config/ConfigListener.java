@@ -0,0 +1,35 @@
+package truenotzero.smart_config;
+
+/**
+ * Notified when a config changes
+ * <p>
+ *     Listeners are called on the event {@link java.util.concurrent.Executor} of the {@link ConfigLoader}, never
+ *     on the thread that loads. Each listener gets its events in order, one at a time. Loads that happen while a
+ *     notification is pending or running are coalesced into the next one, so a listener is never more than one
+ *     notification behind however fast the config changes.
+ * </p>
+ *
+ * @param <T> The config type
+ * @see ConfigLoader#subscribe(Class, ConfigListener)
+ * @see ConfigLoader#subscribe(Class, String, ConfigListener)
+ */
+@FunctionalInterface
+public interface ConfigListener<T> {
+    /**
+     * Undoes a {@link ConfigLoader#subscribe(Class, ConfigListener) subscription}
+     */
+    interface Subscription extends AutoCloseable {
+        /**
+         * Stop notifying the listener. A notification already running finishes.
+         */
+        @Override
+        void close();
+    }
+
+    /**
+     * The config changed
+     *
+     * @param event Every change since the last notification, and the config as it is now
+     */
+    void changed(ConfigChangeEvent<T> event);
+}
@@ -3,16 +3,25 @@ package truenotzero.smart_config;
 import truenotzero.smart_config.api.ConfigClassLocator;
 import truenotzero.smart_config.api.ConfigFile;
 import truenotzero.smart_config.api.ConfigFileProvider;
+import truenotzero.smart_config.api.ConfigMetrics;
 import truenotzero.smart_config.api.Translator;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
-import java.io.Writer;
-import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
@@ -43,13 +52,64 @@ import java.util.stream.Collectors;
  * @see Config.Instance @Instance
  * @see truenotzero.smart_config.impl.FilesystemJson FilesystemJson
  * @see #ConfigLoader(ConfigClassLocator, ConfigFileProvider, Translator)
+ * @see #ConfigLoader(ConfigClassLocator, ConfigFileProvider, Translator, Executor)
  */
 public class ConfigLoader {
-    private static final Class<Config.Instance> INSTANCE_ANNOTATION = Config.Instance.class;
     private final ConfigClassLocator classLocator;
     private final ConfigFileProvider fileLocator;
     private final Translator translator;
+    private final Executor executor;
+    private final Map<Class<?>, ConfigDescriptor<?>> descriptors;
+    private final Map<String, byte[]> digests;
     private Set<Class<?>> configs;
+    private volatile SnapshotCache snapshotCache;
+    private volatile ConfigMetrics metrics;
+    private volatile DirtyTracking dirtyTracking;
+    private volatile boolean lazy;
+    private volatile ReloadMode reloadMode;
+    private final ConfigEventBus events;
+
+    /**
+     * What a load does to the config's current instance
+     *
+     * @see #setReloadMode(ReloadMode)
+     */
+    public enum ReloadMode {
+        /**
+         * The freshly read instance replaces the current one. The default.
+         */
+        REPLACE,
+        /**
+         * The freshly read instance is diffed against the current one, and only the values that differ are taken
+         * from it. Unchanged nested objects and collections are kept, and the current instance stays in place if
+         * nothing changed. Either way the current instance isn't modified, so readers never see a half applied
+         * change: a new top level instance sharing the unchanged parts is published instead.
+         */
+        PATCH
+    }
+
+    /**
+     * How {@link #store()} tells which configs were modified since they were last loaded or stored
+     *
+     * @see #setDirtyTracking(DirtyTracking)
+     */
+    public enum DirtyTracking {
+        /**
+         * Every config is serialized, and written if the result differs from the file. The default.
+         */
+        NONE,
+        /**
+         * A fingerprint of each instance is taken when it is loaded or stored. Only configs whose fingerprint
+         * changed, or that were {@link #markDirty(Class) marked dirty}, are serialized. Taking the fingerprint walks
+         * the instance, but costs a fraction of serializing it.
+         */
+        FINGERPRINT,
+        /**
+         * Only configs that were {@link #markDirty(Class) marked dirty}, or whose
+         * {@link Config.Instance @Instance} was replaced, are serialized. Changes that aren't marked are not stored.
+         */
+        EXPLICIT
+    }
 
     /**
      * Create a {@link ConfigLoader}
@@ -62,17 +122,52 @@ public class ConfigLoader {
      * @see truenotzero.smart_config.impl.FilesystemJson
      */
     public ConfigLoader(ConfigClassLocator classLocator, ConfigFileProvider fileLocator, Translator translator) {
+        this(classLocator, fileLocator, translator, null);
+    }
+
+    /**
+     * Create a {@link ConfigLoader} that runs bulk operations in parallel
+     * <p>
+     *     {@link #init()}, {@link #load()} and {@link #store()} submit one task per config class to the
+     *     {@code executor} (a {@link java.util.concurrent.ForkJoinPool} works well) and wait for all of them.
+     *     Every class is processed even if some fail; the failures are reported together in a
+     *     {@link ConfigException}.
+     * </p>
+     * <p>
+     *     All the work done by a bulk operation <i>happens-before</i> it returns, so the calling thread
+     *     sees every {@link Config.Instance @Instance} field injected by the worker threads.
+     * </p>
+     *
+     * @param classLocator The {@link ConfigClassLocator} used to locate classes with the {@link Config} annotation
+     * @param fileLocator The {@link ConfigFileProvider} used to locate {@link ConfigFile}'s
+     * @param translator The {@link Translator} used to encode and decode configs
+     * @param executor The {@link Executor} to run bulk operations on, or {@code null} to run them sequentially
+     *                 on the calling thread
+     */
+    public ConfigLoader(ConfigClassLocator classLocator, ConfigFileProvider fileLocator, Translator translator,
+                        Executor executor) {
         this.classLocator = classLocator;
         this.fileLocator = fileLocator;
         this.translator = translator;
+        this.executor = executor;
+        this.descriptors = new ConcurrentHashMap<>();
+        this.digests = new ConcurrentHashMap<>();
         this.configs =  new HashSet<>();
+        this.metrics = ConfigMetrics.NONE;
+        this.dirtyTracking = DirtyTracking.NONE;
+        this.reloadMode = ReloadMode.REPLACE;
+        this.events = new ConfigEventBus(ForkJoinPool.commonPool(), this::ref, () -> this.metrics);
     }
 
     /**
      * Convenience method to scan and create nonexistent files
+     * <p>When {@link #setLazy(boolean) lazy}, only scans: files are created on first access.</p>
      */
     public void init() throws IOException {
         this.scan();
+        if (this.lazy) {
+            return;
+        }
         Set<Class<?>> nonexistentConfigs = this.verify();
         List<Set<Class<?>>> result = this.createDefault(nonexistentConfigs);
         assert result.get(0).equals(nonexistentConfigs);
@@ -81,9 +176,37 @@ public class ConfigLoader {
 
     /**
      * Scan the classpath for config classes
+     * <p>
+     *     Every located class is resolved and validated once, here. All later operations use the result. Classes
+     *     that were already resolved keep their descriptor, so their {@link ConfigRef}s stay current across scans.
+     * </p>
+     *
+     * @throws IllegalStateException If any located class is not a valid config class. The message lists every
+     * invalid class.
      */
     public void scan() {
-       this.configs = this.classLocator.locate();
+        long start = System.nanoTime();
+        Set<Class<?>> located = this.classLocator.locate();
+        List<IllegalStateException> errors = new ArrayList<>();
+        for (Class<?> clazz : located) {
+            try {
+                this.descriptor(clazz);
+            } catch (IllegalStateException e) {
+                errors.add(e);
+            }
+        }
+        if (!errors.isEmpty()) {
+            StringBuilder msg = new StringBuilder().append(errors.size()).append(" invalid config class(es):");
+            for (IllegalStateException e : errors) {
+                msg.append("\n\t").append(e.getMessage());
+            }
+            IllegalStateException e = new IllegalStateException(msg.toString(), errors.get(0));
+            errors.stream().skip(1).forEach(e::addSuppressed);
+            throw e;
+        }
+
+        this.configs = Collections.unmodifiableSet(new HashSet<>(located));
+        this.metrics.scanned(located.size(), System.nanoTime() - start);
     }
 
     /**
@@ -98,45 +221,72 @@ public class ConfigLoader {
     }
 
     /**
-     * Get @Config.path()
+     * Get all scanned config classes
+     *
+     * @return An unmodifiable {@link Set} of the classes found by the last {@link #scan()}
+     */
+    public Set<Class<?>> scannedConfigs() {
+        return configs;
+    }
+
+    /**
+     * Get the path of a config's file
+     *
+     * @param clazz The config's class
+     * @return The path given in its {@link Config @Config} annotation
      */
-    private String getPath(Class<?> clazz) {
-        Config annotation = clazz.getAnnotation(ConfigClassLocator.CONFIG_ANNOTATION);
-        if (annotation == null) {
-            throw new IllegalStateException("Expected @" + ConfigClassLocator.CONFIG_ANNOTATION.getCanonicalName() + " on " + clazz.getCanonicalName());
-        }
+    public String pathOf(Class<?> clazz) {
+        return this.descriptor(clazz).path();
+    }
 
-        return annotation.value();
+    /**
+     * Get the thread-safe handle of a config
+     * <p>
+     *     The same {@link ConfigRef} is returned every time; every {@link #load(Class)} swaps the new instance into it.
+     * </p>
+     *
+     * @param clazz The config's class
+     * @param <T> The config type
+     * @return The config's {@link ConfigRef}
+     */
+    public <T> ConfigRef<T> ref(Class<T> clazz) {
+        return this.descriptor(clazz).ref();
     }
 
     /**
-     * Get the marked @Instance field
+     * Get the descriptor of a config class, resolving it if it wasn't scanned
+     *
+     * @throws IllegalStateException If the class is not a valid config class
      */
-    private <T> Field getInstance(Class<T> clazz) {
-        Field instanceField = null;
-        for (Field field: clazz.getDeclaredFields()) {
-            if (field.getAnnotation(INSTANCE_ANNOTATION) != null) {
-                if (instanceField == null) {
-                    instanceField = field;
-                } else {
-                    // Two instance fields not allowed
-                    throw new IllegalStateException(clazz.getCanonicalName() + " has multiple fields with @"
-                            + ConfigLoader.INSTANCE_ANNOTATION.getCanonicalName());
-                }
-            }
-        }
-        if (instanceField == null) {
-            throw new IllegalStateException(clazz.getCanonicalName() + " missing field with " + ConfigLoader.INSTANCE_ANNOTATION.getCanonicalName());
-        }
-        Class<?> instanceFieldClass = instanceField.getType();
-        if (!clazz.equals(instanceFieldClass)) {
-            // check that the instance is of type T
-            String msg = '@' + ConfigLoader.INSTANCE_ANNOTATION.getCanonicalName() + " on field with type other than "
-                    + clazz.getCanonicalName();
-            throw new IllegalStateException(msg);
+    @SuppressWarnings("unchecked")
+    private <T> ConfigDescriptor<T> descriptor(Class<T> clazz) {
+        ConfigDescriptor<?> descriptor = this.descriptors.get(clazz);
+        if (descriptor == null) {
+            descriptor = this.descriptors.computeIfAbsent(clazz, this::newDescriptor);
         }
+        return (ConfigDescriptor<T>) descriptor;
+    }
 
-        return instanceField;
+    private <T> ConfigDescriptor<T> newDescriptor(Class<T> clazz) {
+        ConfigDescriptor<T> descriptor = ConfigDescriptor.of(clazz);
+        this.arm(descriptor);
+        return descriptor;
+    }
+
+    /**
+     * Make a config load on first access if lazy, or stop it from doing so
+     */
+    private <T> void arm(ConfigDescriptor<T> descriptor) {
+        if (!this.lazy) {
+            descriptor.ref().setInitializer(null);
+            return;
+        }
+        descriptor.ref().setInitializer(() -> {
+            if (!this.fileLocator.get(descriptor.path()).exists()) {
+                this.createDefault(descriptor.type());
+            }
+            this.load(descriptor, false, null);
+        });
     }
 
     /**
@@ -144,10 +294,14 @@ public class ConfigLoader {
      *
      * @return A {@code Set} of {@code Class}'s that do not have equivalents on disk
      */
-    private Set<Class<?>> verify() {
-        return this.configs.stream()
-                .filter(e -> !this.verify(e)) // All that fail verification
-                .collect(Collectors.toCollection(HashSet::new));
+    private Set<Class<?>> verify() throws IOException {
+        Set<Class<?>> nonexistent = ConcurrentHashMap.newKeySet();
+        this.forEach(this.configs, clazz -> {
+            if (!this.verify(clazz)) { // All that fail verification
+                nonexistent.add(clazz);
+            }
+        });
+        return new HashSet<>(nonexistent);
     }
 
     /**
@@ -157,7 +311,7 @@ public class ConfigLoader {
      * @return {@code true} if the equivalent exists, {@code false} otherwise
      */
     public boolean verify(Class<?> clazz) {
-        String path = this.getPath(clazz);
+        String path = this.descriptor(clazz).path();
         return fileLocator.get(path).exists();
     }
 
@@ -168,17 +322,17 @@ public class ConfigLoader {
      * were created, the second with all the configs that were overwritten
      */
     private List<Set<Class<?>>> createDefault(Set<Class<?>> classes) throws IOException {
-        Set<Class<?>> created = new HashSet<>();
-        Set<Class<?>> overwritten = new HashSet<>();
-        for (Class<?> clazz : classes) {
+        Set<Class<?>> created = ConcurrentHashMap.newKeySet();
+        Set<Class<?>> overwritten = ConcurrentHashMap.newKeySet();
+        this.forEach(classes, clazz -> {
             if (this.createDefault(clazz)) {
                 created.add(clazz);
             } else {
                 overwritten.add(clazz);
             }
-        }
+        });
 
-        return Arrays.asList(created, overwritten);
+        return Arrays.asList(new HashSet<>(created), new HashSet<>(overwritten));
     }
 
     /**
@@ -189,92 +343,769 @@ public class ConfigLoader {
      * @return {@code true} if a file was created, {@code false} if an existing file was overwritten
      */
     public <T> boolean createDefault(Class<T> clazz) throws IOException {
-        String path = this.getPath(clazz);
-        ConfigFile f = fileLocator.get(path);
+        ConfigDescriptor<T> descriptor = this.descriptor(clazz);
+        ConfigFile f = fileLocator.get(descriptor.path());
 
         boolean created = f.create();
-        try {
-            T instance = clazz.newInstance();
-            if (instance == null) {
-                throw new IllegalStateException(clazz.getCanonicalName() + " has no default constructor");
-            }
-            this.store(clazz, instance);
-        } catch (IllegalAccessException e) {
-            throw new IllegalStateException(clazz.getCanonicalName() + " has a non-public default constructor", e);
-        } catch (InstantiationException e) {
-            throw new IllegalStateException(clazz.getCanonicalName() + " is abstract", e);
-        }
+        this.store(descriptor, descriptor.newInstance(), true);
 
         return created;
     }
 
+    /**
+     * Use a snapshot cache to speed up {@link #load()}
+     * <p>
+     *     Every successful {@link #load()} writes all configs into the snapshot, and the next one decodes the
+     *     configs whose files didn't change from it instead of parsing them.
+     * </p>
+     *
+     * @param snapshotCache The snapshot cache, or {@code null} to stop using one
+     * @see SnapshotCache
+     */
+    public void setSnapshotCache(SnapshotCache snapshotCache) {
+        this.snapshotCache = snapshotCache;
+    }
+
+    /**
+     * Choose what loading does to a config's current instance
+     *
+     * @param reloadMode {@link ReloadMode#REPLACE} (the default) or {@link ReloadMode#PATCH}
+     */
+    public void setReloadMode(ReloadMode reloadMode) {
+        this.reloadMode = reloadMode;
+    }
+
+    /**
+     * Get notified when a config changes
+     * <p>
+     *     The listener is called after every load that changed the config, on the
+     *     {@link #setEventExecutor(Executor) event executor}. Loads that happen while the listener is still being
+     *     called, or waiting to be, are coalesced into a single event, so a slow listener neither holds up loading
+     *     nor other listeners, and catches up in one go.
+     * </p>
+     *
+     * @param clazz The config's class
+     * @param listener The listener
+     * @return A subscription to {@link ConfigListener.Subscription#close() close} to stop listening
+     */
+    public <T> ConfigListener.Subscription subscribe(Class<T> clazz, ConfigListener<T> listener) {
+        return this.subscribe(clazz, null, listener);
+    }
+
+    /**
+     * Get notified when a value of a config changes
+     * <p>
+     *     Like {@link #subscribe(Class, ConfigListener)}, but only for loads that changed the value at
+     *     {@code path}, anything inside it, or a value containing it. With {@link ReloadMode#REPLACE} every load
+     *     replaces the whole instance, so every load matches; use {@link ReloadMode#PATCH} to tell values apart.
+     * </p>
+     *
+     * @param clazz The config's class
+     * @param path The value's path, as in {@link ChangeSet.Change#path()}, or {@code null} for the whole config
+     * @param listener The listener
+     * @return A subscription to {@link ConfigListener.Subscription#close() close} to stop listening
+     */
+    public <T> ConfigListener.Subscription subscribe(Class<T> clazz, String path, ConfigListener<T> listener) {
+        return this.events.subscribe(this.descriptor(clazz).type(), path, listener);
+    }
+
+    /**
+     * Choose where {@link ConfigListener}s are called
+     *
+     * @param executor The executor, {@link ForkJoinPool#commonPool()} by default
+     */
+    public void setEventExecutor(Executor executor) {
+        this.events.setExecutor(executor);
+    }
+
+    /**
+     * Report the timings and sizes of operations
+     *
+     * @param metrics Where to report to, or {@code null} to stop reporting
+     * @see ConfigMetrics#withJfr(ConfigMetrics)
+     */
+    public void setMetrics(ConfigMetrics metrics) {
+        this.metrics = metrics == null ? ConfigMetrics.NONE : metrics;
+    }
+
+    /**
+     * Choose how {@link #store()} finds the modified configs
+     * <p>
+     *     With tracking, {@link #store()} only serializes the configs that were modified since they were last
+     *     loaded or stored, instead of all of them. {@link #store(Class)} always serializes its config.
+     * </p>
+     *
+     * @param dirtyTracking The tracking to use from the next load or store on
+     */
+    public void setDirtyTracking(DirtyTracking dirtyTracking) {
+        this.dirtyTracking = dirtyTracking;
+    }
+
+    /**
+     * Flag a config as modified, so that the next {@link #store()} writes it
+     * <p>Needed with {@link DirtyTracking#EXPLICIT}, harmless otherwise.</p>
+     *
+     * @param clazz The config's class
+     */
+    public void markDirty(Class<?> clazz) {
+        this.descriptor(clazz).markDirty();
+    }
+
+    /**
+     * Get the fingerprint of an instance for the current dirty tracking, 0 if it doesn't take one
+     */
+    private long fingerprint(Object instance) {
+        if (this.dirtyTracking != DirtyTracking.FINGERPRINT) {
+            return 0;
+        }
+        long fingerprint = ConfigFingerprint.of(instance);
+        // an instance that can't be fingerprinted is always dirty
+        return fingerprint == ConfigFingerprint.UNKNOWN ? System.nanoTime() | 1 : fingerprint;
+    }
+
+    /**
+     * Load configs on first access instead of all at once
+     * <p>
+     *     When lazy, {@link #init()} and {@link #scan()} only resolve the config classes. Each config is read, and
+     *     its file created if missing, on the first {@link #get(Class)} or {@link ConfigRef#get()}, once even if
+     *     many threads ask at the same time. Startup time and memory then grow with the configs actually used.
+     * </p>
+     * <p>
+     *     {@link #load()} only reloads the configs that were already accessed, and the {@link SnapshotCache} isn't
+     *     used. Until first accessed, a config's {@link Config.Instance @Instance} field stays {@code null}, so lazy
+     *     configs should be read through {@link #get(Class)} or their {@link ConfigRef}.
+     * </p>
+     *
+     * @param lazy {@code true} to load on first access, {@code false} to load with {@link #load()}
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+        for (ConfigDescriptor<?> descriptor : this.descriptors.values()) {
+            this.arm(descriptor);
+        }
+    }
+
+    /**
+     * Get the current instance of a config, loading it first if it is {@link #setLazy(boolean) lazy} and wasn't
+     * accessed yet
+     *
+     * @param clazz The config's class
+     * @return The instance, {@code null} if the config was never loaded
+     * @throws java.io.UncheckedIOException If lazily loading the config failed
+     */
+    public <T> T get(Class<T> clazz) {
+        return this.descriptor(clazz).ref().get();
+    }
+
+    /**
+     * Reload a config if it was accessed, for lazy loading
+     */
+    private void loadIfAccessed(Class<?> clazz) throws IOException {
+        ConfigDescriptor<?> descriptor = this.descriptor(clazz);
+        if (descriptor.ref().isInitialized()) {
+            this.load(descriptor, false, null);
+        }
+    }
+
     /**
      * Load all configs
+     * <p>When {@link #setLazy(boolean) lazy}, only the configs that were already accessed are reloaded.</p>
      */
     public void load() throws IOException {
-        for (Class<?> config : this.configs) {
-            load(config);
+        if (this.lazy) {
+            this.forEach(this.configs, this::loadIfAccessed);
+            return;
+        }
+        SnapshotCache snapshot = this.snapshotCache;
+        if (snapshot != null) {
+            snapshot.open();
+        }
+        this.forEach(this.configs, clazz -> this.load(this.descriptor(clazz), false, snapshot));
+        if (snapshot != null) {
+            this.save(snapshot);
+        }
+    }
+
+    /**
+     * Write the snapshot after a load, reporting rather than throwing failures: the configs are loaded already
+     */
+    private void save(SnapshotCache snapshot) {
+        try {
+            snapshot.save();
+        } catch (IOException | RuntimeException e) {
+            this.metrics.snapshotFailed(snapshot.file(), e);
         }
     }
 
     /**
      * Load a specific config
+     * <p>
+     *     If the loaded instance breaks any {@link Constraint} of the config, it is rejected with a
+     *     {@link ConfigValidationException} and the current instance stays published. The same content is checked
+     *     again by the next {@link #reload(Class)}, so the failure keeps being reported until the file is fixed.
+     * </p>
+     *
      * @param clazz The config's class
      */
     public <T> void load(Class<T> clazz) throws IOException {
-        String path = this.getPath(clazz);
-        Reader reader = this.fileLocator.get(path).reader();
-        T it = this.translator.read(reader, clazz);
+        this.load(this.descriptor(clazz), false, null);
+    }
+
+    /**
+     * Reload a specific config, but only if its file changed
+     * <p>
+     *     The file is read and hashed first. If its content is the same as what was last loaded or stored (for
+     *     example because the change was our own {@link #store(Class)}), it isn't parsed again.
+     * </p>
+     *
+     * @param clazz The config's class
+     * @return {@code true} if the config was reloaded, {@code false} if the file was unchanged, or the config is
+     * {@link #setLazy(boolean) lazy} and was never accessed
+     */
+    public <T> boolean reload(Class<T> clazz) throws IOException {
+        return this.reloadChanges(clazz) != null;
+    }
 
-        Field instanceField = this.getInstance(clazz);
+    /**
+     * Reload a specific config, but only if its file changed, and tell what changed
+     * <p>
+     *     With {@link ReloadMode#PATCH} the changes are field by field, otherwise the whole instance is one change.
+     * </p>
+     *
+     * @param clazz The config's class
+     * @return What changed, or {@code null} if the file was unchanged, or the config is
+     * {@link #setLazy(boolean) lazy} and was never accessed
+     * @see #reload(Class)
+     */
+    public <T> ChangeSet reloadChanges(Class<T> clazz) throws IOException {
+        ConfigDescriptor<T> descriptor = this.descriptor(clazz);
+        if (this.lazy && !descriptor.ref().isInitialized()) {
+            // will be read on first access anyway
+            return null;
+        }
+        return this.load(descriptor, true, null);
+    }
+
+    /**
+     * Load a specific config
+     *
+     * @param descriptor The config's descriptor
+     * @param onlyIfChanged Skip parsing if the content is the same as the last known content
+     * @param snapshot The snapshot to decode unchanged configs from and record the others in, or {@code null}
+     * @return What the load changed, or {@code null} if the config was not loaded
+     */
+    private <T> ChangeSet load(ConfigDescriptor<T> descriptor, boolean onlyIfChanged, SnapshotCache snapshot)
+            throws IOException {
+        ConfigMetrics metrics = this.metrics;
+        ConfigMetrics.Operation operation = onlyIfChanged ? ConfigMetrics.Operation.RELOAD : ConfigMetrics.Operation.LOAD;
+        long start = System.nanoTime();
         try {
-            instanceField.set(null, it);
-        } catch (IllegalAccessException e) {
-            String msg = "Inacessible @" + ConfigClassLocator.CONFIG_ANNOTATION.getCanonicalName() + " field in "
-                    + clazz.getCanonicalName();
-            throw new IllegalStateException(msg);
+            return this.load(descriptor, onlyIfChanged, snapshot, metrics, operation, start);
+        } catch (IOException | RuntimeException e) {
+            metrics.failed(operation, descriptor.type(), e, System.nanoTime() - start);
+            throw e;
         }
     }
 
+    private <T> ChangeSet load(ConfigDescriptor<T> descriptor, boolean onlyIfChanged, SnapshotCache snapshot,
+                               ConfigMetrics metrics, ConfigMetrics.Operation operation, long start)
+            throws IOException {
+        ConfigFile file = this.fileLocator.get(descriptor.path());
+        long size = -1;
+        long lastModified = -1;
+        long checkedAt = 0;
+        ChangeSet changes;
+        if (snapshot != null) {
+            // before reading, so that a change made while reading is noticed next time
+            checkedAt = System.currentTimeMillis();
+            size = file.size();
+            lastModified = file.lastModified();
+            SnapshotCache.Entry entry = snapshot.fresh(descriptor.path(), descriptor.type(), size, lastModified);
+            if (entry != null && (changes = this.load(descriptor, snapshot, entry, size, lastModified, checkedAt)) != null) {
+                metrics.completed(operation, descriptor.type(), 0, System.nanoTime() - start);
+                return changes;
+            }
+        }
+
+        byte[] digest;
+        int length;
+        T it;
+        if (this.translator.isBinary()) {
+            ConfigBytes content;
+            try (InputStream in = file.inputStream()) {
+                content = ConfigBytes.read(in);
+            }
+            digest = content.digest();
+            length = content.length();
+            if (onlyIfChanged && Arrays.equals(digest, this.digests.get(descriptor.path()))) {
+                metrics.skipped(operation, descriptor.type(), length, System.nanoTime() - start);
+                return null;
+            }
+            if ((changes = this.loadMatching(descriptor, snapshot, digest, size, lastModified, checkedAt)) != null) {
+                metrics.completed(operation, descriptor.type(), length, System.nanoTime() - start);
+                return changes;
+            }
+            it = this.translator.read(content.bytes(), 0, content.length(), descriptor.type());
+        } else {
+            ConfigContent content;
+            try (Reader reader = file.reader()) {
+                content = ConfigContent.read(reader);
+            }
+            digest = content.digest();
+            length = content.length();
+            if (onlyIfChanged && Arrays.equals(digest, this.digests.get(descriptor.path()))) {
+                metrics.skipped(operation, descriptor.type(), length, System.nanoTime() - start);
+                return null;
+            }
+            if ((changes = this.loadMatching(descriptor, snapshot, digest, size, lastModified, checkedAt)) != null) {
+                metrics.completed(operation, descriptor.type(), length, System.nanoTime() - start);
+                return changes;
+            }
+            it = this.translator.read(content.reader(), descriptor.type());
+        }
+
+        changes = this.publish(descriptor, it);
+        this.digests.put(descriptor.path(), digest);
+        if (snapshot != null) {
+            snapshot.record(descriptor.path(), descriptor.type(), size, lastModified, checkedAt, digest, it);
+        }
+        metrics.completed(operation, descriptor.type(), length, System.nanoTime() - start);
+        return changes;
+    }
+
     /**
-     * Store all configs
+     * Load a config from the snapshot entry with the same content, if there is one
+     *
+     * @return What the load changed, or {@code null} if there was no usable entry
+     */
+    private <T> ChangeSet loadMatching(ConfigDescriptor<T> descriptor, SnapshotCache snapshot, byte[] digest,
+                                       long size, long lastModified, long checkedAt)
+            throws ConfigValidationException {
+        if (snapshot == null) {
+            return null;
+        }
+        SnapshotCache.Entry entry = snapshot.matching(descriptor.path(), descriptor.type(), digest);
+        return entry == null ? null : this.load(descriptor, snapshot, entry, size, lastModified, checkedAt);
+    }
+
+    /**
+     * Load a config from a snapshot entry
+     *
+     * @return What the load changed, or {@code null} if the entry could not be decoded
      */
-    public void store() throws IOException {
-        for (Class<?> config : this.configs) {
-            store(config);
+    private <T> ChangeSet load(ConfigDescriptor<T> descriptor, SnapshotCache snapshot, SnapshotCache.Entry entry,
+                               long size, long lastModified, long checkedAt) throws ConfigValidationException {
+        T it;
+        try {
+            it = snapshot.decode(entry, descriptor.type());
+        } catch (IOException | RuntimeException e) {
+            // parse the file instead
+            return null;
+        }
+        ChangeSet changes = this.publish(descriptor, it);
+        this.digests.put(descriptor.path(), entry.digest());
+        snapshot.keep(descriptor.path(), entry, size, lastModified, checkedAt);
+        return changes;
+    }
+
+    /**
+     * Make a freshly read instance current, patching it into the live one if {@link ReloadMode#PATCH}
+     *
+     * @return What changed
+     * @throws ConfigValidationException If the instance breaks a {@link Constraint}, nothing is published then
+     */
+    private <T> ChangeSet publish(ConfigDescriptor<T> descriptor, T it) throws ConfigValidationException {
+        descriptor.validate(it);
+        T live = descriptor.getInstance();
+        ChangeSet changes;
+        if (this.reloadMode == ReloadMode.PATCH && live != null && it != null) {
+            ConfigPatch.Result<T> patched = ConfigPatch.merge(descriptor.type(), live, it);
+            changes = patched.changes;
+            it = patched.instance;
+            if (it == live) {
+                // nothing changed, keep the live instance and its version
+                return changes;
+            }
+        } else {
+            changes = ChangeSet.replaced(descriptor.type(), live, it);
         }
+        descriptor.publish(it);
+        descriptor.markClean(it, this.fingerprint(it));
+        if (!changes.isEmpty()) {
+            this.events.publish(changes);
+        }
+        return changes;
+    }
+
+    /**
+     * Store all configs
+     *
+     * @return Which configs were written and which were skipped, because they did not change or were never loaded
+     */
+    public StoreReport store() throws IOException {
+        Set<Class<?>> written = ConcurrentHashMap.newKeySet();
+        Set<Class<?>> skipped = ConcurrentHashMap.newKeySet();
+        this.forEach(this.configs, clazz -> {
+            if (this.storeIfDirty(clazz)) {
+                written.add(clazz);
+            } else {
+                skipped.add(clazz);
+            }
+        });
+        return new StoreReport(written, skipped);
     }
 
     /**
      * Store a specific config
+     * <p>
+     *     The config is serialized in memory first. If the result is identical to the content last loaded from or
+     *     stored to the file, nothing is written. Otherwise the file is replaced with
+     *     {@link ConfigFile#replace(char[], int, int)} (or {@link ConfigFile#replace(byte[], int, int)} for binary
+     *     translators), which is atomic for file systems that support it.
+     * </p>
+     *
+     * <p>
+     *     A config that holds no instance, such as a {@link #setLazy(boolean) lazy} one that was never accessed, is
+     *     not written either: its file keeps whatever it holds.
+     * </p>
      *
      * @param clazz The config's {@code Class}
+     * @return {@code true} if the file was written, {@code false} if it was already up to date or never loaded
+     */
+    public <T> boolean store(Class<T> clazz) throws IOException {
+        long start = System.nanoTime();
+        ConfigDescriptor<T> descriptor = this.descriptor(clazz);
+        T instance = this.storable(descriptor);
+        if (instance == null) {
+            this.metrics.skipped(ConfigMetrics.Operation.STORE, clazz, 0, System.nanoTime() - start);
+            return false;
+        }
+        return this.storeTracked(descriptor, instance, this.fingerprint(instance));
+    }
+
+    /**
+     * Get the instance to store, or {@code null} if there is none and the file must be left alone
      */
-    public <T> void store(Class<T> clazz) throws IOException {
-        Field instanceField = this.getInstance(clazz);
+    private <T> T storable(ConfigDescriptor<T> descriptor) {
+        if (this.lazy && !descriptor.ref().isInitialized()) {
+            // never accessed, so never read: the instance field says nothing about the file
+            return null;
+        }
+        return descriptor.getInstance();
+    }
+
+    /**
+     * Store a config, unless dirty tracking knows it wasn't modified
+     */
+    private <T> boolean storeIfDirty(Class<T> clazz) throws IOException {
+        if (this.dirtyTracking == DirtyTracking.NONE) {
+            return this.store(clazz);
+        }
+        long start = System.nanoTime();
+        ConfigDescriptor<T> descriptor = this.descriptor(clazz);
+        T instance = this.storable(descriptor);
+        if (instance == null) {
+            this.metrics.skipped(ConfigMetrics.Operation.STORE, clazz, 0, System.nanoTime() - start);
+            return false;
+        }
+        long fingerprint = this.fingerprint(instance);
+        if (!descriptor.isDirty(instance, fingerprint)) {
+            this.metrics.skipped(ConfigMetrics.Operation.STORE, clazz, 0, System.nanoTime() - start);
+            return false;
+        }
+        return this.storeTracked(descriptor, instance, fingerprint);
+    }
+
+    /**
+     * Store an instance, and remember it as clean
+     */
+    private <T> boolean storeTracked(ConfigDescriptor<T> descriptor, T instance, long fingerprint) throws IOException {
+        // before serializing, so that changes made meanwhile are noticed next time
+        descriptor.markClean(instance, fingerprint);
         try {
-            // This suppression is fine because
-            // this.getInstance() will throw if
-            //
-            @SuppressWarnings("unchecked")
-            T instance = (T) instanceField.get(null);
-            this.store(clazz, instance);
-        } catch (IllegalAccessException e) {
-            throw new IllegalStateException(e);
+            return this.store(descriptor, instance, false);
+        } catch (IOException | RuntimeException e) {
+            descriptor.markDirty();
+            throw e;
         }
     }
 
     /**
-     /**
+     * Asynchronous {@link #init()}
+     * <p>
+     *     Scans on the {@code executor}, then creates the missing files in parallel on it.
+     * </p>
+     *
+     * @param executor The {@link Executor} to do the I/O on, see {@link ConfigExecutors}
+     * @return A future that completes once every file exists, exceptionally with a {@link ConfigException} if some
+     * could not be created
+     */
+    public CompletableFuture<Void> initAsync(Executor executor) {
+        return runAsync(() -> {
+            this.scan();
+            return this.configs;
+        }, executor).thenCompose(configs -> this.lazy ? CompletableFuture.completedFuture(null)
+                : forEachAsync(configs, clazz -> {
+                    if (!this.verify(clazz)) {
+                        this.createDefault(clazz);
+                    }
+                }, executor));
+    }
+
+    /**
+     * Asynchronous {@link #load()}
+     * <p>
+     *     Every config is loaded in parallel on the {@code executor}; the calling thread never blocks. Every class is
+     *     processed even if some fail.
+     * </p>
+     *
+     * @param executor The {@link Executor} to do the I/O on, see {@link ConfigExecutors}
+     * @return A future that completes once every config was loaded, exceptionally with a {@link ConfigException}
+     * if some could not be
+     */
+    public CompletableFuture<Void> loadAsync(Executor executor) {
+        SnapshotCache snapshot = this.snapshotCache;
+        Set<Class<?>> configs = this.configs;
+        if (this.lazy) {
+            return forEachAsync(configs, this::loadIfAccessed, executor);
+        }
+        if (snapshot == null) {
+            return forEachAsync(configs, clazz -> this.load(this.descriptor(clazz), false, null), executor);
+        }
+        return runAsync(() -> {
+            snapshot.open();
+            return null;
+        }, executor)
+                .thenCompose(ignored -> forEachAsync(configs, clazz -> this.load(this.descriptor(clazz), false, snapshot),
+                        executor))
+                .thenCompose(ignored -> runAsync(() -> {
+                    this.save(snapshot);
+                    return null;
+                }, executor));
+    }
+
+    /**
+     * Asynchronous {@link #load(Class)}
+     *
+     * @param clazz The config's class
+     * @param executor The {@link Executor} to do the I/O on
+     * @return A future completed with the loaded instance
+     */
+    public <T> CompletableFuture<T> loadAsync(Class<T> clazz, Executor executor) {
+        ConfigDescriptor<T> descriptor = this.descriptor(clazz);
+        return runAsync(() -> {
+            this.load(descriptor, false, null);
+            return descriptor.ref().get();
+        }, executor);
+    }
+
+    /**
+     * Asynchronous {@link #reload(Class)}
+     *
+     * @param clazz The config's class
+     * @param executor The {@link Executor} to do the I/O on
+     * @return A future completed with {@code true} if the config was reloaded, {@code false} if its file was
+     * unchanged
+     */
+    public <T> CompletableFuture<Boolean> reloadAsync(Class<T> clazz, Executor executor) {
+        return runAsync(() -> this.reload(clazz), executor);
+    }
+
+    /**
+     * Asynchronous {@link #store()}
+     *
+     * @param executor The {@link Executor} to do the I/O on, see {@link ConfigExecutors}
+     * @return A future completed with which configs were written and which were skipped, or exceptionally with a
+     * {@link ConfigException} if some could not be stored
+     */
+    public CompletableFuture<StoreReport> storeAsync(Executor executor) {
+        Set<Class<?>> written = ConcurrentHashMap.newKeySet();
+        Set<Class<?>> skipped = ConcurrentHashMap.newKeySet();
+        return forEachAsync(this.configs, clazz -> {
+            if (this.storeIfDirty(clazz)) {
+                written.add(clazz);
+            } else {
+                skipped.add(clazz);
+            }
+        }, executor).thenApply(ignored -> new StoreReport(written, skipped));
+    }
+
+    /**
+     * Asynchronous {@link #store(Class)}
+     * <p>
+     *     The config is serialized on the {@code executor}, so it should not be modified until the future completes.
+     * </p>
+     *
+     * @param clazz The config's class
+     * @param executor The {@link Executor} to do the I/O on
+     * @return A future completed with {@code true} if the file was written, {@code false} if it was already up to
+     * date
+     */
+    public <T> CompletableFuture<Boolean> storeAsync(Class<T> clazz, Executor executor) {
+        return runAsync(() -> this.store(clazz), executor);
+    }
+
+    /**
      * Store a specific config
      *
-     * @param clazz The config's {@code Class} object
+     * @param descriptor The config's descriptor
      * @param instance An instance to store from
+     * @param force Write even if the content didn't change
      * @param <T> The type of the instance and the {@code Class}
+     * @return {@code true} if the file was written
      */
-    private <T> void store(Class<T> clazz, T instance) throws IOException {
-        String path = this.getPath(clazz);
-        Writer f = this.fileLocator.get(path).writer();
-        this.translator.write(f, clazz, instance);
+    private <T> boolean store(ConfigDescriptor<T> descriptor, T instance, boolean force) throws IOException {
+        ConfigMetrics metrics = this.metrics;
+        ConfigMetrics.Operation operation = force ? ConfigMetrics.Operation.CREATE_DEFAULT : ConfigMetrics.Operation.STORE;
+        long start = System.nanoTime();
+        try {
+            return this.store(descriptor, instance, force, metrics, operation, start);
+        } catch (IOException | RuntimeException e) {
+            metrics.failed(operation, descriptor.type(), e, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private <T> boolean store(ConfigDescriptor<T> descriptor, T instance, boolean force, ConfigMetrics metrics,
+                              ConfigMetrics.Operation operation, long start) throws IOException {
+        ConfigContent text = null;
+        ConfigBytes bytes = null;
+        byte[] digest;
+        int length;
+        if (this.translator.isBinary()) {
+            bytes = new ConfigBytes();
+            this.translator.write(bytes, descriptor.type(), instance);
+            digest = bytes.digest();
+            length = bytes.length();
+        } else {
+            text = new ConfigContent();
+            this.translator.write(text, descriptor.type(), instance);
+            digest = text.digest();
+            length = text.length();
+        }
+        if (!force && Arrays.equals(digest, this.digests.get(descriptor.path()))) {
+            metrics.skipped(operation, descriptor.type(), length, System.nanoTime() - start);
+            return false;
+        }
+
+        // Record the digest first, so a concurrent reload() recognizes the new file as our own write
+        byte[] previous = this.digests.put(descriptor.path(), digest);
+        try {
+            ConfigFile file = this.fileLocator.get(descriptor.path());
+            if (bytes != null) {
+                file.replace(bytes.bytes(), 0, bytes.length());
+            } else {
+                file.replace(text.chars(), 0, text.length());
+            }
+        } catch (IOException | RuntimeException e) {
+            if (previous == null) {
+                this.digests.remove(descriptor.path(), digest);
+            } else {
+                this.digests.replace(descriptor.path(), digest, previous);
+            }
+            throw e;
+        }
+        metrics.completed(operation, descriptor.type(), length, System.nanoTime() - start);
+        return true;
+    }
+
+    /**
+     * An operation on a single config class
+     */
+    @FunctionalInterface
+    private interface ConfigAction {
+        void apply(Class<?> clazz) throws IOException;
+    }
+
+    /**
+     * A task that may fail with an {@link IOException}
+     */
+    @FunctionalInterface
+    private interface IoTask<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Apply an action to every class, either sequentially or on the {@link Executor}
+     * <p>
+     *     Sequentially, the first failure is rethrown as is. In parallel, all classes are processed and
+     *     the failures are collected into a {@link ConfigException}. Joining the tasks makes all their
+     *     effects visible to the calling thread.
+     * </p>
+     */
+    private void forEach(Set<Class<?>> classes, ConfigAction action) throws IOException {
+        if (this.executor == null) {
+            for (Class<?> clazz : classes) {
+                action.apply(clazz);
+            }
+            return;
+        }
+
+        try {
+            forEachAsync(classes, action, this.executor).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ConfigException) {
+                throw (ConfigException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Apply an action to every class on an {@link Executor}
+     *
+     * @return A future that completes once every class was processed, exceptionally with a {@link ConfigException}
+     * if any failed
+     */
+    private static CompletableFuture<Void> forEachAsync(Set<Class<?>> classes, ConfigAction action, Executor executor) {
+        Map<Class<?>, Throwable> failures = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] tasks = classes.stream()
+                .map(clazz -> runAsync(() -> {
+                    action.apply(clazz);
+                    return null;
+                }, executor).exceptionally(t -> {
+                    failures.put(clazz, t);
+                    return null;
+                }))
+                .toArray(CompletableFuture<?>[]::new);
+
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture.allOf(tasks).whenComplete((ignored, t) -> {
+            if (failures.isEmpty()) {
+                done.complete(null);
+                return;
+            }
+            Map<Class<?>, Throwable> ordered = new LinkedHashMap<>();
+            for (Class<?> clazz : classes) {
+                Throwable failure = failures.get(clazz);
+                if (failure != null) {
+                    ordered.put(clazz, failure);
+                }
+            }
+            done.completeExceptionally(new ConfigException(ordered));
+        });
+        return done;
+    }
+
+    /**
+     * Run a task on an {@link Executor}
+     *
+     * @return A future completed with the task's result, or exceptionally with what it threw (not wrapped)
+     */
+    private static <T> CompletableFuture<T> runAsync(IoTask<T> task, Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(task.run());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            // rejected
+            future.completeExceptionally(e);
+        }
+        return future;
     }
 }
@@ -0,0 +1,172 @@
+package truenotzero.smart_config;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Merges a freshly parsed config into the live one, keeping every value that didn't change
+ * <p>
+ *     The two graphs are walked together. Wherever a value equals the live one, the live value is put back into the
+ *     parsed graph, so unchanged nested objects and collections are reused and the parsed copies become garbage
+ *     right away. When nothing changed at all, the live instance itself is the result. Every difference is recorded
+ *     as a {@link ChangeSet.Change}.
+ * </p>
+ * <p>
+ *     The live instance is never modified: readers holding it keep seeing a consistent config.
+ * </p>
+ */
+final class ConfigPatch {
+    private final List<ChangeSet.Change> changes = new ArrayList<>();
+
+    private ConfigPatch() {
+    }
+
+    /**
+     * The merged instance and what changed
+     */
+    static final class Result<T> {
+        final T instance;
+        final ChangeSet changes;
+
+        private Result(T instance, ChangeSet changes) {
+            this.instance = instance;
+            this.changes = changes;
+        }
+    }
+
+    /**
+     * Merge a parsed instance into the live one
+     *
+     * @param live The current instance, not modified
+     * @param parsed The new instance, which may get the live values put back into it
+     * @return The instance to publish: {@code live} if nothing changed, else {@code parsed}
+     */
+    static <T> Result<T> merge(Class<T> type, T live, T parsed) {
+        ConfigPatch patch = new ConfigPatch();
+        T merged;
+        try {
+            merged = type.cast(patch.merge("", live, parsed));
+        } catch (IllegalAccessException | RuntimeException e) {
+            // can't be walked, take it whole
+            return new Result<>(parsed, ChangeSet.replaced(type, live, parsed));
+        }
+        return new Result<>(merged, new ChangeSet(type, patch.changes));
+    }
+
+    /**
+     * @return The value to keep: {@code live} if unchanged, otherwise {@code parsed} with its unchanged parts
+     * replaced by the live ones
+     */
+    private Object merge(String path, Object live, Object parsed) throws IllegalAccessException {
+        if (live == parsed) {
+            return live;
+        }
+        if (live == null || parsed == null || live.getClass() != parsed.getClass()) {
+            return this.changed(path, live, parsed);
+        }
+        Class<?> type = live.getClass();
+        if (type.isArray()) {
+            return Objects.deepEquals(live, parsed) ? live : this.changed(path, live, parsed);
+        }
+        if (live instanceof ConfigSequence || live instanceof MappedTable) {
+            // immutable, and possibly lazily decoded or mapped: compared as a whole
+            return live.equals(parsed) ? live : this.changed(path, live, parsed);
+        }
+        if (live instanceof List && parsed instanceof RandomAccess) {
+            return this.mergeList(path, (List<?>) live, asObjects(parsed));
+        }
+        if (live instanceof Map) {
+            return this.mergeMap(path, (Map<?, ?>) live, asMap(parsed));
+        }
+        if (live instanceof Collection || type.getClassLoader() == null) {
+            // sets, JDK value types
+            return live.equals(parsed) ? live : this.changed(path, live, parsed);
+        }
+
+        boolean same = true;
+        for (Field field : ConfigDescriptor.fields(type)) {
+            Object oldValue = field.get(live);
+            Object newValue = field.get(parsed);
+            Object kept = this.merge(path.isEmpty() ? field.getName() : path + '.' + field.getName(), oldValue, newValue);
+            if (kept == oldValue) {
+                if (!field.getType().isPrimitive()) {
+                    field.set(parsed, oldValue);
+                }
+            } else {
+                same = false;
+            }
+        }
+        return same ? live : parsed;
+    }
+
+    private Object mergeList(String path, List<?> live, List<Object> parsed) throws IllegalAccessException {
+        boolean same = live.size() == parsed.size();
+        int common = Math.min(live.size(), parsed.size());
+        for (int i = 0; i < common; ++i) {
+            Object oldValue = live.get(i);
+            Object kept = this.merge(path + '[' + i + ']', oldValue, parsed.get(i));
+            if (kept == oldValue) {
+                parsed.set(i, oldValue);
+            } else {
+                same = false;
+            }
+        }
+        for (int i = common; i < live.size(); ++i) {
+            this.changed(path + '[' + i + ']', live.get(i), null);
+        }
+        for (int i = common; i < parsed.size(); ++i) {
+            this.changed(path + '[' + i + ']', null, parsed.get(i));
+        }
+        return same ? live : parsed;
+    }
+
+    private Object mergeMap(String path, Map<?, ?> live, Map<Object, Object> parsed) throws IllegalAccessException {
+        boolean same = live.size() == parsed.size();
+        for (Map.Entry<Object, Object> entry : parsed.entrySet()) {
+            String entryPath = path + '[' + entry.getKey() + ']';
+            if (!live.containsKey(entry.getKey())) {
+                this.changed(entryPath, null, entry.getValue());
+                same = false;
+                continue;
+            }
+            Object oldValue = live.get(entry.getKey());
+            Object kept = this.merge(entryPath, oldValue, entry.getValue());
+            if (kept == oldValue) {
+                entry.setValue(oldValue);
+            } else {
+                same = false;
+            }
+        }
+        Iterator<? extends Map.Entry<?, ?>> removed = live.entrySet().iterator();
+        while (removed.hasNext()) {
+            Map.Entry<?, ?> entry = removed.next();
+            if (!parsed.containsKey(entry.getKey())) {
+                this.changed(path + '[' + entry.getKey() + ']', entry.getValue(), null);
+                same = false;
+            }
+        }
+        return same ? live : parsed;
+    }
+
+    private Object changed(String path, Object oldValue, Object newValue) {
+        this.changes.add(new ChangeSet.Change(path, oldValue, newValue));
+        return newValue;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> asObjects(Object list) {
+        return (List<Object>) list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, Object> asMap(Object map) {
+        return (Map<Object, Object>) map;
+    }
+}
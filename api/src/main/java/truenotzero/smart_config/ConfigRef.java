@@ -0,0 +1,175 @@
+package truenotzero.smart_config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A thread-safe handle to the current instance of a config
+ * <p>
+ *     {@link ConfigLoader} builds every instance completely before publishing it here with a single atomic swap.
+ *     Readers on any thread therefore always see a fully loaded config, with no locking: {@link #get()} is one
+ *     volatile read. The {@link Config.Instance @Instance} field is still written too, but a plain static field
+ *     gives other threads no such guarantee.
+ * </p>
+ * <p>
+ *     Each publication bumps the {@link #version()}, so readers can cheaply tell whether the config changed since
+ *     they last looked:
+ *     <pre>
+ *         ConfigRef&lt;MyCfg&gt; cfg = loader.ref(MyCfg.class);
+ *         ConfigRef.Snapshot&lt;MyCfg&gt; seen = cfg.snapshot();
+ *         // later
+ *         if (cfg.version() != seen.version()) {
+ *             seen = cfg.snapshot();
+ *             rebuildDerivedState(seen.value());
+ *         }
+ *     </pre>
+ * </p>
+ * <p>
+ *     With {@link ConfigLoader#setLazy(boolean) lazy loading}, the first {@link #get()} or {@link #snapshot()}
+ *     loads the config. Exactly one thread loads it; the others wait for it.
+ * </p>
+ *
+ * @param <T> The config type
+ * @see ConfigLoader#ref(Class)
+ */
+public final class ConfigRef<T> {
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<ConfigRef, Snapshot> SNAPSHOT =
+            AtomicReferenceFieldUpdater.newUpdater(ConfigRef.class, Snapshot.class, "snapshot");
+
+    /**
+     * An instance of a config together with its version
+     *
+     * @param <T> The config type
+     */
+    public static final class Snapshot<T> {
+        private final T value;
+        private final long version;
+
+        Snapshot(T value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+
+        /**
+         * @return The config instance, {@code null} if none was published yet
+         */
+        public T value() {
+            return value;
+        }
+
+        /**
+         * @return The number of times an instance was published, {@code 0} before the first one
+         */
+        public long version() {
+            return version;
+        }
+    }
+
+    /**
+     * Loads a config on first access
+     */
+    @FunctionalInterface
+    interface Initializer {
+        void initialize() throws IOException;
+    }
+
+    private final Class<T> type;
+    private volatile Snapshot<T> snapshot;
+    private volatile Initializer initializer;
+
+    ConfigRef(Class<T> type) {
+        this.type = type;
+        this.snapshot = new Snapshot<>(null, 0);
+    }
+
+    /**
+     * @return The config class this refers to
+     */
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * Get the current instance
+     *
+     * @return The last published instance, {@code null} if the config was never loaded
+     * @throws UncheckedIOException If the config is loaded lazily, and loading it failed. The next call tries again.
+     */
+    public T get() {
+        return this.snapshot().value;
+    }
+
+    /**
+     * Get the current version
+     *
+     * @return The number of times an instance was published
+     */
+    public long version() {
+        return snapshot.version;
+    }
+
+    /**
+     * Get the current instance and its version, consistent with each other
+     *
+     * @throws UncheckedIOException If the config is loaded lazily, and loading it failed
+     */
+    public Snapshot<T> snapshot() {
+        Snapshot<T> s = snapshot;
+        if (s.version == 0 && initializer != null) {
+            s = this.initialize();
+        }
+        return s;
+    }
+
+    private synchronized Snapshot<T> initialize() {
+        Initializer init = this.initializer;
+        if (this.snapshot.version == 0 && init != null) {
+            try {
+                init.initialize();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load " + type.getName(), e);
+            }
+            this.initializer = null;
+        }
+        return this.snapshot;
+    }
+
+    /**
+     * Load the config on first access, or {@code null} to stop doing so
+     */
+    void setInitializer(Initializer initializer) {
+        this.initializer = initializer;
+    }
+
+    /**
+     * @return {@code true} if an instance was published, without loading one
+     */
+    boolean isInitialized() {
+        return snapshot.version != 0;
+    }
+
+    /**
+     * Publish a new instance
+     *
+     * @param value The fully built instance
+     * @return The new snapshot
+     */
+    @SuppressWarnings("unchecked")
+    Snapshot<T> publish(T value) {
+        Snapshot<T> current;
+        Snapshot<T> next;
+        do {
+            current = snapshot;
+            next = new Snapshot<>(value, current.version + 1);
+        } while (!SNAPSHOT.compareAndSet(this, current, next));
+        return next;
+    }
+
+    @Override
+    public String toString() {
+        Snapshot<T> s = snapshot;
+        return "ConfigRef{" + type.getName() + " v" + s.version + '}';
+    }
+}
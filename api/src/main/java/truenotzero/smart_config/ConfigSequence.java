@@ -0,0 +1,78 @@
+package truenotzero.smart_config;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list for huge arrays in configs, which translators may decode lazily
+ * <p>
+ *     Declaring a field as {@code ConfigSequence<Route>} instead of {@code List<Route>} lets the translator keep
+ *     the array in a compact encoded form and decode each element when it is accessed, instead of building every
+ *     element up front. Peak heap during loading then stays close to the size of the encoded array. Elements are
+ *     decoded again on every access, so callers that need an element repeatedly should hold on to it.
+ * </p>
+ * <p>
+ *     A translator that doesn't support lazy decoding reads the array into a plain sequence; see
+ *     {@code truenotzero.smart_config.impl.StreamingTypeAdapterFactory} for JSON.
+ * </p>
+ *
+ * @param <T> The element type
+ */
+public abstract class ConfigSequence<T> extends AbstractList<T> implements RandomAccess {
+    private static final ConfigSequence<?> EMPTY = new Materialized<>(Collections.emptyList());
+
+    /**
+     * For subclasses
+     */
+    protected ConfigSequence() {
+    }
+
+    /**
+     * Get an empty sequence
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ConfigSequence<T> of() {
+        return (ConfigSequence<T>) EMPTY;
+    }
+
+    /**
+     * Get a sequence of the given elements, for default values
+     */
+    @SafeVarargs
+    public static <T> ConfigSequence<T> of(T... elements) {
+        return new Materialized<>(new ArrayList<>(Arrays.asList(elements)));
+    }
+
+    /**
+     * Get a sequence of the given elements, copied
+     */
+    public static <T> ConfigSequence<T> copyOf(Collection<? extends T> elements) {
+        return new Materialized<>(new ArrayList<>(elements));
+    }
+
+    /**
+     * A sequence whose elements are all in memory
+     */
+    private static final class Materialized<T> extends ConfigSequence<T> {
+        private final List<T> elements;
+
+        Materialized(List<T> elements) {
+            this.elements = elements;
+        }
+
+        @Override
+        public T get(int index) {
+            return this.elements.get(index);
+        }
+
+        @Override
+        public int size() {
+            return this.elements.size();
+        }
+    }
+}
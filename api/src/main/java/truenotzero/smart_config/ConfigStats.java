@@ -0,0 +1,208 @@
+package truenotzero.smart_config;
+
+import truenotzero.smart_config.api.ConfigMetrics;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ConfigMetrics} that keeps counters and latency histograms in memory, for exporting to a monitoring system
+ * <p>
+ *     Everything is kept per {@link ConfigMetrics.Operation operation} and {@link Outcome outcome}, summed over all
+ *     config classes. Recording never allocates or blocks.
+ * </p>
+ * <p>
+ *     Latencies are kept in power-of-two buckets, so percentiles are exact to within a factor of two.
+ * </p>
+ */
+public final class ConfigStats implements ConfigMetrics {
+    /**
+     * How an operation ended
+     */
+    public enum Outcome {
+        COMPLETED,
+        SKIPPED,
+        FAILED
+    }
+
+    /**
+     * The latencies of one kind of operation
+     */
+    public static final class Histogram {
+        private static final int BUCKETS = 64;
+
+        // bucket i holds latencies in [2^(i-1), 2^i) nanoseconds, bucket 0 holds 0
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        private Histogram() {
+        }
+
+        void record(long nanos) {
+            long n = Math.max(nanos, 0);
+            this.buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(n));
+            this.count.increment();
+            this.totalNanos.add(n);
+        }
+
+        /**
+         * @return How many latencies were recorded
+         */
+        public long count() {
+            return this.count.sum();
+        }
+
+        /**
+         * @return The sum of all latencies, in nanoseconds
+         */
+        public long totalNanos() {
+            return this.totalNanos.sum();
+        }
+
+        /**
+         * Get a percentile
+         *
+         * @param percentile Between 0 and 100
+         * @return An upper bound for the latency, in nanoseconds, that this percentage of operations didn't exceed.
+         * 0 if nothing was recorded.
+         */
+        public long percentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile out of range: " + percentile);
+            }
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; ++i) {
+                counts[i] = this.buckets.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; ++i) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i == 0 ? 0 : i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+                }
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return "Histogram{count=" + this.count() + ", p50=" + this.percentileNanos(50) + "ns, p99="
+                    + this.percentileNanos(99) + "ns}";
+        }
+    }
+
+    private final Histogram scans = new Histogram();
+    private final LongAdder scannedClasses = new LongAdder();
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder snapshotFailures = new LongAdder();
+    private final Histogram[] latencies;
+    private final LongAdder[] sizes;
+
+    public ConfigStats() {
+        int n = Operation.values().length * Outcome.values().length;
+        this.latencies = new Histogram[n];
+        this.sizes = new LongAdder[n];
+        for (int i = 0; i < n; ++i) {
+            this.latencies[i] = new Histogram();
+            this.sizes[i] = new LongAdder();
+        }
+    }
+
+    private static int index(Operation operation, Outcome outcome) {
+        return operation.ordinal() * Outcome.values().length + outcome.ordinal();
+    }
+
+    @Override
+    public void scanned(int classes, long nanos) {
+        this.scans.record(nanos);
+        this.scannedClasses.add(classes);
+    }
+
+    @Override
+    public void completed(Operation operation, Class<?> type, long size, long nanos) {
+        this.record(index(operation, Outcome.COMPLETED), size, nanos);
+    }
+
+    @Override
+    public void skipped(Operation operation, Class<?> type, long size, long nanos) {
+        this.record(index(operation, Outcome.SKIPPED), size, nanos);
+    }
+
+    @Override
+    public void failed(Operation operation, Class<?> type, Throwable error, long nanos) {
+        this.record(index(operation, Outcome.FAILED), 0, nanos);
+    }
+
+    @Override
+    public void eventsDropped(Class<?> type, Throwable error) {
+        this.droppedEvents.increment();
+    }
+
+    @Override
+    public void snapshotFailed(Path file, Throwable error) {
+        this.snapshotFailures.increment();
+    }
+
+    private void record(int index, long size, long nanos) {
+        this.latencies[index].record(nanos);
+        this.sizes[index].add(size);
+    }
+
+    /**
+     * @return How many times an operation ended this way
+     */
+    public long count(Operation operation, Outcome outcome) {
+        return this.latencies[index(operation, outcome)].count();
+    }
+
+    /**
+     * @return The total size of the content read or written by the operations that ended this way
+     * @see ConfigMetrics
+     */
+    public long size(Operation operation, Outcome outcome) {
+        return this.sizes[index(operation, outcome)].sum();
+    }
+
+    /**
+     * @return The latencies of the operations that ended this way
+     */
+    public Histogram latency(Operation operation, Outcome outcome) {
+        return this.latencies[index(operation, outcome)];
+    }
+
+    /**
+     * @return The latencies of classpath scans
+     */
+    public Histogram scans() {
+        return this.scans;
+    }
+
+    /**
+     * @return How many config classes all scans found together
+     */
+    public long scannedClasses() {
+        return this.scannedClasses.sum();
+    }
+
+    /**
+     * @return How many times listener events were dropped because the event executor rejected them
+     */
+    public long droppedEvents() {
+        return this.droppedEvents.sum();
+    }
+
+    /**
+     * @return How many times the snapshot could not be written
+     */
+    public long snapshotFailures() {
+        return this.snapshotFailures.sum();
+    }
+}
@@ -0,0 +1,52 @@
+package truenotzero.smart_config;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Thrown when a loaded config breaks its {@link Constraint}s
+ * <p>The rejected instance was not published: the config still holds the instance it had before the load.</p>
+ */
+public class ConfigValidationException extends IOException {
+    private final Class<?> type;
+    private final List<String> violations;
+
+    /**
+     * Create a {@link ConfigValidationException}
+     *
+     * @param type The config class
+     * @param violations A description of each broken constraint
+     */
+    public ConfigValidationException(Class<?> type, List<String> violations) {
+        super(message(type, violations));
+        this.type = type;
+        this.violations = Collections.unmodifiableList(violations);
+    }
+
+    /**
+     * @return The config class that failed validation
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * @return An unmodifiable {@link List} describing each broken constraint, such as {@code "size: 0 is not in [1, 512]"}
+     */
+    public List<String> getViolations() {
+        return violations;
+    }
+
+    private static String message(Class<?> type, List<String> violations) {
+        StringBuilder sb = new StringBuilder()
+                .append(violations.size())
+                .append(" constraint violation(s) in ")
+                .append(type.getName())
+                .append(':');
+        for (String violation : violations) {
+            sb.append("\n\t").append(violation);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,406 @@
+package truenotzero.smart_config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * The {@link Constraint}s of a config class, compiled into checks
+ * <p>
+ *     Annotations are read and field handles are resolved once, when the class is scanned. Validating an instance
+ *     then only runs the checks: typed {@link MethodHandle} reads, comparisons and, for
+ *     {@link Constraint.Pattern @Pattern}, a precompiled regular expression. Values are never boxed, and messages
+ *     are only built for broken constraints.
+ * </p>
+ */
+final class ConfigValidator {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final ConfigValidator EMPTY = new ConfigValidator(new Check[0]);
+
+    /**
+     * One constraint on one field
+     */
+    private abstract static class Check {
+        final String name;
+
+        Check(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param instance The object holding the field
+         * @param prefix The path of the object, empty for the config itself
+         * @param violations Where to add a description of each broken constraint
+         */
+        abstract void check(Object instance, String prefix, Violations violations) throws Throwable;
+
+        final void fail(String prefix, Violations violations, String message) {
+            if (violations.list == null) {
+                violations.list = new ArrayList<>();
+            }
+            violations.list.add(prefix + this.name + ": " + message);
+        }
+    }
+
+    /**
+     * The broken constraints found so far
+     */
+    private static final class Violations {
+        List<String> list;
+    }
+
+    private Check[] checks;
+
+    private ConfigValidator(Check[] checks) {
+        this.checks = checks;
+    }
+
+    /**
+     * Compile the constraints of a config class
+     *
+     * @throws IllegalStateException If a constraint is on a field of the wrong type, or a pattern doesn't compile
+     */
+    static ConfigValidator of(Class<?> type) {
+        return of(type, new HashMap<>());
+    }
+
+    private static ConfigValidator of(Class<?> type, Map<Class<?>, ConfigValidator> compiled) {
+        ConfigValidator validator = compiled.get(type);
+        if (validator != null) {
+            return validator;
+        }
+        // registered before compiling the fields, so that recursive types end
+        validator = new ConfigValidator(null);
+        compiled.put(type, validator);
+
+        List<Check> checks = new ArrayList<>();
+        for (Field field : ConfigDescriptor.fields(type)) {
+            MethodHandle getter;
+            try {
+                getter = LOOKUP.unreflectGetter(field);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException("Inaccessible field " + name(field), e);
+            }
+            compile(field, getter, checks, compiled);
+        }
+        validator.checks = checks.toArray(new Check[0]);
+        return validator.isEmpty() ? EMPTY : validator;
+    }
+
+    private static void compile(Field field, MethodHandle getter, List<Check> checks,
+                                Map<Class<?>, ConfigValidator> compiled) {
+        Class<?> type = field.getType();
+        String name = field.getName();
+        MethodHandle object = getter.asType(MethodType.methodType(Object.class, Object.class));
+
+        if (field.getAnnotation(Constraint.NotNull.class) != null && !type.isPrimitive()) {
+            checks.add(new NotNull(name, object));
+        }
+
+        Constraint.Range range = field.getAnnotation(Constraint.Range.class);
+        if (range != null) {
+            if (range.min() > range.max()) {
+                throw new IllegalStateException("Empty @Range on " + name(field));
+            }
+            if (type == long.class || type == int.class || type == short.class || type == byte.class) {
+                MethodHandle value = getter.asType(MethodType.methodType(long.class, Object.class));
+                checks.add(new LongRange(name, value, range));
+            } else if (type == double.class || type == float.class) {
+                MethodHandle value = getter.asType(MethodType.methodType(double.class, Object.class));
+                checks.add(new DoubleRange(name, value, range));
+            } else if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class
+                    || type == Double.class || type == Float.class) {
+                checks.add(new BoxedRange(name, object, range));
+            } else {
+                throw new IllegalStateException("@Range on non-numeric field " + name(field));
+            }
+        }
+
+        Constraint.Size size = field.getAnnotation(Constraint.Size.class);
+        if (size != null) {
+            if (size.min() > size.max() || size.max() < 0) {
+                throw new IllegalStateException("Empty @Size on " + name(field));
+            }
+            checks.add(new Size(name, object, sizer(field), size));
+        }
+
+        Constraint.Pattern pattern = field.getAnnotation(Constraint.Pattern.class);
+        if (pattern != null) {
+            if (!CharSequence.class.isAssignableFrom(type)) {
+                throw new IllegalStateException("@Pattern on non-text field " + name(field));
+            }
+            try {
+                checks.add(new Pattern(name, object, java.util.regex.Pattern.compile(pattern.value())));
+            } catch (java.util.regex.PatternSyntaxException e) {
+                throw new IllegalStateException("Invalid @Pattern on " + name(field), e);
+            }
+        }
+
+        if (!type.isPrimitive() && !type.isArray() && !type.isEnum() && !type.isInterface()
+                && !Modifier.isAbstract(type.getModifiers()) && type.getClassLoader() != null) {
+            // a nested object, check its fields too
+            ConfigValidator nested = of(type, compiled);
+            if (nested != EMPTY) {
+                checks.add(new Nested(name, object, nested));
+            }
+        }
+    }
+
+    /**
+     * Pick how to measure a field's value for {@link Constraint.Size @Size}
+     */
+    private static ToIntFunction<Object> sizer(Field field) {
+        Class<?> type = field.getType();
+        if (CharSequence.class.isAssignableFrom(type)) {
+            return value -> ((CharSequence) value).length();
+        } else if (Collection.class.isAssignableFrom(type)) {
+            return value -> ((Collection<?>) value).size();
+        } else if (Map.class.isAssignableFrom(type)) {
+            return value -> ((Map<?, ?>) value).size();
+        } else if (Object[].class.isAssignableFrom(type)) {
+            return value -> ((Object[]) value).length;
+        } else if (type == int[].class) {
+            return value -> ((int[]) value).length;
+        } else if (type == long[].class) {
+            return value -> ((long[]) value).length;
+        } else if (type == double[].class) {
+            return value -> ((double[]) value).length;
+        } else if (type == float[].class) {
+            return value -> ((float[]) value).length;
+        } else if (type == byte[].class) {
+            return value -> ((byte[]) value).length;
+        } else if (type == short[].class) {
+            return value -> ((short[]) value).length;
+        } else if (type == char[].class) {
+            return value -> ((char[]) value).length;
+        } else if (type == boolean[].class) {
+            return value -> ((boolean[]) value).length;
+        }
+        throw new IllegalStateException("@Size on field without a size " + name(field));
+    }
+
+    private static String name(Field field) {
+        return field.getDeclaringClass().getCanonicalName() + '.' + field.getName();
+    }
+
+    /**
+     * @return {@code true} if there is nothing to check
+     */
+    boolean isEmpty() {
+        return this.checks.length == 0;
+    }
+
+    /**
+     * Check an instance against every constraint
+     *
+     * @param type The config class, for the exception
+     * @param instance The instance, {@code null} passes
+     * @throws ConfigValidationException If any constraint is broken, listing all of them
+     */
+    void validate(Class<?> type, Object instance) throws ConfigValidationException {
+        if (instance == null || this.checks.length == 0) {
+            return;
+        }
+        Violations violations = new Violations();
+        try {
+            this.check(instance, "", violations);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalStateException("Failed to validate " + type.getName(), t);
+        }
+        if (violations.list != null) {
+            throw new ConfigValidationException(type, violations.list);
+        }
+    }
+
+    private void check(Object instance, String prefix, Violations violations) throws Throwable {
+        for (Check check : this.checks) {
+            check.check(instance, prefix, violations);
+        }
+    }
+
+    private static final class NotNull extends Check {
+        private final MethodHandle getter;
+
+        NotNull(String name, MethodHandle getter) {
+            super(name);
+            this.getter = getter;
+        }
+
+        @Override
+        void check(Object instance, String prefix, Violations violations) throws Throwable {
+            if ((Object) this.getter.invokeExact(instance) == null) {
+                this.fail(prefix, violations, "must not be null");
+            }
+        }
+    }
+
+    private static final class LongRange extends Check {
+        private final MethodHandle getter;
+        private final long min;
+        private final long max;
+        private final Constraint.Range range;
+
+        LongRange(String name, MethodHandle getter, Constraint.Range range) {
+            super(name);
+            this.getter = getter;
+            // the closest whole bounds, so that comparing needs no conversion
+            this.min = range.min() <= Long.MIN_VALUE ? Long.MIN_VALUE : (long) Math.ceil(range.min());
+            this.max = range.max() >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) Math.floor(range.max());
+            this.range = range;
+        }
+
+        @Override
+        void check(Object instance, String prefix, Violations violations) throws Throwable {
+            long value = (long) this.getter.invokeExact(instance);
+            if (value < this.min || value > this.max) {
+                this.fail(prefix, violations, outOfRange(value, this.range));
+            }
+        }
+    }
+
+    private static final class DoubleRange extends Check {
+        private final MethodHandle getter;
+        private final double min;
+        private final double max;
+        private final Constraint.Range range;
+
+        DoubleRange(String name, MethodHandle getter, Constraint.Range range) {
+            super(name);
+            this.getter = getter;
+            this.min = range.min();
+            this.max = range.max();
+            this.range = range;
+        }
+
+        @Override
+        void check(Object instance, String prefix, Violations violations) throws Throwable {
+            double value = (double) this.getter.invokeExact(instance);
+            // written so that NaN fails
+            if (!(value >= this.min && value <= this.max)) {
+                this.fail(prefix, violations, outOfRange(value, this.range));
+            }
+        }
+    }
+
+    private static final class BoxedRange extends Check {
+        private final MethodHandle getter;
+        private final double min;
+        private final double max;
+        private final long longMin;
+        private final long longMax;
+        private final Constraint.Range range;
+
+        BoxedRange(String name, MethodHandle getter, Constraint.Range range) {
+            super(name);
+            this.getter = getter;
+            this.min = range.min();
+            this.max = range.max();
+            this.longMin = range.min() <= Long.MIN_VALUE ? Long.MIN_VALUE : (long) Math.ceil(range.min());
+            this.longMax = range.max() >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) Math.floor(range.max());
+            this.range = range;
+        }
+
+        @Override
+        void check(Object instance, String prefix, Violations violations) throws Throwable {
+            Number value = (Number) (Object) this.getter.invokeExact(instance);
+            if (value == null) {
+                return;
+            }
+            boolean inRange;
+            if (value instanceof Double || value instanceof Float) {
+                double d = value.doubleValue();
+                inRange = d >= this.min && d <= this.max;
+            } else {
+                long l = value.longValue();
+                inRange = l >= this.longMin && l <= this.longMax;
+            }
+            if (!inRange) {
+                this.fail(prefix, violations, outOfRange(value, this.range));
+            }
+        }
+    }
+
+    private static String outOfRange(Object value, Constraint.Range range) {
+        return value + " is not in [" + bound(range.min()) + ", " + bound(range.max()) + "]";
+    }
+
+    private static String bound(double bound) {
+        return bound == Math.rint(bound) && !Double.isInfinite(bound) && Math.abs(bound) < 1e15
+                ? Long.toString((long) bound) : Double.toString(bound);
+    }
+
+    private static final class Size extends Check {
+        private final MethodHandle getter;
+        private final ToIntFunction<Object> sizer;
+        private final int min;
+        private final int max;
+
+        Size(String name, MethodHandle getter, ToIntFunction<Object> sizer, Constraint.Size size) {
+            super(name);
+            this.getter = getter;
+            this.sizer = sizer;
+            this.min = size.min();
+            this.max = size.max();
+        }
+
+        @Override
+        void check(Object instance, String prefix, Violations violations) throws Throwable {
+            Object value = (Object) this.getter.invokeExact(instance);
+            if (value == null) {
+                return;
+            }
+            int size = this.sizer.applyAsInt(value);
+            if (size < this.min || size > this.max) {
+                this.fail(prefix, violations, "size " + size + " is not in [" + this.min + ", " + this.max + "]");
+            }
+        }
+    }
+
+    private static final class Pattern extends Check {
+        private final MethodHandle getter;
+        private final java.util.regex.Pattern pattern;
+
+        Pattern(String name, MethodHandle getter, java.util.regex.Pattern pattern) {
+            super(name);
+            this.getter = getter;
+            this.pattern = pattern;
+        }
+
+        @Override
+        void check(Object instance, String prefix, Violations violations) throws Throwable {
+            CharSequence value = (CharSequence) (Object) this.getter.invokeExact(instance);
+            if (value != null && !this.pattern.matcher(value).matches()) {
+                this.fail(prefix, violations, '"' + value.toString() + "\" does not match " + this.pattern.pattern());
+            }
+        }
+    }
+
+    private static final class Nested extends Check {
+        private final MethodHandle getter;
+        private final ConfigValidator validator;
+
+        Nested(String name, MethodHandle getter, ConfigValidator validator) {
+            super(name);
+            this.getter = getter;
+            this.validator = validator;
+        }
+
+        @Override
+        void check(Object instance, String prefix, Violations violations) throws Throwable {
+            Object value = (Object) this.getter.invokeExact(instance);
+            if (value != null) {
+                this.validator.check(value, prefix + this.name + '.', violations);
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package truenotzero.smart_config;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Constraints on the fields of a config, checked every time it is loaded
+ * <p>
+ *     A loaded instance that breaks any constraint is rejected with a {@link ConfigValidationException} before it
+ *     is published, so the previous instance stays current. The constraints are resolved when the config class is
+ *     scanned; putting one on a field of the wrong type fails the scan.
+ * </p>
+ * <p>
+ *     Only {@link NotNull @NotNull} rejects {@code null}, the other constraints skip it. Fields of nested objects
+ *     are checked too, so long as the nested object isn't {@code null}.
+ * </p>
+ * Example code:
+ * <pre>
+ *     &#064;Config("cfg/pool.json")
+ *     public class PoolCfg {
+ *         &#064;Constraint.Range(min = 1, max = 512)
+ *         public int size = 16;
+ *
+ *         &#064;Constraint.NotNull
+ *         &#064;Constraint.Pattern("[a-z][a-z0-9-]*")
+ *         public String name = "workers";
+ *
+ *         &#064;Instance
+ *         public static PoolCfg INSTANCE;
+ *     }
+ * </pre>
+ *
+ * @see ConfigLoader#load(Class)
+ */
+public final class Constraint {
+    private Constraint() {}
+
+    /**
+     * The value must not be {@code null}. Primitive fields always pass.
+     */
+    @Target(FIELD)
+    @Retention(RUNTIME)
+    public @interface NotNull {}
+
+    /**
+     * The number must lie within the bounds, both inclusive
+     * <p>For the primitive number types and their boxes. {@code NaN} is never in range.</p>
+     */
+    @Target(FIELD)
+    @Retention(RUNTIME)
+    public @interface Range {
+        /**
+         * @return The smallest allowed value
+         */
+        double min() default Double.NEGATIVE_INFINITY;
+
+        /**
+         * @return The biggest allowed value
+         */
+        double max() default Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * The length or size must lie within the bounds, both inclusive
+     * <p>For {@link CharSequence}s, arrays, {@link java.util.Collection}s and {@link java.util.Map}s.</p>
+     */
+    @Target(FIELD)
+    @Retention(RUNTIME)
+    public @interface Size {
+        /**
+         * @return The smallest allowed size
+         */
+        int min() default 0;
+
+        /**
+         * @return The biggest allowed size
+         */
+        int max() default Integer.MAX_VALUE;
+    }
+
+    /**
+     * The whole {@link CharSequence} must match the regular expression
+     *
+     * @see java.util.regex.Pattern
+     */
+    @Target(FIELD)
+    @Retention(RUNTIME)
+    public @interface Pattern {
+        /**
+         * @return The regular expression
+         */
+        String value();
+    }
+}
@@ -0,0 +1,61 @@
+package truenotzero.smart_config;
+
+import java.nio.ByteBuffer;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+/**
+ * A read-only {@code double} array for config fields, kept off the heap
+ *
+ * @see MappedIntArray
+ */
+public final class MappedDoubleArray extends MappedTable {
+    private static final MappedDoubleArray EMPTY = new MappedDoubleArray(ByteBuffer.allocate(0), null);
+
+    /**
+     * Wrap big-endian values, for translators
+     *
+     * @param buffer The values, from its position to its limit. Not copied.
+     * @param digest A digest of the values that identifies them, or {@code null} if unknown
+     */
+    public MappedDoubleArray(ByteBuffer buffer, byte[] digest) {
+        super(buffer, digest, Double.BYTES);
+    }
+
+    /**
+     * Get an array of the given values, kept on the heap, for default values
+     */
+    public static MappedDoubleArray of(double... values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Double.BYTES);
+        buffer.asDoubleBuffer().put(values);
+        return new MappedDoubleArray(buffer, null);
+    }
+
+    /**
+     * Get a value
+     *
+     * @throws IndexOutOfBoundsException If {@code index} is out of bounds
+     */
+    public double get(int index) {
+        return this.buffer.getDouble(this.offset(index));
+    }
+
+    /**
+     * Stream the values, in order
+     */
+    public DoubleStream stream() {
+        return IntStream.range(0, this.size()).mapToDouble(this::get);
+    }
+
+    /**
+     * Copy the values onto the heap
+     */
+    public double[] toArray() {
+        double[] values = new double[this.size()];
+        this.buffer.duplicate().asDoubleBuffer().get(values);
+        return values;
+    }
+}
@@ -0,0 +1,216 @@
+package truenotzero.smart_config;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+
+/**
+ * A read-only map from strings to {@code long}s for config fields, kept off the heap
+ * <p>
+ *     Like {@link MappedIntArray}, translators that support it back the index with a memory-mapped file. Keys are
+ *     kept sorted by their UTF-8 bytes, and looked up with a binary search straight over the mapping: a lookup
+ *     allocates nothing but the UTF-8 form of the key.
+ * </p>
+ * <p>
+ *     The layout, big-endian:
+ *     <pre>
+ *         int n
+ *         int keyOffset[n + 1]     where each key starts in the keys, and where the last one ends
+ *         long value[n]
+ *         byte keys[]              UTF-8, sorted
+ *     </pre>
+ * </p>
+ */
+public final class MappedIndex extends MappedTable {
+    private static final MappedIndex EMPTY = MappedIndex.of(new TreeMap<>());
+
+    private final int count;
+    private final int values;
+    private final int keys;
+
+    /**
+     * Wrap an index in the layout above, for translators
+     *
+     * @param buffer The index, from its position to its limit. Not copied.
+     * @param digest A digest of the index that identifies it, or {@code null} if unknown
+     * @throws IllegalArgumentException If the buffer is too small for the layout
+     */
+    public MappedIndex(ByteBuffer buffer, byte[] digest) {
+        super(buffer, digest, 1);
+        this.count = this.buffer.capacity() < Integer.BYTES ? 0 : this.buffer.getInt(0);
+        long values = Integer.BYTES + (this.count + 1L) * Integer.BYTES;
+        long keys = values + this.count * (long) Long.BYTES;
+        if (this.count < 0 || keys > this.buffer.capacity()) {
+            throw new IllegalArgumentException("Not a mapped index");
+        }
+        this.values = (int) values;
+        this.keys = (int) keys;
+    }
+
+    /**
+     * Get an index of the given entries, kept on the heap, for default values
+     */
+    public static MappedIndex of(Map<String, Long> entries) {
+        // sorted by UTF-8 bytes, which is not String order for chars beyond the BMP
+        TreeMap<byte[], Long> sorted = new TreeMap<>(MappedIndex::compare);
+        int keyBytes = 0;
+        for (Map.Entry<String, Long> entry : entries.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            sorted.put(key, entry.getValue());
+            keyBytes += key.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(layoutSize(sorted.size(), keyBytes));
+        write(buffer, sorted);
+        buffer.flip();
+        return new MappedIndex(buffer, null);
+    }
+
+    /**
+     * Get the empty index
+     */
+    public static MappedIndex of() {
+        return EMPTY;
+    }
+
+    private static int layoutSize(int n, int keyBytes) {
+        long size = Integer.BYTES + (n + 1L) * Integer.BYTES + n * (long) Long.BYTES + keyBytes;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Index too big");
+        }
+        return (int) size;
+    }
+
+    private static void write(ByteBuffer out, TreeMap<byte[], Long> sorted) {
+        out.putInt(sorted.size());
+        int offset = 0;
+        for (byte[] key : sorted.keySet()) {
+            out.putInt(offset);
+            offset += key.length;
+        }
+        out.putInt(offset);
+        for (Long value : sorted.values()) {
+            out.putLong(value);
+        }
+        for (byte[] key : sorted.keySet()) {
+            out.put(key);
+        }
+    }
+
+    /**
+     * Compare UTF-8 keys, byte by byte as unsigned: the order of the keys in the layout
+     */
+    public static int compare(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; ++i) {
+            int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Get the number of entries
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the value of a key
+     *
+     * @return The value, or empty if the key is missing
+     */
+    public OptionalLong get(String key) {
+        int i = this.find(key);
+        return i < 0 ? OptionalLong.empty() : OptionalLong.of(this.valueAt(i));
+    }
+
+    /**
+     * Get the value of a key
+     *
+     * @return The value, or {@code defaultValue} if the key is missing
+     */
+    public long get(String key, long defaultValue) {
+        int i = this.find(key);
+        return i < 0 ? defaultValue : this.valueAt(i);
+    }
+
+    /**
+     * Check if there is a value for a key
+     */
+    public boolean containsKey(String key) {
+        return this.find(key) >= 0;
+    }
+
+    /**
+     * Get the {@code i}-th key, in UTF-8 order
+     */
+    public String keyAt(int i) {
+        this.check(i);
+        int start = this.keyOffset(i);
+        byte[] key = new byte[this.keyOffset(i + 1) - start];
+        ByteBuffer b = this.buffer.duplicate();
+        b.position(this.keys + start);
+        b.get(key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the {@code i}-th value, in key order
+     */
+    public long valueAt(int i) {
+        this.check(i);
+        return this.buffer.getLong(this.values + i * Long.BYTES);
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= this.count) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.count);
+        }
+    }
+
+    private int keyOffset(int i) {
+        return this.buffer.getInt(Integer.BYTES + i * Integer.BYTES);
+    }
+
+    /**
+     * Binary search a key over the mapping
+     *
+     * @return The key's index, or {@code -1} if missing
+     */
+    private int find(String key) {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = this.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int c = this.compareAt(mid, k);
+            if (c < 0) {
+                low = mid + 1;
+            } else if (c > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareAt(int i, byte[] key) {
+        int start = this.keys + this.keyOffset(i);
+        int length = this.keys + this.keyOffset(i + 1) - start;
+        int n = Math.min(length, key.length);
+        for (int j = 0; j < n; ++j) {
+            int c = (this.buffer.get(start + j) & 0xFF) - (key[j] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return length - key.length;
+    }
+}
@@ -0,0 +1,67 @@
+package truenotzero.smart_config;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * A read-only {@code int} array for config fields, kept off the heap
+ * <p>
+ *     Translators that support it back the array with a memory-mapped file, and read it straight from the
+ *     mapping: the heap holds no copy of the values however many there are. A reload builds a new array over a new
+ *     mapping, which is published with the config like any other value. Safe to read from any thread.
+ * </p>
+ *
+ * @see MappedLongArray
+ * @see MappedDoubleArray
+ * @see MappedIndex
+ */
+public final class MappedIntArray extends MappedTable {
+    private static final MappedIntArray EMPTY = new MappedIntArray(ByteBuffer.allocate(0), null);
+
+    /**
+     * Wrap big-endian values, for translators
+     *
+     * @param buffer The values, from its position to its limit. Not copied.
+     * @param digest A digest of the values that identifies them, or {@code null} if unknown
+     */
+    public MappedIntArray(ByteBuffer buffer, byte[] digest) {
+        super(buffer, digest, Integer.BYTES);
+    }
+
+    /**
+     * Get an array of the given values, kept on the heap, for default values
+     */
+    public static MappedIntArray of(int... values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Integer.BYTES);
+        buffer.asIntBuffer().put(values);
+        return new MappedIntArray(buffer, null);
+    }
+
+    /**
+     * Get a value
+     *
+     * @throws IndexOutOfBoundsException If {@code index} is out of bounds
+     */
+    public int get(int index) {
+        return this.buffer.getInt(this.offset(index));
+    }
+
+    /**
+     * Stream the values, in order
+     */
+    public IntStream stream() {
+        return IntStream.range(0, this.size()).map(this::get);
+    }
+
+    /**
+     * Copy the values onto the heap
+     */
+    public int[] toArray() {
+        int[] values = new int[this.size()];
+        this.buffer.duplicate().asIntBuffer().get(values);
+        return values;
+    }
+}
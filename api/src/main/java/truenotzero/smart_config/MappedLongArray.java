@@ -0,0 +1,60 @@
+package truenotzero.smart_config;
+
+import java.nio.ByteBuffer;
+import java.util.stream.LongStream;
+
+/**
+ * A read-only {@code long} array for config fields, kept off the heap
+ *
+ * @see MappedIntArray
+ */
+public final class MappedLongArray extends MappedTable {
+    private static final MappedLongArray EMPTY = new MappedLongArray(ByteBuffer.allocate(0), null);
+
+    /**
+     * Wrap big-endian values, for translators
+     *
+     * @param buffer The values, from its position to its limit. Not copied.
+     * @param digest A digest of the values that identifies them, or {@code null} if unknown
+     */
+    public MappedLongArray(ByteBuffer buffer, byte[] digest) {
+        super(buffer, digest, Long.BYTES);
+    }
+
+    /**
+     * Get an array of the given values, kept on the heap, for default values
+     */
+    public static MappedLongArray of(long... values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Long.BYTES);
+        buffer.asLongBuffer().put(values);
+        return new MappedLongArray(buffer, null);
+    }
+
+    /**
+     * Get a value
+     *
+     * @throws IndexOutOfBoundsException If {@code index} is out of bounds
+     */
+    public long get(int index) {
+        return this.buffer.getLong(this.offset(index));
+    }
+
+    /**
+     * Stream the values, in order
+     */
+    public LongStream stream() {
+        return LongStream.range(0, this.size()).map(i -> this.get((int) i));
+    }
+
+    /**
+     * Copy the values onto the heap
+     */
+    public long[] toArray() {
+        long[] values = new long[this.size()];
+        this.buffer.duplicate().asLongBuffer().get(values);
+        return values;
+    }
+}
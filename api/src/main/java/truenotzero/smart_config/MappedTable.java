@@ -0,0 +1,80 @@
+package truenotzero.smart_config;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * What the mapped config field types share: a read-only buffer of fixed size records, and what identifies it
+ *
+ * @see MappedIntArray
+ */
+public abstract class MappedTable {
+    final ByteBuffer buffer;
+    private final byte[] digest;
+    private final int recordSize;
+    private final int size;
+
+    MappedTable(ByteBuffer buffer, byte[] digest, int recordSize) {
+        // sliced so that absolute reads start at 0, and read-only so that no one can modify the mapping
+        this.buffer = buffer.slice().asReadOnlyBuffer();
+        this.digest = digest == null ? null : digest.clone();
+        this.recordSize = recordSize;
+        this.size = this.buffer.capacity() / recordSize;
+    }
+
+    /**
+     * Get the number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the byte offset of a record
+     *
+     * @throws IndexOutOfBoundsException If {@code index} is out of bounds
+     */
+    int offset(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+        }
+        return index * this.recordSize;
+    }
+
+    /**
+     * Get a read-only view of the whole table, for translators
+     */
+    public ByteBuffer buffer() {
+        return this.buffer.duplicate();
+    }
+
+    /**
+     * Tables are equal if they hold the same bytes. Tables with a digest are compared by digest.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || o.getClass() != this.getClass()) {
+            return false;
+        }
+        MappedTable that = (MappedTable) o;
+        if (this.digest != null && that.digest != null) {
+            return Arrays.equals(this.digest, that.digest);
+        }
+        return this.buffer.equals(that.buffer);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.buffer.hashCode();
+    }
+
+    /**
+     * Get a hash that changes with the content, without reading the whole table if there is a digest
+     */
+    long fingerprint() {
+        return this.digest != null ? Arrays.hashCode(this.digest) : this.buffer.hashCode();
+    }
+}
@@ -0,0 +1,353 @@
+package truenotzero.smart_config;
+
+import truenotzero.smart_config.api.AtomicFiles;
+import truenotzero.smart_config.api.Translator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One file holding every config pre-decoded, so that startup can skip parsing the configs that didn't change
+ * <p>
+ *     After a successful {@link ConfigLoader#load()}, every config is written into the snapshot with a
+ *     {@link Translator#isBinary() binary} translator. Each entry is keyed by its source file's path, size,
+ *     modification time and content hash, and by the config class itself. On the next {@link ConfigLoader#load()}
+ *     the snapshot is memory mapped. A config is decoded from the snapshot instead of parsed from its file when:
+ *     <ul>
+ *         <li>the file has the same size and modification time, and wasn't modified right before it was last
+ *         checked (timestamps are too coarse to tell such changes apart). The file isn't even read.</li>
+ *         <li>or the file has the same content hash, for example because it was only touched.</li>
+ *     </ul>
+ *     An entry is never used if the config class changed since, because its defaults may have.
+ * </p>
+ * <p>
+ *     The snapshot is only a cache: if it is missing, corrupt or outdated the files are simply parsed, and if it
+ *     can't be written the failure is only reported to {@link truenotzero.smart_config.api.ConfigMetrics#snapshotFailed
+ *     ConfigMetrics}.
+ * </p>
+ *
+ * @see ConfigLoader#setSnapshotCache(SnapshotCache)
+ */
+public final class SnapshotCache {
+    private static final int MAGIC = 0x53435331; // SCS1
+    private static final long MTIME_GRANULARITY_MILLIS = 2000;
+
+    /**
+     * A config in the snapshot
+     */
+    static final class Entry {
+        private final String type;
+        private final byte[] fingerprint;
+        private final long size;
+        private final long lastModified;
+        private final long checkedAt;
+        private final byte[] digest;
+        private final ByteBuffer payload;
+
+        private Entry(String type, byte[] fingerprint, long size, long lastModified, long checkedAt, byte[] digest,
+                      ByteBuffer payload) {
+            this.type = type;
+            this.fingerprint = fingerprint;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.checkedAt = checkedAt;
+            this.digest = digest;
+            this.payload = payload;
+        }
+
+        byte[] digest() {
+            return digest;
+        }
+    }
+
+    private final Path file;
+    private final Translator translator;
+    private final Map<Class<?>, byte[]> fingerprints;
+    private final Map<String, Entry> current;
+    private volatile Map<String, Entry> previous;
+    private volatile boolean changed;
+
+    /**
+     * @param file Where to keep the snapshot
+     * @param translator A binary translator to encode configs with
+     * @throws IllegalArgumentException If the translator is not binary
+     */
+    public SnapshotCache(Path file, Translator translator) {
+        if (!translator.isBinary()) {
+            throw new IllegalArgumentException("A snapshot needs a binary translator");
+        }
+        this.file = file;
+        this.translator = translator;
+        this.fingerprints = new ConcurrentHashMap<>();
+        this.current = new ConcurrentHashMap<>();
+        this.previous = Collections.emptyMap();
+    }
+
+    /**
+     * Get the path of the snapshot file
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Map the snapshot of the last run, before loading
+     */
+    void open() {
+        this.current.clear();
+        this.changed = false;
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            this.previous = index(buffer);
+        } catch (NoSuchFileException e) {
+            this.previous = Collections.emptyMap();
+        } catch (IOException | RuntimeException e) {
+            // not worth failing over, the files will be parsed
+            this.previous = Collections.emptyMap();
+        }
+    }
+
+    private static Map<String, Entry> index(ByteBuffer buffer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+        if (in.readInt() != MAGIC) {
+            return Collections.emptyMap();
+        }
+        int count = in.readInt();
+        Map<String, Entry> entries = new HashMap<>();
+        for (int i = 0; i < count; ++i) {
+            String path = in.readUTF();
+            String type = in.readUTF();
+            byte[] fingerprint = readBytes(in);
+            long size = in.readLong();
+            long lastModified = in.readLong();
+            long checkedAt = in.readLong();
+            byte[] digest = readBytes(in);
+            int length = in.readInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            ByteBuffer payload = buffer.slice();
+            payload.limit(length);
+            buffer.position(buffer.position() + length);
+            entries.put(path, new Entry(type, fingerprint, size, lastModified, checkedAt, digest, payload));
+        }
+        return entries;
+    }
+
+    /**
+     * Find an entry whose file has the same size and modification time
+     *
+     * @return The entry, or {@code null} if there is none that can be trusted without reading the file
+     */
+    Entry fresh(String path, Class<?> type, long size, long lastModified) {
+        Entry e = this.find(path, type);
+        if (e == null || size < 0 || lastModified < 0 || e.size != size || e.lastModified != lastModified) {
+            return null;
+        }
+        // A file modified right before it was checked may have changed again within the same timestamp
+        if (e.lastModified + MTIME_GRANULARITY_MILLIS >= e.checkedAt) {
+            return null;
+        }
+        return e;
+    }
+
+    /**
+     * Find an entry whose file has the same content
+     *
+     * @return The entry, or {@code null} if there is none
+     */
+    Entry matching(String path, Class<?> type, byte[] digest) {
+        Entry e = this.find(path, type);
+        return e != null && Arrays.equals(e.digest, digest) ? e : null;
+    }
+
+    private Entry find(String path, Class<?> type) {
+        Entry e = this.previous.get(path);
+        if (e == null || !e.type.equals(type.getName()) || !Arrays.equals(e.fingerprint, this.fingerprint(type))) {
+            return null;
+        }
+        return e;
+    }
+
+    /**
+     * Decode the config held by an entry
+     */
+    <T> T decode(Entry e, Class<T> type) throws IOException {
+        return this.translator.read(e.payload.duplicate(), type);
+    }
+
+    /**
+     * Carry an entry of the last run over, with the file's current metadata
+     */
+    void keep(String path, Entry e, long size, long lastModified, long checkedAt) {
+        if (e.size != size || e.lastModified != lastModified) {
+            this.changed = true;
+        }
+        this.current.put(path, new Entry(e.type, e.fingerprint, size, lastModified, checkedAt, e.digest, e.payload));
+    }
+
+    /**
+     * Add a freshly parsed config
+     */
+    <T> void record(String path, Class<T> type, long size, long lastModified, long checkedAt, byte[] digest,
+                    T instance) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        this.translator.write(payload, type, instance);
+        Entry e = new Entry(type.getName(), this.fingerprint(type), size, lastModified, checkedAt, digest,
+                ByteBuffer.wrap(payload.toByteArray()));
+        this.current.put(path, e);
+        this.changed = true;
+    }
+
+    /**
+     * Write the snapshot, if anything changed since the last run
+     * <p>
+     *     The file is replaced atomically, so a crash never leaves a half written snapshot behind. Either way the
+     *     entries of this run are released afterwards, {@link #open()} starts over.
+     * </p>
+     */
+    void save() throws IOException {
+        if (!this.changed && this.current.keySet().equals(this.previous.keySet())) {
+            this.release();
+            return;
+        }
+
+        try {
+            AtomicFiles.replace(this.file, tmp -> {
+                this.write(tmp);
+                // kept entries point into the mapped previous snapshot, which some platforms won't replace while mapped
+                this.release();
+            });
+        } finally {
+            this.release();
+        }
+    }
+
+    private void write(Path tmp) throws IOException {
+        try (OutputStream os = Files.newOutputStream(tmp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 64 * 1024));
+            out.writeInt(MAGIC);
+            out.writeInt(this.current.size());
+            for (Map.Entry<String, Entry> entry : this.current.entrySet()) {
+                Entry e = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeUTF(e.type);
+                writeBytes(out, e.fingerprint);
+                out.writeLong(e.size);
+                out.writeLong(e.lastModified);
+                out.writeLong(e.checkedAt);
+                writeBytes(out, e.digest);
+                ByteBuffer payload = e.payload.duplicate();
+                out.writeInt(payload.remaining());
+                byte[] chunk = new byte[Math.min(payload.remaining(), 8192)];
+                while (payload.hasRemaining()) {
+                    int n = Math.min(chunk.length, payload.remaining());
+                    payload.get(chunk, 0, n);
+                    out.write(chunk, 0, n);
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Drop every entry, and with them the payloads mapped from the previous snapshot
+     */
+    private void release() {
+        this.previous = Collections.emptyMap();
+        this.current.clear();
+        this.changed = false;
+    }
+
+    /**
+     * Hash the class files of a config class and its superclasses, to notice when the class changes
+     */
+    private byte[] fingerprint(Class<?> type) {
+        return this.fingerprints.computeIfAbsent(type, t -> {
+            MessageDigest digest = ConfigContent.newDigest();
+            byte[] chunk = new byte[8192];
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                digest.update(c.getName().getBytes(StandardCharsets.UTF_8));
+                String resource = c.getName().replace('.', '/') + ".class";
+                ClassLoader loader = c.getClassLoader() == null ? ClassLoader.getSystemClassLoader() : c.getClassLoader();
+                try (InputStream in = loader.getResourceAsStream(resource)) {
+                    if (in == null) {
+                        continue;
+                    }
+                    int n;
+                    while ((n = in.read(chunk)) >= 0) {
+                        digest.update(chunk, 0, n);
+                    }
+                } catch (IOException e) {
+                    // only the name then
+                }
+            }
+            return digest.digest();
+        });
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readUnsignedShort()];
+        in.readFully(b);
+        return b;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] b) throws IOException {
+        out.writeShort(b.length);
+        out.write(b);
+    }
+
+    /**
+     * Reads a {@link ByteBuffer}, advancing its position
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+}
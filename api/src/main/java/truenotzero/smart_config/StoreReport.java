@@ -0,0 +1,42 @@
+package truenotzero.smart_config;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The outcome of {@link ConfigLoader#store()}
+ * <p>
+ *     A config is only written if its serialized form differs from what is known to be on disk; the others are
+ *     skipped. So are configs that hold no instance, like {@link ConfigLoader#setLazy(boolean) lazy} ones that
+ *     were never accessed.
+ * </p>
+ */
+public final class StoreReport {
+    private final Set<Class<?>> written;
+    private final Set<Class<?>> skipped;
+
+    StoreReport(Set<Class<?>> written, Set<Class<?>> skipped) {
+        this.written = Collections.unmodifiableSet(new HashSet<>(written));
+        this.skipped = Collections.unmodifiableSet(new HashSet<>(skipped));
+    }
+
+    /**
+     * @return The configs whose files were rewritten
+     */
+    public Set<Class<?>> written() {
+        return written;
+    }
+
+    /**
+     * @return The configs that were unchanged or never loaded, and so not written
+     */
+    public Set<Class<?>> skipped() {
+        return skipped;
+    }
+
+    @Override
+    public String toString() {
+        return "StoreReport{written=" + written.size() + ", skipped=" + skipped.size() + '}';
+    }
+}
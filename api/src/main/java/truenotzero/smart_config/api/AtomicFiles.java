@@ -0,0 +1,65 @@
+package truenotzero.smart_config.api;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Replaces files so that readers see either the old or the new content, never half of it
+ * <p>
+ *     The content is written to a temp file next to the target and moved over it once complete. Where the file
+ *     system can't move atomically, the move still replaces the target in one step, it just isn't guaranteed to
+ *     survive a crash.
+ * </p>
+ */
+public final class AtomicFiles {
+    private AtomicFiles() {}
+
+    /**
+     * Writes the new content of a file
+     */
+    @FunctionalInterface
+    public interface Content {
+        /**
+         * @param tmp The empty temp file to write to
+         * @throws IOException If there was an error while writing
+         */
+        void writeTo(Path tmp) throws IOException;
+    }
+
+    /**
+     * Replace a file, creating it and its directories if needed
+     *
+     * @param target The file to replace
+     * @param content Writes the new content
+     * @throws IOException If the content could not be written or moved in place, the target is left as it was
+     */
+    public static void replace(Path target, Content content) throws IOException {
+        Path file = target.toAbsolutePath();
+        Files.createDirectories(file.getParent());
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            content.writeTo(tmp);
+            move(tmp, file);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Move a complete file over another, atomically where the file system can
+     *
+     * @param source The file to move, in the same directory as {@code target}
+     * @param target The file to replace
+     * @throws IOException If the file could not be moved
+     */
+    public static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -16,6 +16,12 @@ public interface ConfigClassLocator {
      */
     Class<Config> CONFIG_ANNOTATION = Config.class;
 
+    /**
+     * Classpath resource listing the binary name of every {@link Config} class, one per line.
+     * It is written at compile time by the {@code processor} module.
+     */
+    String INDEX_RESOURCE = "META-INF/smart_config/configs.index";
+
     /**
      * Locate all classes with the {@link Config} annotation.<br/>
      * Can be used to specify custom search rules
@@ -1,5 +1,7 @@
 package truenotzero.smart_config.api;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.io.Writer;
 
@@ -25,16 +27,82 @@ public interface ConfigFile {
     boolean create();
 
     /**
-     * Get a {@link Writer} for this file
+     * Get the size of this file
+     * <p>Used together with {@link #lastModified()} to tell cheaply whether a file changed.</p>
+     *
+     * @return The size in bytes, or {@code -1} if unknown (the default)
+     */
+    default long size() {
+        return -1;
+    }
+
+    /**
+     * Get the time this file was last modified
+     *
+     * @return The time in milliseconds since the epoch, or {@code -1} if unknown (the default)
+     */
+    default long lastModified() {
+        return -1;
+    }
+
+    /**
+     * Get a {@link Writer} for this file. The caller is responsible for closing it.
      *
      * @return The appropriate {@link Writer}
      */
     Writer writer();
 
     /**
-     * Get a {@link Reader} for this file
+     * Get a {@link Reader} for this file. The caller is responsible for closing it.
      *
      * @return The appropriate {@link Reader}
      */
     Reader reader();
+
+    /**
+     * Replace the whole content of this file
+     * <p>
+     *     Implementations should make this atomic, so that a crash leaves either the old or the new content behind
+     *     and never a truncated file. The default implementation simply writes through {@link #writer()}.
+     * </p>
+     *
+     * @param content The characters to write
+     * @param offset The offset of the first character
+     * @param length The number of characters
+     * @throws IOException If there was an error while writing
+     */
+    default void replace(char[] content, int offset, int length) throws IOException {
+        try (Writer writer = this.writer()) {
+            writer.write(content, offset, length);
+        }
+    }
+
+    /**
+     * Get an {@link InputStream} over the raw bytes of this file, for binary {@link Translator}s. The caller is
+     * responsible for closing it.
+     * <p>The default implementation does not support binary content.</p>
+     *
+     * @return The appropriate {@link InputStream}
+     * @see Translator#isBinary()
+     */
+    default InputStream inputStream() {
+        throw new UnsupportedOperationException(this.getClass().getName() + " does not support binary content");
+    }
+
+    /**
+     * Replace the whole content of this file with raw bytes, for binary {@link Translator}s
+     * <p>
+     *     The same atomicity rules as {@link #replace(char[], int, int)} apply. The default implementation does
+     *     not support binary content.
+     * </p>
+     *
+     * @param content The bytes to write
+     * @param offset The offset of the first byte
+     * @param length The number of bytes
+     * @throws IOException If there was an error while writing
+     * @see Translator#isBinary()
+     */
+    default void replace(byte[] content, int offset, int length) throws IOException {
+        throw new UnsupportedOperationException(this.getClass().getName() + " does not support binary content");
+    }
 }
@@ -0,0 +1,128 @@
+package truenotzero.smart_config.api;
+
+import java.nio.file.Path;
+
+/**
+ * Receives the timings and sizes of {@link truenotzero.smart_config.ConfigLoader} operations
+ * <p>
+ *     Every operation on a config class ends in exactly one call: {@link #completed}, {@link #skipped} or
+ *     {@link #failed}. Calls may come from several threads at once, and are made on the hot path, so they should be
+ *     cheap and must not block.
+ * </p>
+ * <p>
+ *     Sizes are the length of the content read or written: in chars for text translators, in bytes for
+ *     {@link Translator#isBinary() binary} ones.
+ * </p>
+ *
+ * @see truenotzero.smart_config.ConfigLoader#setMetrics(ConfigMetrics)
+ * @see truenotzero.smart_config.ConfigStats
+ */
+public interface ConfigMetrics {
+    /**
+     * Does nothing, the default
+     */
+    ConfigMetrics NONE = new ConfigMetrics() {
+    };
+
+    /**
+     * An operation on a single config class
+     */
+    enum Operation {
+        /** {@link truenotzero.smart_config.ConfigLoader#load(Class)}, alone or as part of a bulk load */
+        LOAD,
+        /** {@link truenotzero.smart_config.ConfigLoader#reload(Class)} */
+        RELOAD,
+        /** {@link truenotzero.smart_config.ConfigLoader#store(Class)}, alone or as part of a bulk store */
+        STORE,
+        /** {@link truenotzero.smart_config.ConfigLoader#createDefault(Class)} */
+        CREATE_DEFAULT
+    }
+
+    /**
+     * The classpath was scanned
+     *
+     * @param classes How many config classes were found
+     * @param nanos How long it took
+     */
+    default void scanned(int classes, long nanos) {
+    }
+
+    /**
+     * A config was read or written
+     *
+     * @param operation What was done
+     * @param type The config's class
+     * @param size The size of the content. 0 if it was loaded from a {@link truenotzero.smart_config.SnapshotCache}
+     *             without reading its file.
+     * @param nanos How long it took
+     */
+    default void completed(Operation operation, Class<?> type, long size, long nanos) {
+    }
+
+    /**
+     * Nothing was done because the content didn't change: a {@link Operation#RELOAD} of an unchanged file, or a
+     * {@link Operation#STORE} of an unchanged config
+     *
+     * @param operation What was skipped
+     * @param type The config's class
+     * @param size The size of the content that was compared
+     * @param nanos How long it took to find out
+     */
+    default void skipped(Operation operation, Class<?> type, long size, long nanos) {
+    }
+
+    /**
+     * An operation failed, for example because the file couldn't be parsed
+     *
+     * @param operation What failed
+     * @param type The config's class
+     * @param error Why, as thrown to the caller
+     * @param nanos How long it took to fail
+     */
+    default void failed(Operation operation, Class<?> type, Throwable error, long nanos) {
+    }
+
+    /**
+     * Change events for a config's {@link truenotzero.smart_config.ConfigListener listeners} were dropped, because
+     * the event executor rejected the task that would have delivered them
+     *
+     * @param type The config's class
+     * @param error Why, usually a {@link java.util.concurrent.RejectedExecutionException}
+     */
+    default void eventsDropped(Class<?> type, Throwable error) {
+    }
+
+    /**
+     * The {@link truenotzero.smart_config.SnapshotCache snapshot} could not be written after a load. The load
+     * itself succeeded; the next one parses the files the snapshot would have covered.
+     *
+     * @param file The snapshot file
+     * @param error Why
+     */
+    default void snapshotFailed(Path file, Throwable error) {
+    }
+
+    /**
+     * Also emit JDK Flight Recorder events, if this JVM supports them
+     * <p>
+     *     Every call becomes a {@code truenotzero.smart_config.*} event. Like all JFR events they cost next to
+     *     nothing unless a recording enables them.
+     * </p>
+     *
+     * @param metrics The metrics to pass every call on to
+     * @return A {@link ConfigMetrics} that emits the events and calls {@code metrics}, or {@code metrics} itself if
+     * JFR isn't available
+     */
+    static ConfigMetrics withJfr(ConfigMetrics metrics) {
+        ClassLoader loader = ConfigMetrics.class.getClassLoader();
+        try {
+            Class.forName("jdk.jfr.Event", false, loader);
+            // compiled apart from the rest, see JfrMetrics
+            return (ConfigMetrics) Class.forName("truenotzero.smart_config.JfrMetrics", true, loader)
+                    .getConstructor(ConfigMetrics.class)
+                    .newInstance(metrics);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return metrics;
+        }
+    }
+}
@@ -1,11 +1,19 @@
 package truenotzero.smart_config.api;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 
 /**
  * Translates a format (JSON, YAML, Properties, etc) to text using readers and writers
+ * <p>
+ *     Binary formats say so with {@link #isBinary()} and are used through the {@link InputStream} and
+ *     {@link OutputStream} methods instead.
+ * </p>
  *
  * @see Reader
  * @see Writer
@@ -34,4 +42,87 @@ public interface Translator {
      * @see Writer
      */
     <T> void write(Writer writer, Class<T> type, T t) throws IOException;
+
+    /**
+     * Check whether this translator encodes to bytes instead of text
+     * <p>
+     *     Binary translators are read and written through {@link #read(InputStream, Class)} and
+     *     {@link #write(OutputStream, Class, Object)}, with files opened through
+     *     {@link ConfigFile#inputStream()} and {@link ConfigFile#replace(byte[], int, int)}.
+     * </p>
+     *
+     * @return {@code true} if binary, {@code false} (the default) if textual
+     */
+    default boolean isBinary() {
+        return false;
+    }
+
+    /**
+     * Convert binary data into an object
+     *
+     * @param in The stream to fetch object data from
+     * @param type The {@link Class} representing the type of the object being read
+     * @param <T> The type of the object being decoded
+     * @return The decoded object
+     * @throws IOException If there was an error while reading
+     * @see #isBinary()
+     */
+    default <T> T read(InputStream in, Class<T> type) throws IOException {
+        throw new UnsupportedOperationException(this.getClass().getName() + " is not binary");
+    }
+
+    /**
+     * Convert binary data already in memory into an object
+     * <p>The loader reads binary files whole, so translators that decode from an array can skip the stream.</p>
+     *
+     * @param buf The buffer holding the object data
+     * @param offset Where the data starts in {@code buf}
+     * @param length How many bytes of data there are
+     * @param type The {@link Class} representing the type of the object being read
+     * @param <T> The type of the object being decoded
+     * @return The decoded object
+     * @throws IOException If there was an error while reading
+     * @see #read(InputStream, Class)
+     */
+    default <T> T read(byte[] buf, int offset, int length, Class<T> type) throws IOException {
+        return this.read(new ByteArrayInputStream(buf, offset, length), type);
+    }
+
+    /**
+     * Convert binary data held by a buffer into an object
+     * <p>
+     *     Used for data that is memory mapped, like the {@link truenotzero.smart_config.SnapshotCache snapshot}.
+     *     Translators that can decode from a {@link ByteBuffer} should, the default copies the data of buffers
+     *     that aren't backed by an array.
+     * </p>
+     *
+     * @param buf The data, from its position to its limit. Neither is changed.
+     * @param type The {@link Class} representing the type of the object being read
+     * @param <T> The type of the object being decoded
+     * @return The decoded object
+     * @throws IOException If there was an error while reading
+     * @see #read(byte[], int, int, Class)
+     */
+    default <T> T read(ByteBuffer buf, Class<T> type) throws IOException {
+        if (buf.hasArray()) {
+            return this.read(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining(), type);
+        }
+        byte[] bytes = new byte[buf.remaining()];
+        buf.duplicate().get(bytes);
+        return this.read(bytes, 0, bytes.length, type);
+    }
+
+    /**
+     * Convert an object into binary data
+     *
+     * @param out The stream to write object data into
+     * @param type The {@link Class} representing the type of the object being written
+     * @param t The object to encode
+     * @param <T> The type of the object to encode
+     * @throws IOException If there was an error while writing
+     * @see #isBinary()
+     */
+    default <T> void write(OutputStream out, Class<T> type, T t) throws IOException {
+        throw new UnsupportedOperationException(this.getClass().getName() + " is not binary");
+    }
 }
@@ -9,12 +9,25 @@ import org.mockito.MockitoAnnotations;
 import truenotzero.smart_config.api.ConfigClassLocator;
 import truenotzero.smart_config.api.ConfigFile;
 import truenotzero.smart_config.api.ConfigFileProvider;
+import truenotzero.smart_config.api.ConfigMetrics;
 import truenotzero.smart_config.api.Translator;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
@@ -35,7 +48,7 @@ public class ConfigLoaderTest {
 
 
     @Before
-    public void before() {
+    public void before() throws IOException {
         MockitoAnnotations.initMocks(this);
 
         configClasses = new HashSet<>();
@@ -54,6 +67,7 @@ public class ConfigLoaderTest {
         });
 
         when(configFile.reader()).thenReturn(reader);
+        when(reader.read(any(char[].class), anyInt(), anyInt())).thenReturn(-1);
         when(configFile.writer()).thenReturn(writer);
 
         cl = new ConfigLoader(classLocator, fileProvider, translator);
@@ -77,6 +91,19 @@ public class ConfigLoaderTest {
         assertEquals(names, cl.scannedConfigNames());
     }
 
+    @Test
+    public void scanReportsEveryInvalidClass() {
+        configClasses.add(NoInstance.class);
+        configClasses.add(BadInstanceType.class);
+        try {
+            cl.scan();
+            fail("expected " + IllegalStateException.class.getName());
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("2 invalid config class(es)"));
+            assertEquals(1, e.getSuppressed().length);
+        }
+    }
+
     @Test
     public void verifyExistentFile() {
         when(configFile.exists()).thenReturn(true);
@@ -145,6 +172,402 @@ public class ConfigLoaderTest {
         assertEquals(expectedJson, this.getWriteArg());
     }
 
+    @Test
+    public void storeSkipsUnchangedContent() throws IOException {
+        DummyConfig.VALUES = new DummyConfig();
+        doAnswer(e -> {
+            Writer out = e.getArgument(0);
+            DummyConfig it = e.getArgument(2);
+            out.write("{\"foo\":" + it.foo + "}");
+            return null;
+        }).when(translator).write(any(Writer.class), eq(DummyConfig.class), any(DummyConfig.class));
+
+        assertTrue(cl.store(DummyConfig.class));
+        StoreReport report = cl.store();
+        assertEquals(configClasses, report.skipped());
+        assertTrue(report.written().isEmpty());
+        verify(configFile, times(1)).replace(any(char[].class), anyInt(), anyInt());
+
+        DummyConfig.VALUES.foo = 1;
+        assertTrue(cl.store(DummyConfig.class));
+        verify(configFile, times(2)).replace(any(char[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void storeOnlyDirtyConfigs() throws IOException {
+        DummyConfig.VALUES = new DummyConfig();
+        doAnswer(e -> {
+            e.<Writer>getArgument(0).write("{\"foo\":" + e.<DummyConfig>getArgument(2).foo + "}");
+            return null;
+        }).when(translator).write(any(Writer.class), eq(DummyConfig.class), any(DummyConfig.class));
+
+        cl.setDirtyTracking(ConfigLoader.DirtyTracking.FINGERPRINT);
+        assertEquals(configClasses, cl.store().written());
+        assertEquals(configClasses, cl.store().skipped());
+        // the clean config wasn't even serialized
+        verify(translator, times(1)).write(any(Writer.class), eq(DummyConfig.class), any(DummyConfig.class));
+        DummyConfig.VALUES.foo = 2;
+        assertEquals(configClasses, cl.store().written());
+
+        cl.setDirtyTracking(ConfigLoader.DirtyTracking.EXPLICIT);
+        cl.store(DummyConfig.class);
+        DummyConfig.VALUES.foo = 1;
+        assertEquals(configClasses, cl.store().skipped());
+        cl.markDirty(DummyConfig.class);
+        assertEquals(configClasses, cl.store().written());
+        verify(configFile, times(3)).replace(any(char[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void fingerprintTellsCollidingStringsApart() throws IOException {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        assertNotEquals(ConfigFingerprint.of(Arrays.asList("AaAa")), ConfigFingerprint.of(Arrays.asList("BBBB")));
+
+        DummyConfig.VALUES = new DummyConfig();
+        DummyConfig.VALUES.bar = "Aa";
+        doAnswer(e -> {
+            e.<Writer>getArgument(0).write("{\"bar\":\"" + e.<DummyConfig>getArgument(2).bar + "\"}");
+            return null;
+        }).when(translator).write(any(Writer.class), eq(DummyConfig.class), any(DummyConfig.class));
+
+        cl.setDirtyTracking(ConfigLoader.DirtyTracking.FINGERPRINT);
+        assertEquals(configClasses, cl.store().written());
+        DummyConfig.VALUES.bar = "BB";
+        assertEquals(configClasses, cl.store().written());
+    }
+
+    @Test
+    public void refPublishesLoadedInstance() throws IOException {
+        ConfigRef<DummyConfig> ref = cl.ref(DummyConfig.class);
+        assertSame(ref, cl.ref(DummyConfig.class));
+        long version = ref.version();
+
+        DummyConfig loaded = new DummyConfig();
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenReturn(loaded);
+        cl.load(DummyConfig.class);
+
+        assertSame(loaded, ref.get());
+        assertSame(loaded, DummyConfig.VALUES);
+        assertEquals(version + 1, ref.version());
+        assertEquals(version + 1, ref.snapshot().version());
+    }
+
+    @Test
+    public void refSurvivesRescan() throws IOException {
+        ConfigRef<DummyConfig> ref = cl.ref(DummyConfig.class);
+        when(configFile.exists()).thenReturn(true);
+        cl.init();
+
+        DummyConfig loaded = new DummyConfig();
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenReturn(loaded);
+        cl.load();
+
+        assertSame(ref, cl.ref(DummyConfig.class));
+        assertSame(loaded, ref.get());
+    }
+
+    @Test
+    public void lazyLoadsOnFirstAccessOnce() throws Exception {
+        DummyConfig loaded = new DummyConfig();
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenReturn(loaded);
+        when(configFile.exists()).thenReturn(true);
+        cl.setLazy(true);
+        cl.init();
+        cl.load();
+        verify(translator, never()).read(any(Reader.class), any());
+
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<DummyConfig>> gets = new ArrayList<>();
+            for (int i = 0; i < 8; ++i) {
+                gets.add(threads.submit(() -> cl.get(DummyConfig.class)));
+            }
+            for (Future<DummyConfig> get : gets) {
+                assertSame(loaded, get.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+        assertSame(loaded, DummyConfig.VALUES);
+        verify(translator, times(1)).read(any(Reader.class), eq(DummyConfig.class));
+
+        // accessed, so reloaded
+        cl.load();
+        verify(translator, times(2)).read(any(Reader.class), eq(DummyConfig.class));
+    }
+
+    @Test
+    public void lazyStoreLeavesUntouchedFilesAlone() throws Exception {
+        DummyConfig.VALUES = null;
+        when(configFile.exists()).thenReturn(true);
+        cl.setLazy(true);
+        cl.setDirtyTracking(ConfigLoader.DirtyTracking.FINGERPRINT);
+        cl.init();
+
+        assertEquals(configClasses, cl.store().skipped());
+        assertEquals(configClasses, cl.storeAsync(ForkJoinPool.commonPool()).get().skipped());
+        assertFalse(cl.store(DummyConfig.class));
+        cl.setDirtyTracking(ConfigLoader.DirtyTracking.NONE);
+        assertEquals(configClasses, cl.store().skipped());
+        // the file on disk was never read, so it must not be overwritten
+        verify(translator, never()).write(any(Writer.class), any(), any());
+        verify(configFile, never()).replace(any(char[].class), anyInt(), anyInt());
+        verify(configFile, never()).writer();
+    }
+
+    @Test
+    public void metricsReportEveryOutcome() throws IOException {
+        ConfigStats stats = new ConfigStats();
+        cl.setMetrics(stats);
+        cl.scan();
+        assertEquals(1, stats.scans().count());
+        assertEquals(1, stats.scannedClasses());
+
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenReturn(new DummyConfig());
+        cl.load(DummyConfig.class);
+        assertFalse(cl.reload(DummyConfig.class));
+        assertEquals(1, stats.count(ConfigMetrics.Operation.LOAD, ConfigStats.Outcome.COMPLETED));
+        assertEquals(1, stats.count(ConfigMetrics.Operation.RELOAD, ConfigStats.Outcome.SKIPPED));
+
+        doAnswer(e -> {
+            e.<Writer>getArgument(0).write("{}");
+            return null;
+        }).when(translator).write(any(Writer.class), eq(DummyConfig.class), any(DummyConfig.class));
+        assertTrue(cl.store(DummyConfig.class));
+        assertFalse(cl.store(DummyConfig.class));
+        assertEquals(1, stats.count(ConfigMetrics.Operation.STORE, ConfigStats.Outcome.COMPLETED));
+        assertEquals(2, stats.size(ConfigMetrics.Operation.STORE, ConfigStats.Outcome.COMPLETED));
+        assertEquals(1, stats.count(ConfigMetrics.Operation.STORE, ConfigStats.Outcome.SKIPPED));
+
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenThrow(new IOException("bad json"));
+        try {
+            cl.load(DummyConfig.class);
+            fail("expected " + IOException.class.getName());
+        } catch (IOException e) {
+            assertEquals(1, stats.count(ConfigMetrics.Operation.LOAD, ConfigStats.Outcome.FAILED));
+        }
+        ConfigStats.Histogram loads = stats.latency(ConfigMetrics.Operation.LOAD, ConfigStats.Outcome.COMPLETED);
+        assertTrue(loads.percentileNanos(100) >= loads.totalNanos());
+    }
+
+    @Test
+    public void jfrMetricsLoadReflectivelyAndPassCallsOn() throws IOException {
+        ConfigStats stats = new ConfigStats();
+        ConfigMetrics jfr = ConfigMetrics.withJfr(stats);
+        // the tests run on a JVM with JFR, and the jfr source set is on their classpath
+        assertEquals("truenotzero.smart_config.JfrMetrics", jfr.getClass().getName());
+        cl.setMetrics(jfr);
+        cl.scan();
+        assertEquals(1, stats.scans().count());
+    }
+
+    @Test
+    public void rejectedEventsAreReportedNotThrown() throws IOException {
+        ConfigStats stats = new ConfigStats();
+        cl.setMetrics(stats);
+        cl.setEventExecutor(task -> {
+            throw new RejectedExecutionException("shut down");
+        });
+        cl.subscribe(DummyConfig.class, e -> fail("not delivered"));
+
+        DummyConfig loaded = new DummyConfig();
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenReturn(loaded);
+        cl.load(DummyConfig.class);
+
+        assertSame(loaded, cl.get(DummyConfig.class));
+        assertEquals(1, stats.count(ConfigMetrics.Operation.LOAD, ConfigStats.Outcome.COMPLETED));
+        assertEquals(1, stats.droppedEvents());
+    }
+
+    @Test
+    public void listenerErrorDoesNotStallItsSubscription() throws IOException {
+        cl.setEventExecutor(task -> {
+            try {
+                task.run();
+            } catch (AssertionError e) {
+                // the listener's, thrown through the executor
+            }
+        });
+        List<Integer> delivered = new ArrayList<>();
+        cl.subscribe(DummyConfig.class, e -> {
+            delivered.add(e.value().foo);
+            if (delivered.size() == 1) {
+                throw new AssertionError("listener bug");
+            }
+        });
+
+        DummyConfig first = new DummyConfig();
+        first.foo = 1;
+        DummyConfig second = new DummyConfig();
+        second.foo = 2;
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenReturn(first, second);
+        cl.load(DummyConfig.class);
+        cl.load(DummyConfig.class);
+
+        assertEquals(Arrays.asList(1, 2), delivered);
+    }
+
+    @Test
+    public void listenersGetCoalescedChanges() throws Exception {
+        DummyConfig[] versions = new DummyConfig[4];
+        for (int i = 0; i < versions.length; ++i) {
+            versions[i] = new DummyConfig();
+            versions[i].foo = i;
+        }
+        versions[3].bar = "changed";
+        when(translator.read(any(Reader.class), eq(DummyConfig.class)))
+                .thenReturn(versions[0], versions[1], versions[2], versions[3]);
+        cl.setReloadMode(ConfigLoader.ReloadMode.PATCH);
+        DummyConfig.VALUES = null;
+
+        BlockingQueue<ConfigChangeEvent<DummyConfig>> received = new LinkedBlockingQueue<>();
+        BlockingQueue<ConfigChangeEvent<DummyConfig>> barChanges = new LinkedBlockingQueue<>();
+        ExecutorService events = Executors.newSingleThreadExecutor();
+        try {
+            cl.setEventExecutor(events);
+            CountDownLatch busy = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            cl.subscribe(DummyConfig.class, e -> {
+                received.add(e);
+                busy.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            cl.subscribe(DummyConfig.class, "bar", barChanges::add);
+
+            cl.load(DummyConfig.class);
+            assertTrue(busy.await(5, TimeUnit.SECONDS));
+            // the listener is stuck, these pile up without blocking the loads
+            cl.load(DummyConfig.class);
+            cl.load(DummyConfig.class);
+            cl.load(DummyConfig.class);
+            release.countDown();
+
+            ConfigChangeEvent<DummyConfig> first = received.poll(5, TimeUnit.SECONDS);
+            ConfigChangeEvent<DummyConfig> rest = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(rest);
+            assertEquals(1, first.changeSets().size());
+            assertEquals(3, rest.changeSets().size());
+            assertTrue(rest.touches("foo"));
+            assertEquals(3, rest.value().foo);
+            assertEquals("changed", rest.value().bar);
+            assertEquals(cl.ref(DummyConfig.class).version(), rest.version());
+        } finally {
+            events.shutdown();
+            assertTrue(events.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        assertTrue(received.isEmpty());
+        // the first load replaced the whole config, the next two only changed foo
+        int barLoads = 0;
+        for (ConfigChangeEvent<DummyConfig> e : barChanges) {
+            assertTrue(e.touches("bar"));
+            barLoads += e.changeSets().size();
+        }
+        assertEquals(2, barLoads);
+    }
+
+    @Test
+    public void parallelLoad() throws IOException {
+        DummyConfig loaded = new DummyConfig();
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenReturn(loaded);
+
+        ConfigLoader parallel = new ConfigLoader(classLocator, fileProvider, translator, ForkJoinPool.commonPool());
+        parallel.scan();
+        parallel.load();
+        assertSame(loaded, DummyConfig.VALUES);
+    }
+
+    @Test
+    public void parallelLoadAggregatesFailures() throws IOException {
+        IOException cause = new IOException("bad json");
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenThrow(cause);
+
+        ConfigLoader parallel = new ConfigLoader(classLocator, fileProvider, translator, ForkJoinPool.commonPool());
+        parallel.scan();
+        try {
+            parallel.load();
+            fail("expected " + ConfigException.class.getName());
+        } catch (ConfigException e) {
+            assertEquals(1, e.getFailures().size());
+            assertSame(cause, e.getFailures().get(DummyConfig.class));
+        }
+    }
+
+    @Test
+    public void asyncLoadAndStore() throws Exception {
+        DummyConfig loaded = new DummyConfig();
+        when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenReturn(loaded);
+        ExecutorService io = ConfigExecutors.newIoExecutor(2);
+        try {
+            assertSame(loaded, cl.loadAsync(DummyConfig.class, io).get());
+            cl.loadAsync(io).get();
+            assertFalse(cl.reloadAsync(DummyConfig.class, io).get());
+
+            // the mocked translator writes the same (empty) content that was loaded
+            StoreReport report = cl.storeAsync(io).get();
+            assertEquals(configClasses, report.skipped());
+            assertFalse(cl.storeAsync(DummyConfig.class, io).get());
+
+            IOException cause = new IOException("bad json");
+            when(translator.read(any(Reader.class), eq(DummyConfig.class))).thenThrow(cause);
+            try {
+                cl.loadAsync(io).get();
+                fail("expected " + ConfigException.class.getName());
+            } catch (ExecutionException e) {
+                assertSame(cause, ((ConfigException) e.getCause()).getFailures().get(DummyConfig.class));
+            }
+        } finally {
+            io.shutdown();
+        }
+    }
+
+    @Test
+    public void invalidReloadKeepsPreviousInstance() throws IOException {
+        ConstrainedConfig valid = new ConstrainedConfig();
+        ConstrainedConfig invalid = new ConstrainedConfig();
+        invalid.size = 0;
+        invalid.name = "Not A Name";
+        invalid.tags = new String[0];
+        invalid.nested.ratio = Double.NaN;
+        doReturn(configFile).when(fileProvider).get(ConstrainedConfig.PATH);
+        when(translator.read(any(Reader.class), eq(ConstrainedConfig.class))).thenReturn(valid, invalid);
+
+        cl.load(ConstrainedConfig.class);
+        ConfigRef<ConstrainedConfig> ref = cl.ref(ConstrainedConfig.class);
+        assertSame(valid, ref.get());
+        try {
+            cl.load(ConstrainedConfig.class);
+            fail("expected " + ConfigValidationException.class.getName());
+        } catch (ConfigValidationException e) {
+            assertEquals(ConstrainedConfig.class, e.getType());
+            assertEquals(Arrays.asList(
+                    "size: 0 is not in [1, 512]",
+                    "name: \"Not A Name\" does not match [a-z][a-z0-9-]*",
+                    "tags: size 0 is not in [1, 4]",
+                    "nested.ratio: NaN is not in [0, 1]"), e.getViolations());
+        }
+        assertSame(valid, ref.get());
+        assertSame(valid, ConstrainedConfig.INSTANCE);
+        assertEquals(1, ref.version());
+    }
+
+    // @Range on a String
+    @Config(DummyConfig.PATH)
+    static class MisplacedConstraint {
+        @Constraint.Range(min = 1)
+        String name;
+
+        @Config.Instance
+        static MisplacedConstraint INSTANCE;
+    }
+    @Test(expected = IllegalStateException.class)
+    public void verifyConstraintTypes() throws IOException {
+        cl.load(MisplacedConstraint.class);
+    }
+
     // no @Config
     private static class NoConfig { }
     @Test(expected = IllegalStateException.class)
@@ -245,3 +668,28 @@ class DummyConfig {
     @Config.Instance
     static DummyConfig VALUES;
 }
+
+@Config(ConstrainedConfig.PATH)
+class ConstrainedConfig {
+    static final String PATH = "cfg/constrained_config.json";
+
+    static class Nested {
+        @Constraint.Range(min = 0, max = 1)
+        double ratio = 0.5;
+    }
+
+    @Constraint.Range(min = 1, max = 512)
+    int size = 16;
+
+    @Constraint.NotNull
+    @Constraint.Pattern("[a-z][a-z0-9-]*")
+    String name = "workers";
+
+    @Constraint.Size(min = 1, max = 4)
+    String[] tags = {"a"};
+
+    Nested nested = new Nested();
+
+    @Config.Instance
+    static ConstrainedConfig INSTANCE;
+}
@@ -0,0 +1,84 @@
+plugins {
+	java
+}
+
+group = "truenotzero"
+version = "1.0-SNAPSHOT"
+
+java {
+	sourceCompatibility = JavaVersion.VERSION_1_8
+	targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile> {
+	// never depend on the platform charset
+	options.encoding = "UTF-8"
+}
+
+repositories {
+	jcenter()
+}
+
+// Config classes to benchmark with: package bench.cNNNN holds NNNN of them
+val configCounts = listOf(1, 10, 100, 1000)
+val generatedConfigs = layout.buildDirectory.dir("generated/sources/configs/java/main")
+
+val generateConfigs by tasks.registering {
+	description = "Generates the config classes the benchmarks load"
+	inputs.property("counts", configCounts)
+	outputs.dir(generatedConfigs)
+	doLast {
+		val root = generatedConfigs.get().asFile
+		root.deleteRecursively()
+		for (count in configCounts) {
+			val pkg = "c" + count.toString().padStart(4, '0')
+			val dir = File(root, "bench/$pkg")
+			dir.mkdirs()
+			for (i in 0 until count) {
+				File(dir, "Config$i.java").writeText("""
+					|package bench.$pkg;
+					|
+					|import truenotzero.smart_config.Config;
+					|
+					|import java.util.ArrayList;
+					|import java.util.Arrays;
+					|import java.util.List;
+					|
+					|@Config("bench/$pkg/config$i.json")
+					|public class Config$i {
+					|    public int id = $i;
+					|    public String name = "config-$i";
+					|    public double ratio = $i / 7.0;
+					|    public boolean enabled = ${i % 2 == 0};
+					|    public List<String> tags = new ArrayList<>(Arrays.asList("a", "b", "c"));
+					|
+					|    @Config.Instance
+					|    public static Config$i INSTANCE;
+					|}
+					|""".trimMargin())
+			}
+		}
+	}
+}
+
+sourceSets["main"].java.srcDir(generatedConfigs)
+tasks.named("compileJava") {
+	dependsOn(generateConfigs)
+}
+
+dependencies {
+	implementation(project(":api"))
+	implementation(project(":filejson"))
+	implementation("org.reflections:reflections:0.9.11")
+
+	implementation("org.openjdk.jmh:jmh-core:1.21")
+	annotationProcessor("org.openjdk.jmh:jmh-generator-annprocess:1.21")
+	annotationProcessor(project(":processor"))
+}
+
+tasks.register<JavaExec>("jmh") {
+	description = "Runs the JMH benchmarks with GC profiling. Pass more JMH options with -PjmhArgs=\"...\""
+	classpath = sourceSets["main"].runtimeClasspath
+	main = "org.openjdk.jmh.Main"
+	args = listOf("-prof", "gc") + (project.findProperty("jmhArgs")?.toString()?.split(" ")?.filter { it.isNotEmpty() } ?: emptyList())
+}
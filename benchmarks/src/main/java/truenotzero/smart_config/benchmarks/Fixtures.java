@@ -0,0 +1,66 @@
+package truenotzero.smart_config.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import truenotzero.smart_config.ConfigLoader;
+import truenotzero.smart_config.api.ConfigClassLocator;
+import truenotzero.smart_config.api.ConfigFileProvider;
+import truenotzero.smart_config.impl.JsonTranslator;
+import truenotzero.smart_config.impl.NioConfigFileProvider;
+import truenotzero.smart_config.impl.StreamingTypeAdapterFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * What the benchmarks share: the generated config classes, and a loader set up like {@code FilesystemJson} does
+ */
+final class Fixtures {
+    private Fixtures() {
+    }
+
+    /**
+     * Get the package holding {@code count} generated config classes (see {@code generateConfigs} in the build)
+     */
+    static String configPackage(int count) {
+        return String.format("bench.c%04d", count);
+    }
+
+    /**
+     * The same settings as {@code FilesystemJson}
+     */
+    static Gson gson() {
+        return new GsonBuilder()
+                .disableHtmlEscaping()
+                .serializeNulls()
+                .setLenient()
+                .setPrettyPrinting()
+                .registerTypeAdapterFactory(new StreamingTypeAdapterFactory())
+                .create();
+    }
+
+    /**
+     * Create a loader over a fresh directory, with every config file created
+     */
+    static ConfigLoader loader(ConfigClassLocator classLocator, Path directory) throws IOException {
+        return loader(classLocator, new NioConfigFileProvider(directory));
+    }
+
+    /**
+     * Create a loader over the given files, with every config file created
+     */
+    static ConfigLoader loader(ConfigClassLocator classLocator, ConfigFileProvider files) throws IOException {
+        ConfigLoader loader = new ConfigLoader(classLocator, files, new JsonTranslator(gson()));
+        loader.init();
+        return loader;
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
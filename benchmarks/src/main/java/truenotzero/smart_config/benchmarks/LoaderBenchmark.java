@@ -0,0 +1,94 @@
+package truenotzero.smart_config.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import truenotzero.smart_config.ConfigLoader;
+import truenotzero.smart_config.StoreReport;
+import truenotzero.smart_config.impl.IndexedConfigClassLocator;
+import truenotzero.smart_config.impl.MemoryConfigFileProvider;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk loading and storing of 1 to 1,000 small configs, and reloading them when their files didn't change
+ * <p>Runs against files on disk, and in memory to take the file system out of the picture.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoaderBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int count;
+
+    @Param({"nio", "memory"})
+    public String files;
+
+    private Path directory;
+    private ConfigLoader loader;
+    private List<Class<?>> classes;
+    private List<Field> ids;
+    private int version;
+
+    @Setup
+    public void setup() throws IOException, ReflectiveOperationException {
+        this.directory = Files.createTempDirectory("smart_config-bench");
+        IndexedConfigClassLocator classLocator = new IndexedConfigClassLocator(Fixtures.configPackage(this.count));
+        this.loader = this.files.equals("memory")
+                ? Fixtures.loader(classLocator, new MemoryConfigFileProvider())
+                : Fixtures.loader(classLocator, this.directory);
+        this.loader.load();
+        this.classes = new ArrayList<>(this.loader.scannedConfigs());
+        this.ids = new ArrayList<>();
+        for (Class<?> clazz : this.classes) {
+            this.ids.add(clazz.getField("id"));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(this.directory);
+    }
+
+    @Benchmark
+    public void load() throws IOException {
+        this.loader.load();
+    }
+
+    @Benchmark
+    public int reloadUnchanged() throws IOException {
+        int reloaded = 0;
+        for (Class<?> clazz : this.classes) {
+            if (this.loader.reload(clazz)) {
+                ++reloaded;
+            }
+        }
+        return reloaded;
+    }
+
+    @Benchmark
+    public StoreReport storeUnchanged() throws IOException {
+        return this.loader.store();
+    }
+
+    @Benchmark
+    public StoreReport storeChanged() throws IOException, IllegalAccessException {
+        ++this.version;
+        for (int i = 0; i < this.classes.size(); ++i) {
+            this.ids.get(i).setInt(this.loader.ref(this.classes.get(i)).get(), this.version);
+        }
+        return this.loader.store();
+    }
+}
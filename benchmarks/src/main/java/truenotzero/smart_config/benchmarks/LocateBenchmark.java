@@ -0,0 +1,44 @@
+package truenotzero.smart_config.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import truenotzero.smart_config.impl.IndexedConfigClassLocator;
+import truenotzero.smart_config.impl.ReflectionsConfigClassLocator;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locating the config classes: scanning the classpath with Reflections against reading the compile-time index
+ * <p>The Reflections scan happens when the locator is created, so it is part of what is measured.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LocateBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    public int count;
+
+    private String packageRoot;
+
+    @Setup
+    public void setup() {
+        this.packageRoot = Fixtures.configPackage(this.count);
+    }
+
+    @Benchmark
+    public Set<Class<?>> reflections() {
+        return new ReflectionsConfigClassLocator(this.packageRoot).locate();
+    }
+
+    @Benchmark
+    public Set<Class<?>> index() {
+        return new IndexedConfigClassLocator(this.packageRoot).locate();
+    }
+}
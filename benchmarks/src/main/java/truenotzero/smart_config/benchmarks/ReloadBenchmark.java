@@ -0,0 +1,81 @@
+package truenotzero.smart_config.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import truenotzero.smart_config.ConfigLoader;
+import truenotzero.smart_config.ConfigRef;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a config through its {@link ConfigRef} while it is reloaded
+ * <p>
+ *     {@code readDuringReload} runs three readers against one thread that keeps loading the config from its file.
+ *     {@code read} and {@code reload} are the same operations alone, on one thread, to compare against.
+ * </p>
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReloadBenchmark {
+    @Param({"SMALL", "MEDIUM"})
+    public Sample.Size size;
+
+    private Path directory;
+    private ConfigLoader loader;
+    private ConfigRef<Sample> ref;
+
+    @Setup
+    public void setup() throws IOException {
+        this.directory = Files.createTempDirectory("smart_config-bench");
+        this.loader = Fixtures.loader(() -> Collections.singleton(Sample.class), this.directory);
+        this.loader.load();
+        Sample.INSTANCE.entries.putAll(Sample.of(this.size).entries);
+        this.loader.store();
+        this.ref = this.loader.ref(Sample.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Fixtures.delete(this.directory);
+    }
+
+    @Benchmark
+    @Group("read")
+    public int read() {
+        return this.ref.get().entries.size();
+    }
+
+    @Benchmark
+    @Group("reload")
+    public void reload() throws IOException {
+        this.loader.load(Sample.class);
+    }
+
+    @Benchmark
+    @Group("readDuringReload")
+    @GroupThreads(3)
+    public int reader() {
+        return this.ref.get().entries.size();
+    }
+
+    @Benchmark
+    @Group("readDuringReload")
+    @GroupThreads(1)
+    public void reloader() throws IOException {
+        this.loader.load(Sample.class);
+    }
+}
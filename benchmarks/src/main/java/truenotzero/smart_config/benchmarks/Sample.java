@@ -0,0 +1,60 @@
+package truenotzero.smart_config.benchmarks;
+
+import truenotzero.smart_config.Config;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A config whose size is set by how many entries it has
+ */
+@Config("bench/sample.json")
+public class Sample {
+    /**
+     * How big a config the translator and reload benchmarks use
+     */
+    public enum Size {
+        SMALL(10),
+        MEDIUM(1_000),
+        LARGE(100_000);
+
+        final int entries;
+
+        Size(int entries) {
+            this.entries = entries;
+        }
+    }
+
+    public static class Entry {
+        public int id;
+        public String name;
+        public double weight;
+        public boolean enabled;
+        public long[] thresholds;
+    }
+
+    public int version;
+    public String name = "sample";
+    public Map<String, Entry> entries = new LinkedHashMap<>();
+    public List<Integer> order = new ArrayList<>();
+
+    @Config.Instance
+    public static Sample INSTANCE;
+
+    static Sample of(Size size) {
+        Sample sample = new Sample();
+        for (int i = 0; i < size.entries; ++i) {
+            Entry e = new Entry();
+            e.id = i;
+            e.name = "entry-" + i;
+            e.weight = i / 7.0;
+            e.enabled = i % 3 == 0;
+            e.thresholds = new long[]{i, i * 1000L, -i};
+            sample.entries.put(e.name, e);
+            sample.order.add(i);
+        }
+        return sample;
+    }
+}
@@ -0,0 +1,78 @@
+package truenotzero.smart_config.benchmarks;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import truenotzero.smart_config.impl.BinaryTranslator;
+import truenotzero.smart_config.impl.JsonTranslator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading and writing a small, medium and very large config, as JSON and in the binary format
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TranslatorBenchmark {
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public Sample.Size size;
+
+    private JsonTranslator json;
+    private BinaryTranslator binary;
+    private Sample sample;
+    private char[] jsonContent;
+    private byte[] binaryContent;
+    private CharArrayWriter text;
+    private ByteArrayOutputStream bytes;
+
+    @Setup
+    public void setup() throws IOException {
+        Gson gson = Fixtures.gson();
+        this.json = new JsonTranslator(gson);
+        this.binary = new BinaryTranslator(gson);
+        this.sample = Sample.of(this.size);
+
+        this.text = new CharArrayWriter();
+        this.json.write(this.text, Sample.class, this.sample);
+        this.jsonContent = this.text.toCharArray();
+        this.bytes = new ByteArrayOutputStream();
+        this.binary.write(this.bytes, Sample.class, this.sample);
+        this.binaryContent = this.bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Sample jsonRead() throws IOException {
+        return this.json.read(new CharArrayReader(this.jsonContent), Sample.class);
+    }
+
+    @Benchmark
+    public int jsonWrite() throws IOException {
+        this.text.reset();
+        this.json.write(this.text, Sample.class, this.sample);
+        return this.text.size();
+    }
+
+    @Benchmark
+    public Sample binaryRead() throws IOException {
+        return this.binary.read(new ByteArrayInputStream(this.binaryContent), Sample.class);
+    }
+
+    @Benchmark
+    public int binaryWrite() throws IOException {
+        this.bytes.reset();
+        this.binary.write(this.bytes, Sample.class, this.sample);
+        return this.bytes.size();
+    }
+}
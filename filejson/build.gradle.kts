@@ -12,6 +12,11 @@ java {
 	targetCompatibility = JavaVersion.VERSION_1_8
 }
 
+tasks.withType<JavaCompile> {
+	// never depend on the platform charset
+	options.encoding = "UTF-8"
+}
+
 repositories {
 	jcenter()
 }
@@ -19,9 +24,10 @@ repositories {
 dependencies {
 	implementation(project(":api"))
 
+	testAnnotationProcessor(project(":processor"))
 	testImplementation("junit:junit:4.12")
 	testImplementation("org.mockito:mockito-core:3.1.0")
 
     implementation("org.reflections:reflections:0.9.11")
-    implementation("com.google.code.gson:gson:2.8.2")
+    api("com.google.code.gson:gson:2.8.5")
 }
\ No newline at end of file
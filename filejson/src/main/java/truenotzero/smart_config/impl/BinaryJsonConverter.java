@@ -0,0 +1,175 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+
+/**
+ * Converts config files between JSON and the {@link BinaryTranslator} format, without needing the config classes
+ * <p>
+ *     Operators can keep editing JSON while production loads the binary form. The conversion keeps every value
+ *     exactly as written, numbers included: {@code 1}, {@code 1.0} and {@code 1e5} come back as they were.
+ *     Formatting and comments are not kept.
+ * </p>
+ * <p>
+ *     From the command line:
+ *     <pre>
+ *         java truenotzero.smart_config.impl.BinaryJsonConverter to-binary config.json config.bin
+ *         java truenotzero.smart_config.impl.BinaryJsonConverter to-json config.bin config.json
+ *     </pre>
+ * </p>
+ */
+public final class BinaryJsonConverter {
+    private BinaryJsonConverter() {
+    }
+
+    /**
+     * Convert JSON to binary
+     *
+     * @param json The JSON to read. Comments are allowed, like in config files.
+     * @param binary Where to write the binary form. An empty JSON document gives an empty file.
+     * @throws IOException If there was an error while reading or writing
+     * @throws JsonSyntaxException If the JSON is malformed
+     */
+    public static void toBinary(Reader json, OutputStream binary) throws IOException {
+        JsonReader in = new JsonReader(json);
+        in.setLenient(true);
+        try {
+            in.peek();
+        } catch (EOFException e) {
+            return;
+        }
+
+        BinaryJsonWriter out = new BinaryJsonWriter(binary, Collections.emptyList());
+        out.setLenient(true);
+        out.setSerializeNulls(true);
+        copy(in, out);
+        if (in.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("JSON document was not fully consumed.");
+        }
+        out.flush();
+    }
+
+    /**
+     * Convert binary to JSON
+     *
+     * @param binary The binary form to read
+     * @param json Where to write the JSON
+     * @param gson Decides how the JSON is formatted. Nulls are always written.
+     * @throws IOException If there was an error while reading or writing, or the binary form is malformed
+     */
+    public static void toJson(InputStream binary, Writer json, Gson gson) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = binary.read(chunk, 0, chunk.length)) >= 0) {
+            bytes.write(chunk, 0, n);
+        }
+        if (bytes.size() == 0) {
+            return;
+        }
+
+        BinaryJsonReader in = new BinaryJsonReader(bytes.toByteArray(), 0, bytes.size());
+        JsonWriter out = gson.newJsonWriter(json);
+        out.setLenient(true);
+        out.setSerializeNulls(true);
+        copy(in, out);
+        if (in.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("Document was not fully consumed.");
+        }
+        out.flush();
+    }
+
+    /**
+     * Stream a single value, token by token
+     */
+    static void copy(JsonReader in, JsonWriter out) throws IOException {
+        int depth = 0;
+        do {
+            JsonToken token = in.peek();
+            switch (token) {
+                case BEGIN_ARRAY:
+                    in.beginArray();
+                    out.beginArray();
+                    ++depth;
+                    break;
+                case END_ARRAY:
+                    in.endArray();
+                    out.endArray();
+                    --depth;
+                    break;
+                case BEGIN_OBJECT:
+                    in.beginObject();
+                    out.beginObject();
+                    ++depth;
+                    break;
+                case END_OBJECT:
+                    in.endObject();
+                    out.endObject();
+                    --depth;
+                    break;
+                case NAME:
+                    out.name(in.nextName());
+                    break;
+                case STRING:
+                    out.value(in.nextString());
+                    break;
+                case NUMBER:
+                    // keep the number's text, the writer picks the encoding that gives it back
+                    out.value(new LazilyParsedNumber(in.nextString()));
+                    break;
+                case BOOLEAN:
+                    out.value(in.nextBoolean());
+                    break;
+                case NULL:
+                    in.nextNull();
+                    out.nullValue();
+                    break;
+                default:
+                    throw new JsonSyntaxException("Unexpected " + token + " at " + in.getPath());
+            }
+        } while (depth > 0);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 || !(args[0].equals("to-binary") || args[0].equals("to-json"))) {
+            System.err.println("Usage: BinaryJsonConverter to-binary|to-json <input> <output>");
+            System.exit(2);
+        }
+
+        Path input = Paths.get(args[1]);
+        Path output = Paths.get(args[2]);
+        if (args[0].equals("to-binary")) {
+            try (Reader in = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+                 OutputStream out = Files.newOutputStream(output)) {
+                toBinary(in, out);
+            }
+        } else {
+            Gson gson = new GsonBuilder()
+                    .disableHtmlEscaping()
+                    .setPrettyPrinting()
+                    .create();
+            try (InputStream in = Files.newInputStream(input);
+                 Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                toJson(in, out, gson);
+            }
+        }
+    }
+}
@@ -0,0 +1,617 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static truenotzero.smart_config.impl.BinaryJsonWriter.*;
+
+/**
+ * A {@link JsonReader} that reads the {@link BinaryTranslator} format instead of text
+ * <p>
+ *     Being a {@link JsonReader}, it works with Gson's type adapters and generated {@link JsonCodec}s, and streams
+ *     straight into the config object: there is no text to tokenize and no tree in between. Names are decoded once
+ *     per file and shared by every object that uses them. Maps written as objects need
+ *     {@link BinaryMapTypeAdapterFactory}, which {@link BinaryTranslator} registers.
+ * </p>
+ */
+final class BinaryJsonReader extends JsonReader {
+    private static final Reader UNREADABLE = new Reader() {
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    // What's been peeked: one of these, or the tag of a value
+    private static final int PEEKED_NONE = -1;
+    private static final int PEEKED_NAME = -2;
+    private static final int PEEKED_END = -3;
+    private static final int PEEKED_EOF = -4;
+    private static final int PEEKED_PROMOTED_NAME = -5;
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int IN_ARRAY = 2;
+    private static final int BEFORE_NAME = 3;
+    private static final int BEFORE_VALUE = 4;
+    private static final int CLOSED = 5;
+
+    private final ByteBuffer buf;
+    private final int end;
+    private final List<String> names;
+    private int pos;
+    private int peeked;
+    private String peekedName;
+    private char[] chars;
+
+    private int[] stack;
+    private int depth;
+    private String[] pathNames;
+    private int[] pathIndices;
+
+    /**
+     * @param buf The content
+     * @param offset Where the document starts
+     * @param length The length of the document
+     * @throws IOException If the header is malformed
+     */
+    BinaryJsonReader(byte[] buf, int offset, int length) throws IOException {
+        this(ByteBuffer.wrap(buf), offset, length);
+    }
+
+    /**
+     * Read straight from a buffer, which may be memory mapped
+     *
+     * @param buf The content, read with absolute indices: its position and limit are left alone
+     * @param offset Where the document starts
+     * @param length The length of the document
+     * @throws IOException If the header is malformed
+     */
+    BinaryJsonReader(ByteBuffer buf, int offset, int length) throws IOException {
+        super(UNREADABLE);
+        this.buf = buf;
+        this.pos = offset;
+        this.end = offset + length;
+        this.names = new ArrayList<>();
+        this.peeked = PEEKED_NONE;
+        this.stack = new int[32];
+        this.pathNames = new String[32];
+        this.pathIndices = new int[32];
+        this.stack[this.depth++] = EMPTY_DOCUMENT;
+
+        for (byte b : MAGIC) {
+            if (this.readByte() != (b & 0xFF)) {
+                throw new MalformedJsonException("Not a binary config");
+            }
+        }
+        int n = this.readVarint();
+        for (int i = 0; i < n; ++i) {
+            this.names.add(this.readString());
+        }
+    }
+
+    /**
+     * Read a single value in the middle of a document, without header
+     *
+     * @param buf The content
+     * @param offset Where the value starts
+     * @param length The length of the value
+     * @param names The name table of the document, at least up to the value
+     */
+    BinaryJsonReader(byte[] buf, int offset, int length, List<String> names) {
+        super(UNREADABLE);
+        this.buf = ByteBuffer.wrap(buf);
+        this.pos = offset;
+        this.end = offset + length;
+        // a copy, the value may add names of its own
+        this.names = new ArrayList<>(names);
+        this.peeked = PEEKED_NONE;
+        this.stack = new int[32];
+        this.pathNames = new String[32];
+        this.pathIndices = new int[32];
+        this.stack[this.depth++] = EMPTY_DOCUMENT;
+    }
+
+    @Override
+    public void beginArray() throws IOException {
+        this.expect(ARRAY, "BEGIN_ARRAY");
+        this.push(IN_ARRAY);
+        this.pathIndices[this.depth - 1] = 0;
+    }
+
+    @Override
+    public void endArray() throws IOException {
+        this.end(IN_ARRAY, "END_ARRAY");
+    }
+
+    @Override
+    public void beginObject() throws IOException {
+        this.expect(OBJECT, "BEGIN_OBJECT");
+        this.push(BEFORE_NAME);
+    }
+
+    @Override
+    public void endObject() throws IOException {
+        this.end(BEFORE_NAME, "END_OBJECT");
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        int p = this.peeked();
+        return p != PEEKED_END && p != PEEKED_EOF;
+    }
+
+    @Override
+    public JsonToken peek() throws IOException {
+        int p = this.peeked();
+        switch (p) {
+            case PEEKED_NAME:
+                return JsonToken.NAME;
+            case PEEKED_END:
+                return this.stack[this.depth - 1] == IN_ARRAY ? JsonToken.END_ARRAY : JsonToken.END_OBJECT;
+            case PEEKED_EOF:
+                return JsonToken.END_DOCUMENT;
+            case PEEKED_PROMOTED_NAME:
+            case STRING:
+                return JsonToken.STRING;
+            case NULL:
+                return JsonToken.NULL;
+            case FALSE:
+            case TRUE:
+                return JsonToken.BOOLEAN;
+            case INT:
+            case DOUBLE:
+            case NUMBER:
+                return JsonToken.NUMBER;
+            case ARRAY:
+                return JsonToken.BEGIN_ARRAY;
+            case OBJECT:
+                return JsonToken.BEGIN_OBJECT;
+            default:
+                throw new AssertionError(p);
+        }
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        if (this.peeked() != PEEKED_NAME) {
+            throw this.unexpected("a name");
+        }
+        this.stack[this.depth - 1] = BEFORE_VALUE;
+        this.pathNames[this.depth - 1] = this.peekedName;
+        this.peeked = PEEKED_NONE;
+        return this.peekedName;
+    }
+
+    @Override
+    public String nextString() throws IOException {
+        String s;
+        switch (this.peeked()) {
+            case PEEKED_PROMOTED_NAME:
+                return this.consumePromotedName();
+            case STRING:
+            case NUMBER:
+                s = this.readString();
+                break;
+            case INT:
+                s = Long.toString(this.readZigzag());
+                break;
+            case DOUBLE:
+                s = Double.toString(this.readDouble());
+                break;
+            default:
+                throw this.unexpected("a string");
+        }
+        this.afterValue();
+        return s;
+    }
+
+    @Override
+    public boolean nextBoolean() throws IOException {
+        int p = this.peeked();
+        if (p != TRUE && p != FALSE) {
+            throw this.unexpected("a boolean");
+        }
+        this.afterValue();
+        return p == TRUE;
+    }
+
+    @Override
+    public void nextNull() throws IOException {
+        if (this.peeked() != NULL) {
+            throw this.unexpected("null");
+        }
+        this.afterValue();
+    }
+
+    @Override
+    public double nextDouble() throws IOException {
+        double d;
+        switch (this.peeked()) {
+            case INT:
+                d = this.readZigzag();
+                break;
+            case DOUBLE:
+                d = this.readDouble();
+                break;
+            case PEEKED_PROMOTED_NAME:
+            case STRING:
+            case NUMBER:
+                return Double.parseDouble(this.nextString());
+            default:
+                throw this.unexpected("a double");
+        }
+        this.afterValue();
+        return d;
+    }
+
+    @Override
+    public long nextLong() throws IOException {
+        long l;
+        switch (this.peeked()) {
+            case INT:
+                l = this.readZigzag();
+                break;
+            case DOUBLE:
+                double d = this.readDouble();
+                l = (long) d;
+                if (l != d) {
+                    throw new NumberFormatException("Expected a long but was " + d + this.location());
+                }
+                break;
+            case PEEKED_PROMOTED_NAME:
+            case STRING:
+            case NUMBER:
+                return parseLong(this.nextString());
+            default:
+                throw this.unexpected("a long");
+        }
+        this.afterValue();
+        return l;
+    }
+
+    @Override
+    public int nextInt() throws IOException {
+        long l = this.nextLong();
+        int i = (int) l;
+        if (i != l) {
+            throw new NumberFormatException("Expected an int but was " + l + this.location());
+        }
+        return i;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        int count = 0;
+        do {
+            int p = this.peeked();
+            switch (p) {
+                case ARRAY:
+                    this.beginArray();
+                    ++count;
+                    break;
+                case OBJECT:
+                    this.beginObject();
+                    ++count;
+                    break;
+                case PEEKED_END:
+                    if (this.stack[this.depth - 1] == IN_ARRAY) {
+                        this.endArray();
+                    } else {
+                        this.endObject();
+                    }
+                    --count;
+                    break;
+                case PEEKED_NAME:
+                    this.nextName();
+                    break;
+                case PEEKED_PROMOTED_NAME:
+                    this.consumePromotedName();
+                    break;
+                case PEEKED_EOF:
+                    return;
+                case INT:
+                    this.readVarlong();
+                    this.afterValue();
+                    break;
+                case DOUBLE:
+                    this.skip(8);
+                    this.afterValue();
+                    break;
+                case STRING:
+                case NUMBER:
+                    this.skip(this.readVarint());
+                    this.afterValue();
+                    break;
+                default:
+                    // null and booleans are just their tag
+                    this.afterValue();
+                    break;
+            }
+        } while (count != 0);
+    }
+
+    @Override
+    public void close() {
+        this.peeked = PEEKED_NONE;
+        this.stack[0] = CLOSED;
+        this.depth = 1;
+    }
+
+    @Override
+    public String getPath() {
+        StringBuilder path = new StringBuilder().append('$');
+        for (int i = 1; i < this.depth; ++i) {
+            switch (this.stack[i]) {
+                case IN_ARRAY:
+                    path.append('[').append(this.pathIndices[i]).append(']');
+                    break;
+                case BEFORE_NAME:
+                case BEFORE_VALUE:
+                    path.append('.');
+                    if (this.pathNames[i] != null) {
+                        path.append(this.pathNames[i]);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return path.toString();
+    }
+
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + this.location();
+    }
+
+    /**
+     * Turn the peeked name into a string value, for map keys
+     *
+     * @see BinaryMapTypeAdapterFactory
+     */
+    void promoteNameToValue() throws IOException {
+        if (this.peeked() != PEEKED_NAME) {
+            throw this.unexpected("a name");
+        }
+        this.stack[this.depth - 1] = BEFORE_VALUE;
+        this.pathNames[this.depth - 1] = this.peekedName;
+        this.peeked = PEEKED_PROMOTED_NAME;
+    }
+
+    private String consumePromotedName() {
+        // the key is not the member's value, that's still to come
+        this.peeked = PEEKED_NONE;
+        return this.peekedName;
+    }
+
+    private int peeked() throws IOException {
+        return this.peeked == PEEKED_NONE ? this.doPeek() : this.peeked;
+    }
+
+    private int doPeek() throws IOException {
+        int scope = this.stack[this.depth - 1];
+        switch (scope) {
+            case BEFORE_NAME:
+                int key = this.readVarint();
+                if (key == END) {
+                    return this.peeked = PEEKED_END;
+                }
+                if (key == NEW_NAME) {
+                    this.peekedName = this.readString();
+                    this.names.add(this.peekedName);
+                } else if (key - FIRST_NAME < this.names.size()) {
+                    this.peekedName = this.names.get(key - FIRST_NAME);
+                } else {
+                    throw this.syntaxError("Unknown name " + key);
+                }
+                return this.peeked = PEEKED_NAME;
+            case NONEMPTY_DOCUMENT:
+                if (this.pos == this.end) {
+                    return this.peeked = PEEKED_EOF;
+                }
+                throw this.syntaxError("Expected the end of the document");
+            case CLOSED:
+                throw new IllegalStateException("JsonReader is closed");
+            default:
+                int tag = this.readByte();
+                if (tag == END && scope == IN_ARRAY) {
+                    return this.peeked = PEEKED_END;
+                }
+                if (tag < NULL || tag > OBJECT) {
+                    throw this.syntaxError("Unknown tag " + tag);
+                }
+                return this.peeked = tag;
+        }
+    }
+
+    private void expect(int tag, String token) throws IOException {
+        if (this.peeked() != tag) {
+            throw this.unexpected(token);
+        }
+        this.peeked = PEEKED_NONE;
+    }
+
+    private void end(int scope, String token) throws IOException {
+        if (this.peeked() != PEEKED_END || this.stack[this.depth - 1] != scope) {
+            throw this.unexpected(token);
+        }
+        this.pathNames[--this.depth] = null;
+        this.afterValue();
+    }
+
+    private void push(int scope) {
+        if (this.depth == this.stack.length) {
+            int size = this.depth * 2;
+            this.stack = Arrays.copyOf(this.stack, size);
+            this.pathNames = Arrays.copyOf(this.pathNames, size);
+            this.pathIndices = Arrays.copyOf(this.pathIndices, size);
+        }
+        this.stack[this.depth++] = scope;
+    }
+
+    /**
+     * A value was consumed, move on in the enclosing scope
+     */
+    private void afterValue() {
+        this.peeked = PEEKED_NONE;
+        switch (this.stack[this.depth - 1]) {
+            case BEFORE_VALUE:
+                this.stack[this.depth - 1] = BEFORE_NAME;
+                break;
+            case IN_ARRAY:
+                ++this.pathIndices[this.depth - 1];
+                break;
+            case EMPTY_DOCUMENT:
+                this.stack[this.depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static long parseLong(String s) {
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            // maybe 1.0 or 1e3, like JsonReader accepts
+            double d = Double.parseDouble(s);
+            long l = (long) d;
+            if (l != d) {
+                throw new NumberFormatException("Expected a long but was " + s);
+            }
+            return l;
+        }
+    }
+
+    private IllegalStateException unexpected(String expected) throws IOException {
+        return new IllegalStateException("Expected " + expected + " but was " + this.peek() + this.location());
+    }
+
+    private MalformedJsonException syntaxError(String message) {
+        return new MalformedJsonException(message + this.location());
+    }
+
+    private String location() {
+        return " at byte " + this.pos + " path " + this.getPath();
+    }
+
+    private void require(int n) throws EOFException {
+        if (n > this.end - this.pos) {
+            throw new EOFException("End of input" + this.location());
+        }
+    }
+
+    private void skip(int n) throws EOFException {
+        this.require(n);
+        this.pos += n;
+    }
+
+    private int readByte() throws EOFException {
+        this.require(1);
+        return this.buf.get(this.pos++) & 0xFF;
+    }
+
+    private int readVarint() throws IOException {
+        long value = this.readVarlong();
+        if (value >>> 31 != 0) {
+            throw this.syntaxError("Length out of range");
+        }
+        return (int) value;
+    }
+
+    private long readVarlong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = this.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw this.syntaxError("Malformed varint");
+    }
+
+    private long readZigzag() throws IOException {
+        long zigzag = this.readVarlong();
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private double readDouble() throws EOFException {
+        this.require(8);
+        long bits = 0;
+        for (int i = 0; i < 8; ++i) {
+            bits = (bits << 8) | (this.buf.get(this.pos++) & 0xFF);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    /**
+     * Read a string written by {@link BinaryJsonWriter}
+     */
+    private String readString() throws IOException {
+        int length = this.readVarint();
+        this.require(length);
+        int start = this.pos;
+        int limit = start + length;
+        this.pos = limit;
+
+        ByteBuffer b = this.buf;
+        if (b.hasArray()) {
+            byte[] array = b.array();
+            int base = b.arrayOffset();
+            int i = base + start;
+            while (i < base + limit && array[i] >= 0) {
+                ++i;
+            }
+            if (i == base + limit) {
+                // plain ASCII
+                return new String(array, base + start, length, StandardCharsets.ISO_8859_1);
+            }
+        }
+
+        if (this.chars == null || this.chars.length < length) {
+            this.chars = new char[Math.max(length, 64)];
+        }
+        char[] c = this.chars;
+        int i = start;
+        int n = 0;
+        try {
+            while (i < limit) {
+                int b0 = b.get(i++) & 0xFF;
+                if (b0 < 0x80) {
+                    c[n++] = (char) b0;
+                } else if (b0 < 0xE0) {
+                    c[n++] = (char) (((b0 & 0x1F) << 6) | (b.get(i++) & 0x3F));
+                } else if (b0 < 0xF0) {
+                    c[n++] = (char) (((b0 & 0x0F) << 12) | ((b.get(i++) & 0x3F) << 6) | (b.get(i++) & 0x3F));
+                } else {
+                    int cp = ((b0 & 0x07) << 18) | ((b.get(i++) & 0x3F) << 12) | ((b.get(i++) & 0x3F) << 6)
+                            | (b.get(i++) & 0x3F);
+                    c[n++] = Character.highSurrogate(cp);
+                    c[n++] = Character.lowSurrogate(cp);
+                }
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw this.syntaxError("Malformed string");
+        }
+        if (i != limit) {
+            throw this.syntaxError("Malformed string");
+        }
+        return new String(c, 0, n);
+    }
+}
@@ -0,0 +1,410 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.JsonParser;
+import com.google.gson.internal.Streams;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link JsonWriter} that writes the {@link BinaryTranslator} format instead of text
+ * <p>
+ *     Being a {@link JsonWriter}, it works with every Gson type adapter and generated {@link JsonCodec}. Indentation
+ *     and HTML escaping don't apply and are ignored. Everything is buffered in memory until {@link #flush()}.
+ * </p>
+ */
+final class BinaryJsonWriter extends JsonWriter {
+    static final byte[] MAGIC = {'S', 'C', 'B', 1};
+
+    static final int END = 0;
+    static final int NULL = 1;
+    static final int FALSE = 2;
+    static final int TRUE = 3;
+    static final int INT = 4;
+    static final int DOUBLE = 5;
+    static final int NUMBER = 6;
+    static final int STRING = 7;
+    static final int ARRAY = 8;
+    static final int OBJECT = 9;
+
+    /** Member key introducing a name that isn't in the table yet */
+    static final int NEW_NAME = 1;
+    /** Member keys from this one on refer to the name table */
+    static final int FIRST_NAME = 2;
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int IN_ARRAY = 2;
+    private static final int IN_OBJECT = 3;
+
+    private static final Writer UNWRITABLE = new Writer() {
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void flush() {
+            throw new AssertionError();
+        }
+
+        @Override
+        public void close() {
+            throw new AssertionError();
+        }
+    };
+
+    private final OutputStream out;
+    private final Map<String, Integer> names;
+    private byte[] buffer;
+    private int length;
+    private long flushed;
+    private int[] stack;
+    private int depth;
+    private String deferredName;
+
+    /**
+     * @param out Where to write to
+     * @param schema Names known up front, written once in the header
+     */
+    BinaryJsonWriter(OutputStream out, List<String> schema) {
+        super(UNWRITABLE);
+        this.out = out;
+        this.names = new HashMap<>();
+        this.buffer = new byte[8192];
+        this.stack = new int[32];
+        this.stack[this.depth++] = EMPTY_DOCUMENT;
+
+        this.writeBytes(MAGIC, 0, MAGIC.length);
+        this.writeVarint(schema.size());
+        for (String name : schema) {
+            this.names.put(name, this.names.size());
+            this.writeString(name);
+        }
+    }
+
+    @Override
+    public JsonWriter beginArray() throws IOException {
+        this.beforeValue();
+        this.writeByte(ARRAY);
+        this.push(IN_ARRAY);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endArray() throws IOException {
+        return this.end(IN_ARRAY);
+    }
+
+    @Override
+    public JsonWriter beginObject() throws IOException {
+        this.beforeValue();
+        this.writeByte(OBJECT);
+        this.push(IN_OBJECT);
+        return this;
+    }
+
+    @Override
+    public JsonWriter endObject() throws IOException {
+        return this.end(IN_OBJECT);
+    }
+
+    @Override
+    public JsonWriter name(String name) throws IOException {
+        if (name == null) {
+            throw new NullPointerException("name == null");
+        }
+        if (this.deferredName != null || this.stack[this.depth - 1] != IN_OBJECT) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        this.deferredName = name;
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return this.nullValue();
+        }
+        this.beforeValue();
+        this.writeByte(STRING);
+        this.writeString(value);
+        return this;
+    }
+
+    @Override
+    public JsonWriter jsonValue(String value) throws IOException {
+        if (value == null) {
+            return this.nullValue();
+        }
+        Streams.write(new JsonParser().parse(value), this);
+        return this;
+    }
+
+    @Override
+    public JsonWriter nullValue() throws IOException {
+        if (this.deferredName != null && !this.getSerializeNulls()) {
+            // drop the whole member, like JsonWriter does
+            this.deferredName = null;
+            return this;
+        }
+        this.beforeValue();
+        this.writeByte(NULL);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(boolean value) throws IOException {
+        this.beforeValue();
+        this.writeByte(value ? TRUE : FALSE);
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(Boolean value) throws IOException {
+        if (value == null) {
+            return this.nullValue();
+        }
+        return this.value(value.booleanValue());
+    }
+
+    @Override
+    public JsonWriter value(double value) throws IOException {
+        if (!this.isLenient() && (Double.isNaN(value) || Double.isInfinite(value))) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        this.beforeValue();
+        this.writeByte(DOUBLE);
+        this.writeLong(Double.doubleToRawLongBits(value));
+        return this;
+    }
+
+    @Override
+    public JsonWriter value(long value) throws IOException {
+        this.beforeValue();
+        this.writeByte(INT);
+        this.writeVarlong((value << 1) ^ (value >> 63));
+        return this;
+    }
+
+    /**
+     * Write a number, in the smallest form that gives back the same text
+     * <p>
+     *     Integers that fit a {@code long} become {@code INT}s and numbers that print like a {@code double} become
+     *     {@code DOUBLE}s. Anything else, like a {@link java.math.BigDecimal} or {@code 1e5}, is kept as text.
+     * </p>
+     */
+    @Override
+    public JsonWriter value(Number value) throws IOException {
+        if (value == null) {
+            return this.nullValue();
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return this.value(value.longValue());
+        }
+        if (value instanceof Double) {
+            return this.value(value.doubleValue());
+        }
+
+        String text = value.toString();
+        if (!this.isLenient() && (text.equals("-Infinity") || text.equals("Infinity") || text.equals("NaN"))) {
+            throw new IllegalArgumentException("Numeric values must be finite, but was " + value);
+        }
+        try {
+            long l = Long.parseLong(text);
+            if (Long.toString(l).equals(text)) {
+                return this.value(l);
+            }
+        } catch (NumberFormatException e) {
+            // not a long
+        }
+        try {
+            double d = Double.parseDouble(text);
+            if (Double.toString(d).equals(text)) {
+                return this.value(d);
+            }
+        } catch (NumberFormatException e) {
+            // not a double either
+        }
+
+        this.beforeValue();
+        this.writeByte(NUMBER);
+        this.writeString(text);
+        return this;
+    }
+
+    /**
+     * Get the number of bytes written so far, header included
+     */
+    long position() {
+        return this.flushed + this.length;
+    }
+
+    /**
+     * Get the name table so far, in index order
+     */
+    List<String> names() {
+        String[] table = new String[this.names.size()];
+        for (Map.Entry<String, Integer> entry : this.names.entrySet()) {
+            table[entry.getValue()] = entry.getKey();
+        }
+        return Arrays.asList(table);
+    }
+
+    /**
+     * Pass everything written so far on
+     */
+    @Override
+    public void flush() throws IOException {
+        if (this.length > 0) {
+            this.out.write(this.buffer, 0, this.length);
+            this.flushed += this.length;
+            this.length = 0;
+        }
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.flush();
+        this.out.close();
+        if (this.depth > 1 || this.stack[0] != NONEMPTY_DOCUMENT) {
+            throw new IOException("Incomplete document");
+        }
+    }
+
+    private JsonWriter end(int scope) throws IOException {
+        if (this.stack[this.depth - 1] != scope || this.deferredName != null) {
+            throw new IllegalStateException("Nesting problem.");
+        }
+        --this.depth;
+        this.writeByte(END);
+        return this;
+    }
+
+    private void push(int scope) {
+        if (this.depth == this.stack.length) {
+            this.stack = Arrays.copyOf(this.stack, this.depth * 2);
+        }
+        this.stack[this.depth++] = scope;
+    }
+
+    /**
+     * Write the member key of the deferred name, if in an object, and update the scope
+     */
+    private void beforeValue() {
+        switch (this.stack[this.depth - 1]) {
+            case IN_OBJECT:
+                if (this.deferredName == null) {
+                    throw new IllegalStateException("Nesting problem.");
+                }
+                Integer index = this.names.get(this.deferredName);
+                if (index == null) {
+                    this.names.put(this.deferredName, this.names.size());
+                    this.writeVarint(NEW_NAME);
+                    this.writeString(this.deferredName);
+                } else {
+                    this.writeVarint(FIRST_NAME + index);
+                }
+                this.deferredName = null;
+                break;
+            case IN_ARRAY:
+                break;
+            case EMPTY_DOCUMENT:
+                this.stack[this.depth - 1] = NONEMPTY_DOCUMENT;
+                break;
+            default:
+                throw new IllegalStateException("JSON must have only one top-level value.");
+        }
+    }
+
+    private void ensure(int n) {
+        if (this.buffer.length - this.length < n) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length * 2, this.length + n));
+        }
+    }
+
+    private void writeByte(int b) {
+        this.ensure(1);
+        this.buffer[this.length++] = (byte) b;
+    }
+
+    private void writeBytes(byte[] b, int off, int len) {
+        this.ensure(len);
+        System.arraycopy(b, off, this.buffer, this.length, len);
+        this.length += len;
+    }
+
+    private void writeVarint(int value) {
+        this.writeVarlong(value & 0xFFFFFFFFL);
+    }
+
+    private void writeVarlong(long value) {
+        this.ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            this.buffer[this.length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        this.buffer[this.length++] = (byte) value;
+    }
+
+    private void writeLong(long value) {
+        this.ensure(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            this.buffer[this.length++] = (byte) (value >>> shift);
+        }
+    }
+
+    /**
+     * Write a string as its UTF-8 length and bytes
+     * <p>Unpaired surrogates are encoded like any other char, so every string comes back exactly</p>
+     */
+    private void writeString(String s) {
+        int chars = s.length();
+        int bytes = 0;
+        for (int i = 0; i < chars; ++i) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                ++i;
+            } else {
+                bytes += 3;
+            }
+        }
+
+        this.writeVarint(bytes);
+        this.ensure(bytes);
+        byte[] b = this.buffer;
+        int n = this.length;
+        for (int i = 0; i < chars; ++i) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                b[n++] = (byte) c;
+            } else if (c < 0x800) {
+                b[n++] = (byte) (0xC0 | (c >> 6));
+                b[n++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                b[n++] = (byte) (0xF0 | (cp >> 18));
+                b[n++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                b[n++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                b[n++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                b[n++] = (byte) (0xE0 | (c >> 12));
+                b[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[n++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        this.length = n;
+    }
+}
@@ -0,0 +1,84 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.internal.bind.TypeAdapters;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+
+/**
+ * Reads {@link Map}s written as objects from a {@link BinaryJsonReader}
+ * <p>
+ *     Gson's own map adapter turns member names into keys through a hook that only knows Gson's readers. This
+ *     adapter does the same through {@link BinaryJsonReader#promoteNameToValue()}, and leaves everything else (other
+ *     readers, maps written as arrays of entries, and writing) to Gson's adapter, which also creates the maps.
+ * </p>
+ *
+ * @see BinaryTranslator
+ */
+final class BinaryMapTypeAdapterFactory implements TypeAdapterFactory {
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+        Class<? super T> raw = typeToken.getRawType();
+        if (!Map.class.isAssignableFrom(raw)) {
+            return null;
+        }
+        Type[] types = $Gson$Types.getMapKeyAndValueTypes(typeToken.getType(), raw);
+        TypeAdapter<?> key = types[0] == boolean.class || types[0] == Boolean.class
+                ? TypeAdapters.BOOLEAN_AS_STRING
+                : gson.getAdapter(TypeToken.get(types[0]));
+        TypeAdapter<?> value = gson.getAdapter(TypeToken.get(types[1]));
+        TypeAdapter<Map<Object, Object>> gsons = (TypeAdapter<Map<Object, Object>>) gson.getDelegateAdapter(this, typeToken);
+        return (TypeAdapter<T>) new MapAdapter<>(gsons, (TypeAdapter<Object>) key, (TypeAdapter<Object>) value);
+    }
+
+    private static final class MapAdapter<K, V> extends TypeAdapter<Map<K, V>> {
+        private final TypeAdapter<Map<K, V>> gsons;
+        private final TypeAdapter<K> key;
+        private final TypeAdapter<V> value;
+
+        MapAdapter(TypeAdapter<Map<K, V>> gsons, TypeAdapter<K> key, TypeAdapter<V> value) {
+            this.gsons = gsons;
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public Map<K, V> read(JsonReader in) throws IOException {
+            if (!(in instanceof BinaryJsonReader) || in.peek() != JsonToken.BEGIN_OBJECT) {
+                return this.gsons.read(in);
+            }
+
+            BinaryJsonReader binary = (BinaryJsonReader) in;
+            // an empty map of whatever type Gson would have created
+            Map<K, V> map = this.gsons.fromJsonTree(new JsonObject());
+            binary.beginObject();
+            while (binary.hasNext()) {
+                binary.promoteNameToValue();
+                K k = this.key.read(binary);
+                V v = this.value.read(binary);
+                if (map.put(k, v) != null) {
+                    throw new JsonSyntaxException("duplicate key: " + k);
+                }
+            }
+            binary.endObject();
+            return map;
+        }
+
+        @Override
+        public void write(JsonWriter out, Map<K, V> map) throws IOException {
+            this.gsons.write(out, map);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.FieldNamingStrategy;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.internal.Excluder;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.stream.JsonToken;
+import truenotzero.smart_config.api.Translator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compact binary encoding of what {@link JsonTranslator} would write, for fast loading of big configs
+ * <p>
+ *     Configs are streamed through the same {@link Gson} type adapters (and generated {@link JsonCodec}s) as JSON,
+ *     so a class reads and writes the same in both formats. Only the encoding differs: there is no text to tokenize
+ *     or numbers to parse, and the field names of the config class are written once, in a header, and referred to
+ *     by index after that.
+ * </p>
+ * <p>
+ *     The format:
+ *     <pre>
+ *         file   := 'S' 'C' 'B' 0x01  varint(n) string{n}  value     the header lists the class's field names
+ *         value  := NULL | FALSE | TRUE
+ *                 | INT zigzag-varint
+ *                 | DOUBLE 8-byte-IEEE-754-big-endian
+ *                 | NUMBER string                                      numbers kept as text, like 1e5
+ *                 | STRING string
+ *                 | ARRAY value* END
+ *                 | OBJECT member* END
+ *         member := varint(1) string value                             a new name, added to the table
+ *                 | varint(2 + i) value                                the i-th name in the table
+ *         string := varint(UTF-8 length) UTF-8
+ *     </pre>
+ *     with the tags {@code END = 0, NULL = 1, FALSE = 2, TRUE = 3, INT = 4, DOUBLE = 5, NUMBER = 6, STRING = 7,
+ *     ARRAY = 8, OBJECT = 9}. The file carries its own name table, so it stays readable when the class changes and
+ *     can be converted back to JSON without the class; see {@link BinaryJsonConverter}.
+ * </p>
+ * <p>
+ *     Needs a {@link truenotzero.smart_config.api.ConfigFile} that supports binary content, like
+ *     {@link NioConfigFile}.
+ * </p>
+ */
+public class BinaryTranslator implements Translator {
+    private final Gson gson;
+    private final JsonTranslator json;
+    private final ConcurrentMap<Class<?>, List<String>> schemas;
+
+    /**
+     * @param gson The {@link Gson} instance whose type adapters bind configs
+     */
+    public BinaryTranslator(Gson gson) {
+        this.gson = gson.newBuilder().registerTypeAdapterFactory(new BinaryMapTypeAdapterFactory()).create();
+        this.json = new JsonTranslator(this.gson);
+        this.schemas = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public boolean isBinary() {
+        return true;
+    }
+
+    @Override
+    public <T> T read(InputStream in, Class<T> type) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk, 0, chunk.length)) >= 0) {
+            bytes.write(chunk, 0, n);
+        }
+        return this.read(bytes.toByteArray(), 0, bytes.size(), type);
+    }
+
+    /**
+     * Decode the content in place, without copying it
+     */
+    @Override
+    public <T> T read(byte[] buf, int offset, int length, Class<T> type) throws IOException {
+        if (length == 0) {
+            // An empty document is read as null, like in JSON
+            return null;
+        }
+        return this.read(new BinaryJsonReader(buf, offset, length), type);
+    }
+
+    /**
+     * Decode the content straight from the buffer, mapped or not, without copying it
+     */
+    @Override
+    public <T> T read(ByteBuffer buf, Class<T> type) throws IOException {
+        if (!buf.hasRemaining()) {
+            return null;
+        }
+        return this.read(new BinaryJsonReader(buf, buf.position(), buf.remaining()), type);
+    }
+
+    private <T> T read(BinaryJsonReader reader, Class<T> type) throws IOException {
+        JsonCodec<T> codec = this.json.codec(type);
+        T t;
+        if (codec == null) {
+            t = this.gson.fromJson(reader, type);
+        } else {
+            reader.setLenient(true);
+            try {
+                t = codec.read(reader);
+            } catch (IllegalStateException e) {
+                throw new JsonSyntaxException(e);
+            }
+        }
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("Document was not fully consumed.");
+        }
+        return type.cast(t);
+    }
+
+    @Override
+    public <T> void write(OutputStream out, Class<T> type, T t) throws IOException {
+        BinaryJsonWriter writer = new BinaryJsonWriter(out, this.schema(type));
+        try {
+            JsonCodec<T> codec = this.json.codec(type);
+            if (codec == null) {
+                this.gson.toJson(t, type, writer);
+            } else {
+                // Same settings Gson uses
+                writer.setLenient(true);
+                writer.setSerializeNulls(this.gson.serializeNulls());
+                codec.write(writer, t);
+            }
+            writer.flush();
+        } catch (JsonIOException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Not supported, this translator is binary
+     */
+    @Override
+    public <T> T read(Reader reader, Class<T> type) {
+        throw new UnsupportedOperationException("Binary translator, use read(InputStream, Class)");
+    }
+
+    /**
+     * Not supported, this translator is binary
+     */
+    @Override
+    public <T> void write(Writer writer, Class<T> type, T t) {
+        throw new UnsupportedOperationException("Binary translator, use write(OutputStream, Class, Object)");
+    }
+
+    /**
+     * Get the names Gson gives the fields of a class, subclass first like Gson writes them
+     */
+    private List<String> schema(Class<?> type) {
+        return this.schemas.computeIfAbsent(type, c -> {
+            if (!(this.gson.getAdapter(c) instanceof ReflectiveTypeAdapterFactory.Adapter)) {
+                // custom adapter, nothing to go by
+                return Collections.emptyList();
+            }
+            Excluder excluder = this.gson.excluder();
+            FieldNamingStrategy naming = this.gson.fieldNamingStrategy();
+            Set<String> names = new LinkedHashSet<>();
+            for (Class<?> k = c; k != null && k != Object.class && !k.isInterface(); k = k.getSuperclass()) {
+                for (Field field : k.getDeclaredFields()) {
+                    if (excluder.excludeField(field, true)) {
+                        continue;
+                    }
+                    SerializedName serializedName = field.getAnnotation(SerializedName.class);
+                    names.add(serializedName == null ? naming.translateName(field) : serializedName.value());
+                }
+            }
+            return Collections.unmodifiableList(new ArrayList<>(names));
+        });
+    }
+}
@@ -0,0 +1,129 @@
+package truenotzero.smart_config.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The compression formats config files are transparently (de)compressed with
+ * <p>
+ *     The format is picked from the file name first: {@code .gz} is gzip, {@code .deflate} and {@code .zz} are
+ *     zlib-wrapped deflate. Files without such an extension are sniffed for the gzip magic bytes, so a gzipped
+ *     {@code config.json} keeps working and stays gzipped when it is written back. Deflate has no reliable magic
+ *     and is only recognised by extension.
+ * </p>
+ */
+enum Compression {
+    NONE,
+    GZIP,
+    DEFLATE;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Pick the compression of a file
+     *
+     * @param file The file, it does not have to exist
+     * @return The compression it is stored with
+     */
+    static Compression of(Path file) {
+        Compression byName = byName(file);
+        if (byName != NONE || !Files.isRegularFile(file)) {
+            return byName;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return of(file, channel);
+        } catch (IOException e) {
+            return NONE;
+        }
+    }
+
+    /**
+     * Pick the compression of an open file, without moving its position
+     *
+     * @param file The file
+     * @param channel The file, open for reading
+     * @return The compression it is stored with
+     * @throws IOException If the first bytes could not be read
+     */
+    static Compression of(Path file, FileChannel channel) throws IOException {
+        Compression byName = byName(file);
+        if (byName != NONE) {
+            return byName;
+        }
+
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) >= 0) {
+            // a positional read may return less than asked for
+        }
+        return magic.position() == 2 && magic.get(0) == (byte) 0x1f && magic.get(1) == (byte) 0x8b ? GZIP : NONE;
+    }
+
+    private static Compression byName(Path file) {
+        Path name = file.getFileName();
+        return name == null ? NONE : of(name.toString());
+    }
+
+    /**
+     * Pick the compression of a file by its name only
+     *
+     * @param fileName The name of the file
+     * @return The compression its extension stands for
+     */
+    static Compression of(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".gz")) {
+            return GZIP;
+        } else if (name.endsWith(".deflate") || name.endsWith(".zz")) {
+            return DEFLATE;
+        }
+        return NONE;
+    }
+
+    /**
+     * Wrap a stream of compressed bytes, {@code in} is closed with the returned stream
+     *
+     * @param in The compressed bytes
+     * @return The uncompressed bytes
+     * @throws IOException If the gzip header could not be read
+     */
+    InputStream decompress(InputStream in) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case DEFLATE:
+                return new InflaterInputStream(in);
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * Wrap a stream compressed bytes are written to, {@code out} is closed with the returned stream
+     *
+     * @param out Where the compressed bytes go
+     * @return Where the uncompressed bytes go
+     * @throws IOException If the gzip header could not be written
+     */
+    OutputStream compress(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE);
+            case DEFLATE:
+                return new DeflaterOutputStream(out);
+            default:
+                return out;
+        }
+    }
+}
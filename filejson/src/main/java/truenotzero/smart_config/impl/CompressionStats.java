@@ -0,0 +1,164 @@
+package truenotzero.smart_config.impl;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte counters for the compressed config files of one provider
+ * <p>
+ *     Only compressed files are counted, on both sides of the codec: what went over the disk and what the
+ *     translators saw. Plain files are left out so the ratio stays meaningful.
+ * </p>
+ *
+ * @see NioConfigFileProvider#compressionStats()
+ * @see FilesystemConfigFileProvider#compressionStats()
+ */
+public final class CompressionStats {
+    private final LongAdder compressedRead = new LongAdder();
+    private final LongAdder uncompressedRead = new LongAdder();
+    private final LongAdder compressedWritten = new LongAdder();
+    private final LongAdder uncompressedWritten = new LongAdder();
+
+    /**
+     * Open a counted, decompressing view of a file
+     *
+     * @param compression How the file is compressed
+     * @param in The raw file content, closed with the returned stream
+     * @return The uncompressed content
+     * @throws IOException If the compressed header could not be read
+     */
+    InputStream reading(Compression compression, InputStream in) throws IOException {
+        if (compression == Compression.NONE) {
+            return in;
+        }
+        try {
+            return new Counting(compression.decompress(new Counting(in, this.compressedRead)), this.uncompressedRead);
+        } catch (IOException e) {
+            closeAfter(e, in);
+            throw e;
+        }
+    }
+
+    /**
+     * Open a counted, compressing view of a file
+     *
+     * @param compression How the file is to be compressed
+     * @param out Where the raw file content goes, closed with the returned stream
+     * @return Where the uncompressed content goes
+     * @throws IOException If the compressed header could not be written
+     */
+    OutputStream writing(Compression compression, OutputStream out) throws IOException {
+        if (compression == Compression.NONE) {
+            return out;
+        }
+        try {
+            return new CountingOut(compression.compress(new CountingOut(out, this.compressedWritten)), this.uncompressedWritten);
+        } catch (IOException e) {
+            closeAfter(e, out);
+            throw e;
+        }
+    }
+
+    private static void closeAfter(IOException error, Closeable stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            error.addSuppressed(e);
+        }
+    }
+
+    /**
+     * @return How many compressed bytes were read from disk
+     */
+    public long compressedBytesRead() {
+        return this.compressedRead.sum();
+    }
+
+    /**
+     * @return How many bytes reading compressed files produced
+     */
+    public long uncompressedBytesRead() {
+        return this.uncompressedRead.sum();
+    }
+
+    /**
+     * @return How many compressed bytes were written to disk
+     */
+    public long compressedBytesWritten() {
+        return this.compressedWritten.sum();
+    }
+
+    /**
+     * @return How many bytes went into writing compressed files
+     */
+    public long uncompressedBytesWritten() {
+        return this.uncompressedWritten.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionStats{read=" + this.compressedBytesRead() + "/" + this.uncompressedBytesRead()
+                + ", written=" + this.compressedBytesWritten() + "/" + this.uncompressedBytesWritten() + "}";
+    }
+
+    private static final class Counting extends FilterInputStream {
+        private final LongAdder bytes;
+
+        Counting(InputStream in, LongAdder bytes) {
+            super(in);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                this.bytes.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                this.bytes.add(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            this.bytes.add(skipped);
+            return skipped;
+        }
+    }
+
+    private static final class CountingOut extends FilterOutputStream {
+        private final LongAdder bytes;
+
+        CountingOut(OutputStream out, LongAdder bytes) {
+            super(out);
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.bytes.increment();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            // FilterOutputStream writes one byte at a time
+            this.out.write(b, off, len);
+            this.bytes.add(len);
+        }
+    }
+}
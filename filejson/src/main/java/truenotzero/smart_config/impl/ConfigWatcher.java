@@ -0,0 +1,314 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.ConfigLoader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Reloads configs when their files change on disk
+ * <p>
+ *     A single daemon thread watches every directory that holds a scanned config. Events are debounced: a file is
+ *     only reloaded once it has been quiet for the debounce period, so an editor's burst of writes causes a single
+ *     reload. Only the configs whose files changed are reloaded, through {@link ConfigLoader#reload(Class)}, which
+ *     ignores files whose content matches the last load or store. That is also why the loader's own
+ *     {@link ConfigLoader#store()} does not bounce back as a reload.
+ * </p>
+ * <p>
+ *     A config directory that doesn't exist yet is watched through its nearest existing ancestor, and itself once
+ *     it is created; the configs already in it by then are reloaded.
+ * </p>
+ * <p>
+ *     Typical use:
+ *     <pre>
+ *         NioConfigFileProvider files = new NioConfigFileProvider(Paths.get("."));
+ *         ConfigLoader loader = new ConfigLoader(classLocator, files, translator);
+ *         loader.init();
+ *         loader.load();
+ *         ConfigWatcher watcher = new ConfigWatcher(loader, files);
+ *         watcher.start();
+ *         // ...
+ *         watcher.close();
+ *     </pre>
+ * </p>
+ * <p>
+ *     Only the filesystem providers, {@link NioConfigFileProvider} and {@link FilesystemConfigFileProvider}, can be
+ *     watched: archives and remote sources have no directory to watch.
+ * </p>
+ */
+public class ConfigWatcher implements Closeable {
+    /**
+     * How long a file must be quiet before it's reloaded, unless specified otherwise
+     */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 200;
+
+    /**
+     * Notified of what the watcher does. Called on the watcher thread.
+     */
+    public interface Listener {
+        /**
+         * A config was reloaded because its file changed
+         *
+         * @param clazz The config's class
+         */
+        default void reloaded(Class<?> clazz) { }
+
+        /**
+         * Reloading a config failed. The previous instance stays in place.
+         *
+         * @param clazz The config's class
+         * @param e What went wrong
+         */
+        default void failed(Class<?> clazz, Exception e) { }
+    }
+
+    private final ConfigLoader loader;
+    private final Function<String, Path> files;
+    private final long debounceMillis;
+    private final Listener listener;
+    private final Map<Path, List<Class<?>>> targets;
+    private final Map<WatchKey, Path> directories;
+    private final Map<Path, WatchKey> registered;
+    // config directories that don't exist yet
+    private final Set<Path> missing;
+    private WatchService service;
+    private Thread thread;
+
+    public ConfigWatcher(ConfigLoader loader, NioConfigFileProvider files) {
+        this(loader, files, DEFAULT_DEBOUNCE_MILLIS, new Listener() { });
+    }
+
+    /**
+     * @param loader The loader to reload configs with
+     * @param files The provider the loader reads its files from
+     * @param debounceMillis How long a file must be quiet before it's reloaded
+     * @param listener Notified of reloads and failures
+     */
+    public ConfigWatcher(ConfigLoader loader, NioConfigFileProvider files, long debounceMillis, Listener listener) {
+        this(loader, files::resolve, debounceMillis, listener);
+    }
+
+    public ConfigWatcher(ConfigLoader loader, FilesystemConfigFileProvider files) {
+        this(loader, files, DEFAULT_DEBOUNCE_MILLIS, new Listener() { });
+    }
+
+    /**
+     * @param loader The loader to reload configs with
+     * @param files The provider the loader reads its files from
+     * @param debounceMillis How long a file must be quiet before it's reloaded
+     * @param listener Notified of reloads and failures
+     */
+    public ConfigWatcher(ConfigLoader loader, FilesystemConfigFileProvider files, long debounceMillis, Listener listener) {
+        this(loader, path -> files.resolve(path).toPath(), debounceMillis, listener);
+    }
+
+    private ConfigWatcher(ConfigLoader loader, Function<String, Path> files, long debounceMillis, Listener listener) {
+        this.loader = loader;
+        this.files = files;
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+        this.targets = new HashMap<>();
+        this.directories = new HashMap<>();
+        this.registered = new HashMap<>();
+        this.missing = new HashSet<>();
+    }
+
+    /**
+     * Register the directories of all scanned configs and start watching them
+     *
+     * @throws IOException If the directories could not be watched
+     */
+    public synchronized void start() throws IOException {
+        if (this.thread != null) {
+            throw new IllegalStateException("Already started");
+        }
+
+        for (Class<?> clazz : this.loader.scannedConfigs()) {
+            Path path = this.files.apply(this.loader.pathOf(clazz)).toAbsolutePath().normalize();
+            this.targets.computeIfAbsent(path, p -> new ArrayList<>()).add(clazz);
+        }
+
+        for (Path path : this.targets.keySet()) {
+            Path dir = path.getParent();
+            if (this.service == null) {
+                this.service = dir.getFileSystem().newWatchService();
+            }
+            if (Files.isDirectory(dir)) {
+                this.watch(dir);
+            } else {
+                this.missing.add(dir);
+            }
+        }
+        this.watchMissing();
+        if (this.service == null) {
+            // nothing to watch
+            return;
+        }
+
+        this.thread = new Thread(this::run, "smart_config-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stop watching
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.service != null) {
+            this.service.close();
+        }
+        if (this.thread != null) {
+            this.thread.interrupt();
+        }
+    }
+
+    private void run() {
+        // file -> time (in nanos) at which it's quiet long enough to reload
+        Map<Path, Long> pending = new HashMap<>();
+        long debounceNanos = TimeUnit.MILLISECONDS.toNanos(this.debounceMillis);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = this.service.take();
+                } else {
+                    long wait = pending.values().stream().mapToLong(Long::longValue).min().getAsLong() - System.nanoTime();
+                    key = this.service.poll(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+                }
+
+                if (key != null) {
+                    this.collect(key, pending, System.nanoTime() + debounceNanos);
+                }
+                this.reloadDue(pending, System.nanoTime());
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void watch(Path dir) throws IOException {
+        if (!this.registered.containsKey(dir)) {
+            WatchKey key = dir.register(this.service,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            this.registered.put(dir, key);
+            this.directories.put(key, dir);
+        }
+    }
+
+    /**
+     * Watch the nearest existing ancestor of each missing config directory, or the directory itself once it exists
+     *
+     * @return The config directories that are watched now
+     */
+    private List<Path> watchMissing() throws IOException {
+        List<Path> found = new ArrayList<>();
+        Iterator<Path> it = this.missing.iterator();
+        while (it.hasNext()) {
+            Path dir = it.next();
+            // until nothing new appeared while registering, which would have been missed
+            Path watched = null;
+            Path existing;
+            while ((existing = nearestExisting(dir)) != null && !existing.equals(watched)) {
+                this.watch(existing);
+                watched = existing;
+            }
+            if (dir.equals(watched)) {
+                it.remove();
+                found.add(dir);
+            }
+        }
+        return found;
+    }
+
+    private static Path nearestExisting(Path dir) {
+        Path existing = dir;
+        while (existing != null && !Files.isDirectory(existing)) {
+            existing = existing.getParent();
+        }
+        return existing;
+    }
+
+    private void collect(WatchKey key, Map<Path, Long> pending, long deadline) {
+        if (!this.missing.isEmpty()) {
+            this.collectMissing(pending, deadline);
+        }
+        Path dir = this.directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // events were lost, check every config in the directory
+                for (Path path : this.targets.keySet()) {
+                    if (path.getParent().equals(dir)) {
+                        pending.put(path, deadline);
+                    }
+                }
+            } else {
+                Path path = dir.resolve((Path) event.context());
+                if (this.targets.containsKey(path)) {
+                    pending.put(path, deadline);
+                }
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * Start watching config directories that were just created, and reload the configs already in them
+     */
+    private void collectMissing(Map<Path, Long> pending, long deadline) {
+        try {
+            for (Path dir : this.watchMissing()) {
+                for (Path path : this.targets.keySet()) {
+                    if (path.getParent().equals(dir) && Files.exists(path)) {
+                        pending.put(path, deadline);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // can't watch them, the configs won't be reloaded
+            for (Map.Entry<Path, List<Class<?>>> target : this.targets.entrySet()) {
+                if (this.missing.contains(target.getKey().getParent())) {
+                    for (Class<?> clazz : target.getValue()) {
+                        this.listener.failed(clazz, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private void reloadDue(Map<Path, Long> pending, long now) {
+        Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Long> e = it.next();
+            if (e.getValue() - now > 0) {
+                continue;
+            }
+            it.remove();
+            for (Class<?> clazz : this.targets.get(e.getKey())) {
+                try {
+                    if (this.loader.reload(clazz)) {
+                        this.listener.reloaded(clazz);
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    this.listener.failed(clazz, ex);
+                }
+            }
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package truenotzero.smart_config.impl;
 
+import truenotzero.smart_config.api.AtomicFiles;
 import truenotzero.smart_config.api.ConfigFile;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 /**
- * A wrapper around {@link File}
+ * A UTF-8 wrapper around {@link File}
+ * <p>Gzip and deflate files (see {@link Compression}) are (de)compressed as they are streamed</p>
+ * <p>{@code replace} writes a temp file and moves it over this one, see {@link AtomicFiles}</p>
  * @see FilesystemConfigFileProvider
  */
 public class FilesystemConfigFile implements ConfigFile {
     private final File file;
+    private final CompressionStats stats;
 
-    FilesystemConfigFile(File file) {
+    FilesystemConfigFile(File file, CompressionStats stats) {
         this.file = file;
+        this.stats = stats;
     }
 
     @Override
@@ -29,10 +38,21 @@ public class FilesystemConfigFile implements ConfigFile {
         }
     }
 
+    @Override
+    public long size() {
+        return file.exists() ? file.length() : -1;
+    }
+
+    @Override
+    public long lastModified() {
+        return file.exists() ? file.lastModified() : -1;
+    }
+
     @Override
     public Writer writer() {
         try {
-            return new FileWriter(file);
+            OutputStream out = stats.writing(Compression.of(file.toPath()), new FileOutputStream(file));
+            return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -41,9 +61,48 @@ public class FilesystemConfigFile implements ConfigFile {
     @Override
     public Reader reader() {
         try {
-            return new FileReader(file);
-        } catch (FileNotFoundException e) {
+            return new InputStreamReader(this.open(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
+
+    @Override
+    public InputStream inputStream() {
+        try {
+            return this.open();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void replace(char[] content, int offset, int length) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(content, offset, length));
+        this.replace(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+    }
+
+    @Override
+    public void replace(byte[] content, int offset, int length) throws IOException {
+        // decided before the temp file exists, a gzipped file keeps being gzipped
+        Compression compression = Compression.of(file.toPath());
+        AtomicFiles.replace(file.toPath(), tmp -> {
+            try (OutputStream out = stats.writing(compression, Files.newOutputStream(tmp))) {
+                out.write(content, offset, length);
+            }
+        });
+    }
+
+    private InputStream open() throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        Compression compression;
+        try {
+            // sniffed through the stream that is read from, not a second open
+            compression = Compression.of(file.toPath(), in.getChannel());
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return stats.reading(compression, in);
+    }
 }
@@ -6,19 +6,39 @@ import truenotzero.smart_config.api.ConfigFileProvider;
 import java.io.*;
 
 /**
- * Provides {@link ConfigFile}'s from the filesystem using the default FileI/O API
+ * Provides UTF-8 {@link ConfigFile}'s from the filesystem using the default FileI/O API
+ * <p>Paths are resolved against the parent directory; absolute paths are used as they are</p>
  * @see FilesystemConfigFile
  */
 public class FilesystemConfigFileProvider implements ConfigFileProvider {
     private final File parentDirectory;
+    private final CompressionStats compressionStats = new CompressionStats();
+
     public FilesystemConfigFileProvider(File parentDirectory) {
         this.parentDirectory = parentDirectory;
         assert parentDirectory.isDirectory();
     }
 
+    /**
+     * Resolve a config path
+     *
+     * @param path The path, as given in {@code @Config}
+     * @return The file on disk
+     */
+    public File resolve(String path) {
+        File f = new File(path);
+        return f.isAbsolute() ? f : new File(this.parentDirectory, path);
+    }
+
     @Override
     public ConfigFile get(String path) {
-        File f = new File(/*this.parentDirectory,*/ path);
-        return new FilesystemConfigFile(f);
+        return new FilesystemConfigFile(this.resolve(path), this.compressionStats);
+    }
+
+    /**
+     * @return The byte counters of the compressed files this provider has read and written
+     */
+    public CompressionStats compressionStats() {
+        return this.compressionStats;
     }
 }
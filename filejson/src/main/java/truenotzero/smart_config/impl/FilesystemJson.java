@@ -3,12 +3,15 @@ package truenotzero.smart_config.impl;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import truenotzero.smart_config.ConfigLoader;
+import truenotzero.smart_config.SnapshotCache;
 import truenotzero.smart_config.api.ConfigClassLocator;
 import truenotzero.smart_config.api.ConfigFileProvider;
 import truenotzero.smart_config.api.Translator;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.Executor;
 
 /**
  *
@@ -17,21 +20,64 @@ public class FilesystemJson {
     /**
      * Create a {@link ConfigLoader} that locates configs from disk
      * <p>Conveniently scans all configs upon construction</p>
+     * <p>
+     *     If every jar or directory holding {@code packageRoot} has a config index (see the {@code processor}
+     *     module), the indices are used instead of scanning the classpath with Reflections; see
+     *     {@link IndexedConfigClassLocator#covers(ClassLoader, String)}.
+     * </p>
      *
      * @param packageRoot The package root to scan for {@code Config} classes
      */
     public static ConfigLoader fromPackageRoot(String packageRoot) throws IOException {
-        ConfigClassLocator classLocator = new ReflectionsConfigClassLocator(packageRoot);
-        ConfigFileProvider fileProvider = new FilesystemConfigFileProvider(new File("."));
+        return fromPackageRoot(packageRoot, null);
+    }
+
+    /**
+     * Create a {@link ConfigLoader} that locates configs from disk and loads and stores them in parallel
+     * <p>Conveniently scans all configs upon construction</p>
+     *
+     * @param packageRoot The package root to scan for {@code Config} classes
+     * @param executor The {@link Executor} to run bulk operations on, or {@code null} to run them sequentially
+     * @see ConfigLoader#ConfigLoader(ConfigClassLocator, ConfigFileProvider, Translator, Executor)
+     */
+    public static ConfigLoader fromPackageRoot(String packageRoot, Executor executor) throws IOException {
+        return fromPackageRoot(packageRoot, executor, null);
+    }
+
+    /**
+     * Create a {@link ConfigLoader} that locates configs from disk and keeps a snapshot of them for fast startup
+     * <p>Conveniently scans all configs upon construction</p>
+     * <p>
+     *     Configs may use {@link truenotzero.smart_config.ConfigSequence} and the mapped table types; the sidecar
+     *     files of mapped tables are kept in {@code .smart_config/tables}, next to the configs.
+     * </p>
+     *
+     * @param packageRoot The package root to scan for {@code Config} classes
+     * @param executor The {@link Executor} to run bulk operations on, or {@code null} to run them sequentially
+     * @param snapshot Where to keep the snapshot, or {@code null} for none
+     * @see SnapshotCache
+     */
+    public static ConfigLoader fromPackageRoot(String packageRoot, Executor executor, Path snapshot) throws IOException {
+        // Prefer the compile-time index to scanning the classpath
+        ClassLoader classLoader = IndexedConfigClassLocator.defaultClassLoader();
+        ConfigClassLocator classLocator = IndexedConfigClassLocator.covers(classLoader, packageRoot)
+                ? new IndexedConfigClassLocator(classLoader, packageRoot)
+                : new ReflectionsConfigClassLocator(packageRoot);
+        NioConfigFileProvider fileProvider = new NioConfigFileProvider(Paths.get(".").toAbsolutePath().normalize());
         Gson gson = new GsonBuilder()
                 .disableHtmlEscaping()
                 .serializeNulls()
                 .setLenient() // allows comments
                 .setPrettyPrinting()
+                .registerTypeAdapterFactory(new StreamingTypeAdapterFactory())
+                .registerTypeAdapterFactory(new MappedTypeAdapterFactory(fileProvider.resolve(".smart_config/tables")))
                 .create();
         Translator json = new JsonTranslator(gson);
 
-        ConfigLoader loader = new ConfigLoader(classLocator, fileProvider, json);
+        ConfigLoader loader = new ConfigLoader(classLocator, fileProvider, json, executor);
+        if (snapshot != null) {
+            loader.setSnapshotCache(new SnapshotCache(snapshot, new BinaryTranslator(gson)));
+        }
         loader.init();
         return loader;
     }
@@ -0,0 +1,114 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.api.ConfigFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read-only UTF-8 {@link ConfigFile} served over HTTP
+ * <p>Binary content is supported too.</p>
+ * <p>
+ *     When the server can't be reached and there is no cached copy, nothing is known about the file: every method
+ *     that looks at it, {@link #size()} and {@link #lastModified()} included, throws
+ *     {@link UncheckedIOException} rather than guess.
+ * </p>
+ *
+ * @see HttpConfigFileProvider
+ */
+public class HttpConfigFile implements ConfigFile {
+    private final HttpConfigFileProvider.Entry entry;
+
+    HttpConfigFile(HttpConfigFileProvider.Entry entry) {
+        this.entry = entry;
+    }
+
+    /**
+     * Get the path of this file, relative to the provider's base URL
+     */
+    public String path() {
+        return entry.path;
+    }
+
+    @Override
+    public boolean exists() {
+        return this.state().exists;
+    }
+
+    /**
+     * Not supported, the file is read-only
+     */
+    @Override
+    public boolean create() {
+        throw new UnsupportedOperationException("Read-only file: " + this.entry.path);
+    }
+
+    @Override
+    public long size() {
+        return this.state().size;
+    }
+
+    @Override
+    public long lastModified() {
+        return this.state().lastModified;
+    }
+
+    /**
+     * Not supported, the file is read-only
+     */
+    @Override
+    public Writer writer() {
+        throw new UnsupportedOperationException("Read-only file: " + this.entry.path);
+    }
+
+    @Override
+    public Reader reader() {
+        try {
+            CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(this.entry.content()));
+            return new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream inputStream() {
+        try {
+            return new ByteArrayInputStream(this.entry.content());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Not supported, the file is read-only
+     */
+    @Override
+    public void replace(char[] content, int offset, int length) {
+        throw new UnsupportedOperationException("Read-only file: " + this.entry.path);
+    }
+
+    /**
+     * Not supported, the file is read-only
+     */
+    @Override
+    public void replace(byte[] content, int offset, int length) {
+        throw new UnsupportedOperationException("Read-only file: " + this.entry.path);
+    }
+
+    private HttpConfigFileProvider.State state() {
+        try {
+            return this.entry.current();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.api.AtomicFiles;
+import truenotzero.smart_config.api.ConfigFileProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Provides read-only {@link HttpConfigFile}'s served over HTTP, with a local disk cache
+ * <p>
+ *     Every file is fetched with a conditional {@code GET}, sending the {@code ETag} and {@code Last-Modified} of
+ *     the cached copy, so a file that didn't change costs a {@code 304} with no body. A file is revalidated at most
+ *     once per {@link #setMaxAge(Duration) max age}; within it, checking, sizing and reading it is served from the
+ *     cache without any request. If the server can't be reached, the cached copy is used, so nodes can start
+ *     offline with the config they had.
+ * </p>
+ * <p>
+ *     With a {@link #setBatchPath(String) batch endpoint}, revalidating one file revalidates every file handed out
+ *     by this provider in the same request, so a {@link truenotzero.smart_config.ConfigLoader#load()} of many
+ *     configs makes a single round trip. The request is a {@code POST} of one line per file,
+ *     {@code path TAB etag LF}, with {@code -} for no ETag. The response is either {@code 304} when nothing
+ *     changed, or {@code 200} with a record for each file that changed:
+ *     <pre>
+ *         path TAB etag TAB last-modified-millis TAB length LF  followed by length bytes of content
+ *     </pre>
+ *     where {@code etag} may be {@code -}, {@code last-modified-millis} may be {@code -1}, and a {@code length} of
+ *     {@code -1} means the file no longer exists. Files the response doesn't mention are unchanged.
+ * </p>
+ * <p>
+ *     Writing isn't supported: {@link HttpConfigFile#create()} and the other writing methods throw
+ *     {@link UnsupportedOperationException}. Use {@link truenotzero.smart_config.ConfigLoader#scan()} and
+ *     {@link truenotzero.smart_config.ConfigLoader#load()} rather than
+ *     {@link truenotzero.smart_config.ConfigLoader#init()}, which creates missing files.
+ * </p>
+ *
+ * @see HttpConfigFile
+ */
+public class HttpConfigFileProvider implements ConfigFileProvider {
+    /**
+     * Files are revalidated at most this often, by default
+     */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofSeconds(1);
+
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * What is known about a file, immutable
+     */
+    static final class State {
+        static final long NEVER = Long.MIN_VALUE;
+        static final State UNKNOWN = new State(false, null, -1, -1, NEVER);
+
+        final boolean exists;
+        final String etag;
+        final long lastModified;
+        final long size;
+        final long checkedAt;
+
+        State(boolean exists, String etag, long lastModified, long size, long checkedAt) {
+            this.exists = exists;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.size = size;
+            this.checkedAt = checkedAt;
+        }
+
+        State checked(long now) {
+            return new State(this.exists, this.etag, this.lastModified, this.size, now);
+        }
+
+        /**
+         * Check if the state was validated less than {@code maxAge} ago
+         */
+        boolean fresh(long now, long maxAge) {
+            return this.checkedAt != NEVER && now - this.checkedAt < maxAge;
+        }
+    }
+
+    /**
+     * A file handed out by this provider
+     */
+    final class Entry {
+        final String path;
+        final Path cached;
+        final Path metadata;
+        volatile State state;
+
+        Entry(String path) {
+            this.path = path;
+            String name = hash(path);
+            this.cached = HttpConfigFileProvider.this.cacheDirectory.resolve(name);
+            this.metadata = HttpConfigFileProvider.this.cacheDirectory.resolve(name + ".properties");
+            this.state = State.UNKNOWN;
+        }
+
+        /**
+         * Get the state of the file, revalidating it if it is older than the max age
+         */
+        State current() throws IOException {
+            State s = this.state;
+            if (s.fresh(System.nanoTime(), HttpConfigFileProvider.this.maxAgeNanos)) {
+                return s;
+            }
+            HttpConfigFileProvider.this.revalidate(this);
+            return this.state;
+        }
+
+        byte[] content() throws IOException {
+            State s = this.current();
+            if (!s.exists) {
+                throw new NoSuchFileException(HttpConfigFileProvider.this.base.resolve(this.path).toString());
+            }
+            return Files.readAllBytes(this.cached);
+        }
+    }
+
+    private final URI base;
+    private final Path cacheDirectory;
+    private final ConcurrentMap<String, Entry> entries;
+    private volatile long maxAgeNanos;
+    private volatile String batchPath;
+
+    /**
+     * @param base The URL config paths are relative to, usually ending with {@code /}
+     * @param cacheDirectory Where to keep the cached copies, created when first needed
+     */
+    public HttpConfigFileProvider(URI base, Path cacheDirectory) {
+        this.base = base;
+        this.cacheDirectory = cacheDirectory;
+        this.entries = new ConcurrentHashMap<>();
+        this.maxAgeNanos = DEFAULT_MAX_AGE.toNanos();
+    }
+
+    /**
+     * Choose how long a file is used without asking the server if it changed
+     *
+     * @param maxAge The max age, {@link #DEFAULT_MAX_AGE} by default. {@link Duration#ZERO} revalidates on every
+     *               access.
+     */
+    public void setMaxAge(Duration maxAge) {
+        this.maxAgeNanos = maxAge.toNanos();
+    }
+
+    /**
+     * Revalidate all files in one request, see above
+     *
+     * @param batchPath The path of the batch endpoint relative to the base URL, or {@code null} to revalidate each
+     *                  file with its own request (the default)
+     */
+    public void setBatchPath(String batchPath) {
+        this.batchPath = batchPath;
+    }
+
+    @Override
+    public HttpConfigFile get(String path) {
+        return new HttpConfigFile(this.entries.computeIfAbsent(path, Entry::new));
+    }
+
+    /**
+     * Get the URL of a file
+     */
+    public URI resolve(String path) {
+        return this.base.resolve(path);
+    }
+
+    private void revalidate(Entry entry) throws IOException {
+        long now = System.nanoTime();
+        try {
+            if (this.batchPath != null) {
+                this.revalidateAll(now);
+            } else {
+                this.revalidateOne(entry, now);
+            }
+        } catch (IOException e) {
+            // offline: fall back on the cached copy if there is one, and try again after the max age
+            State known = this.known(entry, now);
+            if (known == State.UNKNOWN) {
+                throw e;
+            }
+            entry.state = known.checked(now);
+        }
+    }
+
+    /**
+     * Conditionally GET a single file
+     * <p>Locks only the file, so that different files are fetched in parallel.</p>
+     */
+    private void revalidateOne(Entry entry, long now) throws IOException {
+        synchronized (entry) {
+            if (entry.state.fresh(now, this.maxAgeNanos)) {
+                // revalidated by another thread meanwhile
+                return;
+            }
+            this.fetch(entry, now);
+        }
+    }
+
+    private void fetch(Entry entry, long now) throws IOException {
+        State known = this.known(entry, now);
+        HttpURLConnection c = this.open(this.base.resolve(entry.path).toURL());
+        if (known.etag != null) {
+            c.setRequestProperty("If-None-Match", known.etag);
+        }
+        if (known.lastModified >= 0) {
+            c.setRequestProperty("If-Modified-Since", httpDate(known.lastModified));
+        }
+        int code = c.getResponseCode();
+        try {
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                entry.state = known.checked(now);
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                byte[] content;
+                try (InputStream in = c.getInputStream()) {
+                    content = readAll(in);
+                }
+                long lastModified = c.getLastModified();
+                this.update(entry, c.getHeaderField("ETag"), lastModified == 0 ? -1 : lastModified, content, now);
+            } else if (code == HttpURLConnection.HTTP_NOT_FOUND || code == HttpURLConnection.HTTP_GONE) {
+                this.update(entry, null, -1, null, now);
+            } else {
+                throw new IOException("HTTP " + code + " for " + c.getURL());
+            }
+        } finally {
+            discard(c);
+        }
+    }
+
+    /**
+     * Revalidate every file in one request to the batch endpoint
+     */
+    private synchronized void revalidateAll(long now) throws IOException {
+        List<Entry> stale = new ArrayList<>();
+        StringBuilder body = new StringBuilder();
+        for (Entry e : this.entries.values()) {
+            if (e.state.fresh(now, this.maxAgeNanos)) {
+                continue;
+            }
+            State known = this.known(e, now);
+            stale.add(e);
+            body.append(e.path).append('\t').append(known.etag == null ? "-" : known.etag).append('\n');
+        }
+        if (stale.isEmpty()) {
+            // revalidated by another thread meanwhile
+            return;
+        }
+
+        HttpURLConnection c = this.open(this.base.resolve(this.batchPath).toURL());
+        c.setRequestMethod("POST");
+        c.setDoOutput(true);
+        c.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+        byte[] request = body.toString().getBytes(StandardCharsets.UTF_8);
+        c.setFixedLengthStreamingMode(request.length);
+        try (OutputStream out = c.getOutputStream()) {
+            out.write(request);
+        }
+        int code = c.getResponseCode();
+        try {
+            if (code == HttpURLConnection.HTTP_OK) {
+                try (InputStream in = c.getInputStream()) {
+                    String line;
+                    while ((line = readLine(in)) != null) {
+                        String[] record = line.split("\t", -1);
+                        if (record.length != 4) {
+                            throw new IOException("Malformed batch record: " + line);
+                        }
+                        Entry e = this.entries.get(record[0]);
+                        int length = Integer.parseInt(record[3]);
+                        byte[] content = length < 0 ? null : readFully(in, length);
+                        if (e != null) {
+                            this.update(e, record[1].equals("-") ? null : record[1], Long.parseLong(record[2]),
+                                    content, now);
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed batch response", e);
+                }
+            } else if (code != HttpURLConnection.HTTP_NOT_MODIFIED) {
+                throw new IOException("HTTP " + code + " for " + c.getURL());
+            }
+        } finally {
+            discard(c);
+        }
+        // everything not in the response is unchanged
+        for (Entry e : stale) {
+            if (e.state.checkedAt != now) {
+                e.state = e.state.checked(now);
+            }
+        }
+    }
+
+    /**
+     * Get what is known about a file before revalidating it, from the cache on disk on first use
+     */
+    private State known(Entry entry, long now) {
+        State s = entry.state;
+        if (s == State.UNKNOWN) {
+            State cached = this.readMetadata(entry, now);
+            if (cached != null) {
+                entry.state = s = cached.checked(State.NEVER);
+            }
+        }
+        return s;
+    }
+
+    private HttpURLConnection open(URL url) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) url.openConnection();
+        c.setConnectTimeout(TIMEOUT_MILLIS);
+        c.setReadTimeout(TIMEOUT_MILLIS);
+        c.setUseCaches(false);
+        return c;
+    }
+
+    /**
+     * Read what is left of a response, so that the connection can be reused
+     */
+    private static void discard(HttpURLConnection c) {
+        try (InputStream err = c.getErrorStream()) {
+            if (err != null) {
+                readAll(err);
+            }
+        } catch (IOException e) {
+            // only for reuse
+        }
+    }
+
+    /**
+     * Save a new version of a file in the cache, then publish it
+     *
+     * @param content The content, or {@code null} if the file doesn't exist
+     */
+    private void update(Entry entry, String etag, long lastModified, byte[] content, long now) throws IOException {
+        if (content == null) {
+            Files.deleteIfExists(entry.metadata);
+            Files.deleteIfExists(entry.cached);
+            entry.state = new State(false, null, -1, -1, now);
+            return;
+        }
+        Files.createDirectories(this.cacheDirectory);
+        AtomicFiles.replace(entry.cached, tmp -> Files.write(tmp, content));
+        Properties metadata = new Properties();
+        metadata.setProperty("path", entry.path);
+        if (etag != null) {
+            metadata.setProperty("etag", etag);
+        }
+        metadata.setProperty("lastModified", Long.toString(lastModified));
+        metadata.setProperty("size", Integer.toString(content.length));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        metadata.store(bytes, null);
+        // the metadata goes last: it only ever describes a complete copy
+        AtomicFiles.replace(entry.metadata, tmp -> Files.write(tmp, bytes.toByteArray()));
+        entry.state = new State(true, etag, lastModified, content.length, now);
+    }
+
+    /**
+     * Read the metadata of the cached copy of a file
+     *
+     * @return The state of the copy, or {@code null} if there is none
+     */
+    private State readMetadata(Entry entry, long now) {
+        Properties metadata = new Properties();
+        try (InputStream in = Files.newInputStream(entry.metadata)) {
+            metadata.load(in);
+            if (!entry.path.equals(metadata.getProperty("path"))
+                    || Files.size(entry.cached) != Long.parseLong(metadata.getProperty("size"))) {
+                return null;
+            }
+            return new State(true, metadata.getProperty("etag"), Long.parseLong(metadata.getProperty("lastModified")),
+                    Long.parseLong(metadata.getProperty("size")), now);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static String hash(String path) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(path.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 16; ++i) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always available", e);
+        }
+    }
+
+    private static String httpDate(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(new Date(millis));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk)) >= 0) {
+            bytes.write(chunk, 0, n);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readFully(InputStream in, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int off = 0;
+        while (off < length) {
+            int n = in.read(bytes, off, length - off);
+            if (n < 0) {
+                throw new EOFException("Truncated batch response");
+            }
+            off += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Read a UTF-8 line ending with LF
+     *
+     * @return The line, or {@code null} at the end of the stream
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0 && b != '\n') {
+            line.write(b);
+        }
+        if (b < 0 && line.size() == 0) {
+            return null;
+        }
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
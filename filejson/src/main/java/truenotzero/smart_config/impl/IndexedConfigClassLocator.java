@@ -0,0 +1,147 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.api.ConfigClassLocator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Locate classes using the index written at compile time by the {@code processor} module
+ * <p>
+ *     Instead of scanning the classpath, this reads {@link ConfigClassLocator#INDEX_RESOURCE} (from every jar that
+ *     has one) and loads the listed classes. Configs in jars or directories without an index are not found, see
+ *     {@link #covers(ClassLoader, String)}.
+ * </p>
+ *
+ * @see ReflectionsConfigClassLocator
+ */
+public class IndexedConfigClassLocator implements ConfigClassLocator {
+    private final ClassLoader classLoader;
+    private final String packageRoot;
+
+    /**
+     * @param classLoader The {@link ClassLoader} to read the index and load classes from
+     * @param packageRoot Only classes in this package (or its subpackages) are located. Empty for all classes.
+     */
+    public IndexedConfigClassLocator(ClassLoader classLoader, String packageRoot) {
+        this.classLoader = classLoader;
+        this.packageRoot = packageRoot;
+    }
+
+    public IndexedConfigClassLocator(String packageRoot) {
+        this(defaultClassLoader(), packageRoot);
+    }
+
+    /**
+     * Check if there is an index to read
+     *
+     * @param classLoader The {@link ClassLoader} to look in
+     * @return {@code true} if at least one index is on the classpath
+     */
+    public static boolean isPresent(ClassLoader classLoader) {
+        return classLoader.getResource(ConfigClassLocator.INDEX_RESOURCE) != null;
+    }
+
+    /**
+     * Check if the indices on the classpath certainly list every config in a package
+     * <p>
+     *     An index only lists the configs of the jar or class directory it is in, and an index can come from a
+     *     dependency built with the {@code processor} module while the application's own configs are not indexed.
+     *     So the package must only be in classpath entries that carry an index of their own: then, assuming each
+     *     entry was compiled in one go with the processor, no config can be missing. Entries merged from several
+     *     builds (like shaded jars, which keep a single index) break that assumption and shouldn't be indexed.
+     * </p>
+     * <p>
+     *     The package is found the way Reflections finds it, through {@link ClassLoader#getResources(String)}. The
+     *     whole classpath (an empty package root) is never covered, it can't be checked without scanning it.
+     * </p>
+     *
+     * @param classLoader The {@link ClassLoader} to look in
+     * @param packageRoot The package (or its subpackages) to look for
+     * @return {@code true} if the package is on the classpath, and indexed everywhere it is
+     */
+    public static boolean covers(ClassLoader classLoader, String packageRoot) {
+        if (packageRoot.isEmpty()) {
+            return false;
+        }
+        String dir = packageRoot.replace('.', '/');
+        try {
+            Set<String> indices = new HashSet<>();
+            Enumeration<URL> urls = classLoader.getResources(ConfigClassLocator.INDEX_RESOURCE);
+            while (urls.hasMoreElements()) {
+                indices.add(urls.nextElement().toString());
+            }
+
+            boolean found = false;
+            Enumeration<URL> packages = classLoader.getResources(dir);
+            while (packages.hasMoreElements()) {
+                String url = packages.nextElement().toString();
+                if (url.endsWith("/")) {
+                    url = url.substring(0, url.length() - 1);
+                }
+                if (!url.endsWith(dir)) {
+                    // not laid out like a jar or directory, can't tell
+                    return false;
+                }
+                String entry = url.substring(0, url.length() - dir.length());
+                if (!indices.contains(entry + ConfigClassLocator.INDEX_RESOURCE)) {
+                    return false;
+                }
+                found = true;
+            }
+            return found;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static ClassLoader defaultClassLoader() {
+        ClassLoader context = Thread.currentThread().getContextClassLoader();
+        return context != null ? context : IndexedConfigClassLocator.class.getClassLoader();
+    }
+
+    @Override
+    public Set<Class<?>> locate() {
+        Set<Class<?>> classes = new HashSet<>();
+        try {
+            Enumeration<URL> indices = this.classLoader.getResources(ConfigClassLocator.INDEX_RESOURCE);
+            while (indices.hasMoreElements()) {
+                this.read(indices.nextElement(), classes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return classes;
+    }
+
+    private void read(URL index, Set<Class<?>> classes) throws IOException {
+        try (BufferedReader lines = open(index)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                String name = line.trim();
+                if (!name.isEmpty() && inPackage(this.packageRoot, name)) {
+                    try {
+                        classes.add(Class.forName(name, false, this.classLoader));
+                    } catch (ClassNotFoundException e) {
+                        throw new IllegalStateException(index + " lists missing class " + name, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static BufferedReader open(URL index) throws IOException {
+        return new BufferedReader(new InputStreamReader(index.openStream(), StandardCharsets.UTF_8));
+    }
+
+    private static boolean inPackage(String packageRoot, String name) {
+        return packageRoot.isEmpty() || name.startsWith(packageRoot + '.');
+    }
+}
@@ -0,0 +1,113 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+
+/**
+ * Base class of the reflection-free JSON codecs generated for {@code @Config} classes
+ * <p>
+ *     The {@code processor} module generates a {@code <ConfigClass>_JsonCodec} next to every {@code @Config} class
+ *     whose fields it can access directly. Generated codecs read and write fields without reflection but resolve
+ *     the adapter of every field type through {@link Gson}, so the JSON is exactly what Gson itself would produce.
+ *     {@link JsonTranslator} picks them up automatically.
+ * </p>
+ *
+ * @param <T> The config type
+ * @see JsonTranslator
+ */
+public abstract class JsonCodec<T> {
+    /**
+     * Appended to a config class's binary name to get the name of its generated codec
+     */
+    public static final String SUFFIX = "_JsonCodec";
+
+    protected final Gson gson;
+
+    protected JsonCodec(Gson gson) {
+        this.gson = gson;
+    }
+
+    /**
+     * Decode a config object, like Gson's reflective adapter would
+     *
+     * @param in The JSON source
+     * @return The decoded object, or {@code null} if the JSON value was {@code null}
+     * @throws IOException If there was an error while reading
+     */
+    public abstract T read(JsonReader in) throws IOException;
+
+    /**
+     * Encode a config object, like Gson's reflective adapter would
+     *
+     * @param out The JSON sink
+     * @param value The object to encode, may be {@code null}
+     * @throws IOException If there was an error while writing
+     */
+    public abstract void write(JsonWriter out, T value) throws IOException;
+
+    /**
+     * Get the generic type of a field. Only used once, when the codec is constructed.
+     */
+    protected static Type fieldType(Class<?> owner, String name) {
+        try {
+            return owner.getDeclaredField(name).getGenericType();
+        } catch (NoSuchFieldException e) {
+            throw new IllegalStateException("Generated codec is out of date with " + owner.getName(), e);
+        }
+    }
+
+    /**
+     * Get the adapter Gson uses for a type
+     */
+    @SuppressWarnings("unchecked")
+    protected final TypeAdapter<Object> adapter(Type type) {
+        return (TypeAdapter<Object>) this.gson.getAdapter(TypeToken.get(type));
+    }
+
+    /**
+     * Pick the adapter Gson uses to write a field, given the runtime type of its value
+     * <p>Mirrors Gson's {@code TypeAdapterRuntimeTypeWrapper}</p>
+     *
+     * @param declared The adapter of the field's declared type
+     * @param declaredType The field's declared type
+     * @param runtimeType The class of the field's value
+     */
+    @SuppressWarnings("unchecked")
+    protected final TypeAdapter<Object> runtimeAdapter(TypeAdapter<Object> declared, Type declaredType, Class<?> runtimeType) {
+        if (runtimeType == declaredType
+                || !(declaredType == Object.class || declaredType instanceof TypeVariable<?> || declaredType instanceof Class<?>)) {
+            return declared;
+        }
+
+        TypeAdapter<Object> runtime = (TypeAdapter<Object>) this.gson.getAdapter(runtimeType);
+        if (!(runtime instanceof ReflectiveTypeAdapterFactory.Adapter)) {
+            // The user registered a type adapter for the runtime type, so use it
+            return runtime;
+        } else if (!(declared instanceof ReflectiveTypeAdapterFactory.Adapter)) {
+            // The user registered a type adapter for the declared type, so use it
+            return declared;
+        } else {
+            // Use the reflective adapter of the more specific type
+            return runtime;
+        }
+    }
+
+    /**
+     * Write a field value whose runtime type may be more specific than its declared type
+     */
+    protected final void writeRuntimeType(JsonWriter out, TypeAdapter<Object> declared, Type declaredType, Object value)
+            throws IOException {
+        TypeAdapter<Object> adapter = value == null
+                ? declared
+                : this.runtimeAdapter(declared, declaredType, value.getClass());
+        adapter.write(out, value);
+    }
+}
@@ -1,25 +1,68 @@
 package truenotzero.smart_config.impl;
 
+import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.internal.Excluder;
+import com.google.gson.internal.bind.ReflectiveTypeAdapterFactory;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
 import truenotzero.smart_config.api.Translator;
 
 import java.io.*;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * JSON capabilities courtesy of the amazing GSON library!
+ * <p>
+ *     Config classes that have a generated {@link JsonCodec} (see the {@code processor} module) are read and
+ *     written with it instead of Gson's reflective adapter. The output is the same either way.
+ * </p>
+ * <p>
+ *     Writing streams straight into the target {@link Writer} through a per-thread buffer; the document is never
+ *     built in memory as a whole.
+ * </p>
  */
 public class JsonTranslator implements Translator {
+    private static final int BUFFER_SIZE = 8192;
+    private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
+
     private final Gson gson;
+    private final boolean compact;
+    private final boolean codecsAllowed;
+    private final ConcurrentMap<Class<?>, Optional<JsonCodec<?>>> codecs;
 
     public JsonTranslator(Gson gson) {
+        this(gson, false);
+    }
+
+    /**
+     * @param gson The {@link Gson} instance to use
+     * @param compact {@code true} to write without any whitespace even if {@code gson} pretty prints. Useful for
+     *                files that are only ever read by machines.
+     */
+    public JsonTranslator(Gson gson, boolean compact) {
         this.gson = gson;
+        this.compact = compact;
+        // Generated codecs assume Gson's default field naming and exclusion rules
+        this.codecsAllowed = gson.fieldNamingStrategy() == FieldNamingPolicy.IDENTITY
+                && gson.excluder() == Excluder.DEFAULT;
+        this.codecs = new ConcurrentHashMap<>();
     }
 
     @Override
     public <T> T read(Reader reader, Class<T> type) throws IOException {
         try {
-            return this.gson.fromJson(reader, type);
+            JsonCodec<T> codec = this.codec(type);
+            if (codec == null) {
+                return this.gson.fromJson(reader, type);
+            }
+            return this.read(codec, reader, type);
         } catch (JsonIOException e) {
             throw new IOException(e);
         }
@@ -27,15 +70,165 @@ public class JsonTranslator implements Translator {
 
     @Override
     public <T> void write(Writer writer, Class<T> type, T t) throws IOException {
+        BufferedSink sink = new BufferedSink(writer, BUFFERS.get());
         try {
-            String out = gson.toJson(t, type);
-            System.out.println("pretty printing json");
-            System.out.println(out);
-            writer.write(out);
-//            this.gson.toJson(t, type, writer);
-            writer.flush();
+            JsonWriter out = this.gson.newJsonWriter(sink);
+            if (this.compact) {
+                out.setIndent("");
+            }
+
+            JsonCodec<T> codec = this.codec(type);
+            if (codec == null) {
+                this.gson.toJson(t, type, out);
+            } else {
+                this.write(codec, out, t);
+            }
+            sink.flush();
         } catch (JsonIOException e) {
             throw new IOException(e);
         }
     }
+
+    /**
+     * Find the generated codec of a type, if there is one Gson would agree with
+     */
+    @SuppressWarnings("unchecked")
+    <T> JsonCodec<T> codec(Class<T> type) {
+        if (!this.codecsAllowed) {
+            return null;
+        }
+        return (JsonCodec<T>) this.codecs.computeIfAbsent(type, this::loadCodec).orElse(null);
+    }
+
+    private Optional<JsonCodec<?>> loadCodec(Class<?> type) {
+        // A type adapter registered for the config class takes precedence, like in Gson
+        if (!(this.gson.getAdapter(type) instanceof ReflectiveTypeAdapterFactory.Adapter)) {
+            return Optional.empty();
+        }
+        try {
+            Class<?> codecClass = Class.forName(type.getName() + JsonCodec.SUFFIX, true, type.getClassLoader());
+            JsonCodec<?> codec = (JsonCodec<?>) codecClass.getConstructor(Gson.class).newInstance(this.gson);
+            return Optional.of(codec);
+        } catch (ReflectiveOperationException | ClassCastException | LinkageError e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Same as {@link Gson#fromJson(Reader, Class)}, using a codec
+     */
+    private <T> T read(JsonCodec<T> codec, Reader reader, Class<T> type) {
+        JsonReader in = this.gson.newJsonReader(reader);
+        T t;
+        boolean isEmpty = true;
+        in.setLenient(true);
+        try {
+            in.peek();
+            isEmpty = false;
+            t = codec.read(in);
+        } catch (EOFException e) {
+            // An empty document is read as null
+            if (isEmpty) {
+                return null;
+            }
+            throw new JsonSyntaxException(e);
+        } catch (IllegalStateException | IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+
+        try {
+            if (t != null && in.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonIOException("JSON document was not fully consumed.");
+            }
+        } catch (MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return type.cast(t);
+    }
+
+    /**
+     * Same as {@link Gson#toJson(Object, java.lang.reflect.Type, JsonWriter)}, using a codec
+     */
+    private <T> void write(JsonCodec<T> codec, JsonWriter out, T t) {
+        out.setLenient(true);
+        out.setHtmlSafe(this.gson.htmlSafe());
+        out.setSerializeNulls(this.gson.serializeNulls());
+        try {
+            codec.write(out, t);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * Buffers the many small writes of a {@link JsonWriter} in a reusable array before passing them on
+     * <p>Closing it only flushes: the target {@link Writer} belongs to the caller</p>
+     */
+    private static final class BufferedSink extends Writer {
+        private final Writer target;
+        private final char[] buffer;
+        private int length;
+
+        BufferedSink(Writer target, char[] buffer) {
+            this.target = target;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (this.length == this.buffer.length) {
+                this.drain();
+            }
+            this.buffer[this.length++] = (char) c;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (len >= this.buffer.length) {
+                // too big to be worth copying
+                this.drain();
+                this.target.write(cbuf, off, len);
+                return;
+            }
+            if (len > this.buffer.length - this.length) {
+                this.drain();
+            }
+            System.arraycopy(cbuf, off, this.buffer, this.length, len);
+            this.length += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            while (len > 0) {
+                if (this.length == this.buffer.length) {
+                    this.drain();
+                }
+                int n = Math.min(len, this.buffer.length - this.length);
+                str.getChars(off, off + n, this.buffer, this.length);
+                this.length += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void drain() throws IOException {
+            if (this.length > 0) {
+                this.target.write(this.buffer, 0, this.length);
+                this.length = 0;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.drain();
+            this.target.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.flush();
+        }
+    }
 }
@@ -0,0 +1,96 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import truenotzero.smart_config.ConfigSequence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link ConfigSequence} kept in the {@link BinaryTranslator} encoding, decoding elements on access
+ * <p>
+ *     The whole array is one binary document; the offset of every element and the document's name table are
+ *     enough to decode any element on its own.
+ * </p>
+ *
+ * @see StreamingTypeAdapterFactory
+ */
+final class LazySequence<T> extends ConfigSequence<T> {
+    private final byte[] bytes;
+    private final int[] offsets;
+    private final List<String> names;
+    private final TypeAdapter<T> adapter;
+
+    /**
+     * @param offsets Where each element starts, followed by where the last one ends
+     */
+    LazySequence(byte[] bytes, int[] offsets, List<String> names, TypeAdapter<T> adapter) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+        this.names = names;
+        this.adapter = adapter;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= this.size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size());
+        }
+        try {
+            return this.adapter.read(this.reader(index));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Get the number of bytes the encoded elements take
+     */
+    int encodedSize() {
+        return this.bytes.length;
+    }
+
+    /**
+     * Write every element as it was read, without decoding it
+     */
+    void writeTo(JsonWriter out) throws IOException {
+        out.beginArray();
+        for (int i = 0; i < this.size(); ++i) {
+            BinaryJsonConverter.copy(this.reader(i), out);
+        }
+        out.endArray();
+    }
+
+    private BinaryJsonReader reader(int index) {
+        BinaryJsonReader reader = new BinaryJsonReader(this.bytes, this.offsets[index],
+                this.offsets[index + 1] - this.offsets[index], this.names);
+        reader.setLenient(true);
+        return reader;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof LazySequence) {
+            LazySequence<?> that = (LazySequence<?>) o;
+            if (Arrays.equals(this.bytes, that.bytes) && Arrays.equals(this.offsets, that.offsets)
+                    && this.names.equals(that.names)) {
+                // same encoding, same elements
+                return true;
+            }
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
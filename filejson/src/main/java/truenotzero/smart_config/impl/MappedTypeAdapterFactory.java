@@ -0,0 +1,358 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import truenotzero.smart_config.MappedDoubleArray;
+import truenotzero.smart_config.MappedIndex;
+import truenotzero.smart_config.MappedIntArray;
+import truenotzero.smart_config.MappedLongArray;
+import truenotzero.smart_config.api.AtomicFiles;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Backs {@link MappedIntArray}, {@link MappedLongArray}, {@link MappedDoubleArray} and {@link MappedIndex} config
+ * fields with memory-mapped sidecar files
+ * <p>
+ *     When such a field is read, its values are streamed from the JSON (or binary) source into a sidecar file and
+ *     the file is mapped; the values never sit on the heap, except the keys of an index while they are sorted.
+ *     Sidecars are named after the SHA-256 of their content, so configs that didn't change map the file they
+ *     already have, identical tables share one, and a file is never modified once written: a reload maps a new
+ *     file and the old mapping stays valid for whoever still reads it. Writing a field writes its values back as
+ *     JSON, straight from the mapping.
+ * </p>
+ * <p>
+ *     The digest is only known once the values are written, so every read writes the whole table to a temp file,
+ *     even when a sidecar with the same content already exists; the copy is then simply deleted. Reading a table
+ *     costs a write of its size to the sidecar directory, changed or not.
+ * </p>
+ * <p>
+ *     Sidecars of tables that are no longer used are not deleted. The directory is a cache: it can be emptied
+ *     whenever no process has it mapped.
+ * </p>
+ * <p>
+ *     Register it with {@link com.google.gson.GsonBuilder#registerTypeAdapterFactory(TypeAdapterFactory)}.
+ *     {@link FilesystemJson} registers it.
+ * </p>
+ */
+public final class MappedTypeAdapterFactory implements TypeAdapterFactory {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Path directory;
+
+    /**
+     * @param directory Where to keep the sidecar files, created when first needed
+     */
+    public MappedTypeAdapterFactory(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Get the directory of the sidecar files
+     */
+    public Path directory() {
+        return directory;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+        Class<? super T> raw = typeToken.getRawType();
+        if (raw == MappedIntArray.class) {
+            return (TypeAdapter<T>) new IntArrayAdapter(gson.getAdapter(int.class));
+        } else if (raw == MappedLongArray.class) {
+            return (TypeAdapter<T>) new LongArrayAdapter(gson.getAdapter(long.class));
+        } else if (raw == MappedDoubleArray.class) {
+            return (TypeAdapter<T>) new DoubleArrayAdapter(gson.getAdapter(double.class));
+        } else if (raw == MappedIndex.class) {
+            return (TypeAdapter<T>) new IndexAdapter(gson.getAdapter(long.class));
+        }
+        return null;
+    }
+
+    /**
+     * Writes the content of a sidecar
+     */
+    @FunctionalInterface
+    private interface Content {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * A mapped sidecar
+     */
+    private static final class Sidecar {
+        final ByteBuffer buffer;
+        final byte[] digest;
+
+        Sidecar(ByteBuffer buffer, byte[] digest) {
+            this.buffer = buffer;
+            this.digest = digest;
+        }
+    }
+
+    /**
+     * Write a sidecar, or find the one that already has the same content, and map it
+     *
+     * @param extension The kind of table, part of the file name
+     */
+    private Sidecar sidecar(String extension, Content content) throws IOException {
+        Files.createDirectories(this.directory);
+        Path tmp = Files.createTempFile(this.directory, extension, ".tmp");
+        try {
+            MessageDigest sha = newDigest();
+            long size;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new DigestOutputStream(Files.newOutputStream(tmp), sha), 64 * 1024))) {
+                content.write(out);
+                out.flush();
+                size = Files.size(tmp);
+            }
+            byte[] digest = sha.digest();
+            Path target = this.directory.resolve(hex(digest) + '.' + extension);
+            if (!Files.exists(target) || Files.size(target) != size) {
+                // a file of the wrong size can only be left over from something else, replace it
+                try {
+                    AtomicFiles.move(tmp, target);
+                } catch (FileAlreadyExistsException e) {
+                    // written by someone else meanwhile, same content
+                }
+            }
+            return new Sidecar(map(target), digest);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return ByteBuffer.allocate(0);
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Table too big to map: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is always available", e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private final class IntArrayAdapter extends TypeAdapter<MappedIntArray> {
+        private final TypeAdapter<Integer> element;
+
+        IntArrayAdapter(TypeAdapter<Integer> element) {
+            this.element = element;
+        }
+
+        @Override
+        public MappedIntArray read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Sidecar sidecar = sidecar("i32", out -> {
+                in.beginArray();
+                try {
+                    while (in.hasNext()) {
+                        out.writeInt(in.nextInt());
+                    }
+                } catch (NumberFormatException e) {
+                    throw new JsonSyntaxException(e);
+                }
+                in.endArray();
+            });
+            return new MappedIntArray(sidecar.buffer, sidecar.digest);
+        }
+
+        @Override
+        public void write(JsonWriter out, MappedIntArray values) throws IOException {
+            if (values == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int i = 0; i < values.size(); ++i) {
+                this.element.write(out, values.get(i));
+            }
+            out.endArray();
+        }
+    }
+
+    private final class LongArrayAdapter extends TypeAdapter<MappedLongArray> {
+        private final TypeAdapter<Long> element;
+
+        LongArrayAdapter(TypeAdapter<Long> element) {
+            this.element = element;
+        }
+
+        @Override
+        public MappedLongArray read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Sidecar sidecar = sidecar("i64", out -> {
+                in.beginArray();
+                try {
+                    while (in.hasNext()) {
+                        out.writeLong(in.nextLong());
+                    }
+                } catch (NumberFormatException e) {
+                    throw new JsonSyntaxException(e);
+                }
+                in.endArray();
+            });
+            return new MappedLongArray(sidecar.buffer, sidecar.digest);
+        }
+
+        @Override
+        public void write(JsonWriter out, MappedLongArray values) throws IOException {
+            if (values == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int i = 0; i < values.size(); ++i) {
+                this.element.write(out, values.get(i));
+            }
+            out.endArray();
+        }
+    }
+
+    private final class DoubleArrayAdapter extends TypeAdapter<MappedDoubleArray> {
+        private final TypeAdapter<Double> element;
+
+        DoubleArrayAdapter(TypeAdapter<Double> element) {
+            this.element = element;
+        }
+
+        @Override
+        public MappedDoubleArray read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            Sidecar sidecar = sidecar("f64", out -> {
+                in.beginArray();
+                while (in.hasNext()) {
+                    out.writeDouble(in.nextDouble());
+                }
+                in.endArray();
+            });
+            return new MappedDoubleArray(sidecar.buffer, sidecar.digest);
+        }
+
+        @Override
+        public void write(JsonWriter out, MappedDoubleArray values) throws IOException {
+            if (values == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int i = 0; i < values.size(); ++i) {
+                this.element.write(out, values.get(i));
+            }
+            out.endArray();
+        }
+    }
+
+    private final class IndexAdapter extends TypeAdapter<MappedIndex> {
+        private final TypeAdapter<Long> value;
+
+        IndexAdapter(TypeAdapter<Long> value) {
+            this.value = value;
+        }
+
+        @Override
+        public MappedIndex read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            // the keys have to be sorted before they can be written
+            TreeMap<byte[], Long> sorted = new TreeMap<>(MappedIndex::compare);
+            in.beginObject();
+            try {
+                while (in.hasNext()) {
+                    String key = in.nextName();
+                    if (sorted.put(key.getBytes(StandardCharsets.UTF_8), in.nextLong()) != null) {
+                        throw new JsonSyntaxException("duplicate key: " + key);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
+            in.endObject();
+
+            Sidecar sidecar = sidecar("idx", out -> {
+                // the layout of MappedIndex
+                out.writeInt(sorted.size());
+                int offset = 0;
+                for (byte[] key : sorted.keySet()) {
+                    out.writeInt(offset);
+                    offset += key.length;
+                }
+                out.writeInt(offset);
+                for (Map.Entry<byte[], Long> entry : sorted.entrySet()) {
+                    out.writeLong(entry.getValue());
+                }
+                for (byte[] key : sorted.keySet()) {
+                    out.write(key);
+                }
+            });
+            return new MappedIndex(sidecar.buffer, sidecar.digest);
+        }
+
+        @Override
+        public void write(JsonWriter out, MappedIndex index) throws IOException {
+            if (index == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (int i = 0; i < index.size(); ++i) {
+                out.name(index.keyAt(i));
+                this.value.write(out, index.valueAt(i));
+            }
+            out.endObject();
+        }
+    }
+}
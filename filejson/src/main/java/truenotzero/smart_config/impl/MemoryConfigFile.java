@@ -0,0 +1,143 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.api.ConfigFile;
+
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * A UTF-8 {@link ConfigFile} kept in memory
+ * <p>Binary content is supported too.</p>
+ *
+ * @see MemoryConfigFileProvider
+ */
+public class MemoryConfigFile implements ConfigFile {
+    private final MemoryConfigFileProvider.Slot slot;
+
+    MemoryConfigFile(MemoryConfigFileProvider.Slot slot) {
+        this.slot = slot;
+    }
+
+    /**
+     * Get the path of this file
+     */
+    public String path() {
+        return slot.path;
+    }
+
+    @Override
+    public boolean exists() {
+        return slot.content != null;
+    }
+
+    /**
+     * Create an empty file if it doesn't exist. Not written through: the first write is.
+     */
+    @Override
+    public boolean create() {
+        synchronized (this.slot) {
+            if (this.slot.content != null) {
+                return false;
+            }
+            this.slot.content = new MemoryConfigFileProvider.Content(ByteBuffer.allocate(0).asReadOnlyBuffer(),
+                    System.currentTimeMillis());
+            return true;
+        }
+    }
+
+    @Override
+    public long size() {
+        MemoryConfigFileProvider.Content content = slot.content;
+        return content == null ? -1 : content.bytes.remaining();
+    }
+
+    @Override
+    public long lastModified() {
+        MemoryConfigFileProvider.Content content = slot.content;
+        return content == null ? -1 : content.lastModified;
+    }
+
+    /**
+     * Get a {@link Writer} that replaces the content when closed
+     */
+    @Override
+    public Writer writer() {
+        return new CharArrayWriter() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                MemoryConfigFile.this.replace(this.buf, 0, this.count);
+            }
+        };
+    }
+
+    @Override
+    public Reader reader() {
+        CharBuffer chars = StandardCharsets.UTF_8.decode(this.bytes());
+        return new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+    }
+
+    @Override
+    public InputStream inputStream() {
+        ByteBuffer bytes = this.bytes();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return bytes.hasRemaining() ? bytes.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (len == 0) {
+                    return 0;
+                }
+                if (!bytes.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, bytes.remaining());
+                bytes.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return bytes.remaining();
+            }
+        };
+    }
+
+    private ByteBuffer bytes() {
+        MemoryConfigFileProvider.Content content = slot.content;
+        if (content == null) {
+            throw new UncheckedIOException(new NoSuchFileException(slot.path));
+        }
+        return content.bytes.duplicate();
+    }
+
+    @Override
+    public void replace(char[] content, int offset, int length) {
+        this.slot.write(this.provider().content(content, offset, length));
+    }
+
+    @Override
+    public void replace(byte[] content, int offset, int length) {
+        this.slot.write(this.provider().content(content, offset, length));
+    }
+
+    private MemoryConfigFileProvider provider() {
+        return this.slot.provider();
+    }
+}
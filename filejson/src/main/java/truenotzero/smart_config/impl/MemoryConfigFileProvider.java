@@ -0,0 +1,293 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.api.ConfigFile;
+import truenotzero.smart_config.api.ConfigFileProvider;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Provides {@link ConfigFile}'s kept in memory
+ * <p>
+ *     Contents are immutable {@link ByteBuffer}s, on the heap or {@link ByteBuffer#allocateDirect(int) direct},
+ *     swapped atomically on every write, so any number of threads can read and write without locking and a reader
+ *     always sees a whole version of a file. Nothing touches the disk, which makes this provider a good fit for
+ *     tests, benchmarks, and containers that receive their config at boot (see {@link #put(String, byte[])}).
+ * </p>
+ * <p>
+ *     Optionally, writes go through to another provider on an {@link Executor}, without making the writer wait.
+ *     Write-through is serialized per file, and writes that pile up while one is in progress are coalesced: only
+ *     the latest content is written. {@link #flush()} waits for everything written so far to go through.
+ * </p>
+ *
+ * @see MemoryConfigFile
+ */
+public class MemoryConfigFileProvider implements ConfigFileProvider {
+    /**
+     * The content of a file, and when it was written
+     */
+    static final class Content {
+        final ByteBuffer bytes;
+        final long lastModified;
+
+        Content(ByteBuffer bytes, long lastModified) {
+            this.bytes = bytes;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * A path, and its write-through state
+     */
+    final class Slot {
+        final String path;
+        volatile Content content;
+        private Content unwritten;
+        private boolean scheduled;
+
+        Slot(String path) {
+            this.path = path;
+        }
+
+        MemoryConfigFileProvider provider() {
+            return MemoryConfigFileProvider.this;
+        }
+
+        void write(Content content) {
+            if (MemoryConfigFileProvider.this.target == null) {
+                this.content = content;
+                return;
+            }
+            synchronized (this) {
+                // together, so that the last content in memory is also the last one written through
+                this.content = content;
+                if (this.unwritten == null && !this.scheduled) {
+                    MemoryConfigFileProvider.this.pending(1);
+                }
+                this.unwritten = content;
+                if (this.scheduled) {
+                    // the running write-through picks it up
+                    return;
+                }
+                this.scheduled = true;
+            }
+            this.schedule();
+        }
+
+        private void schedule() {
+            try {
+                MemoryConfigFileProvider.this.executor.execute(this::writeThrough);
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    this.unwritten = null;
+                    this.scheduled = false;
+                }
+                MemoryConfigFileProvider.this.failed(this.path, e);
+                MemoryConfigFileProvider.this.pending(-1);
+            }
+        }
+
+        private void writeThrough() {
+            Content latest;
+            synchronized (this) {
+                latest = this.unwritten;
+                this.unwritten = null;
+            }
+            try {
+                MemoryConfigFileProvider.this.writeThrough(this.path, latest);
+            } catch (IOException | RuntimeException e) {
+                MemoryConfigFileProvider.this.failed(this.path, e);
+            }
+            synchronized (this) {
+                if (this.unwritten == null) {
+                    this.scheduled = false;
+                    MemoryConfigFileProvider.this.pending(-1);
+                    return;
+                }
+            }
+            this.schedule();
+        }
+    }
+
+    private final boolean direct;
+    private final ConfigFileProvider target;
+    private final Executor executor;
+    private final ConcurrentMap<String, Slot> slots;
+    private final Object flushLock;
+    private int pending;
+    private final List<Exception> failures;
+
+    /**
+     * Create a provider that keeps contents on the heap, and doesn't write them anywhere
+     */
+    public MemoryConfigFileProvider() {
+        this(false, null, null);
+    }
+
+    /**
+     * @param direct {@code true} to keep contents in direct buffers, outside of the heap
+     */
+    public MemoryConfigFileProvider(boolean direct) {
+        this(direct, null, null);
+    }
+
+    /**
+     * Create a provider that writes through to another one
+     *
+     * @param direct {@code true} to keep contents in direct buffers, outside of the heap
+     * @param target The provider to write through to, or {@code null} not to
+     * @param executor Where to write through. Required with a target.
+     */
+    public MemoryConfigFileProvider(boolean direct, ConfigFileProvider target, Executor executor) {
+        if (target != null && executor == null) {
+            throw new IllegalArgumentException("Writing through needs an executor");
+        }
+        this.direct = direct;
+        this.target = target;
+        this.executor = executor;
+        this.slots = new ConcurrentHashMap<>();
+        this.flushLock = new Object();
+        this.failures = new ArrayList<>();
+    }
+
+    @Override
+    public MemoryConfigFile get(String path) {
+        return new MemoryConfigFile(this.slot(path));
+    }
+
+    Slot slot(String path) {
+        return this.slots.computeIfAbsent(path, Slot::new);
+    }
+
+    /**
+     * Set the content of a file, for example with config received at boot. Written through like any other write.
+     *
+     * @param path The file's path
+     * @param content The bytes, copied
+     */
+    public void put(String path, byte[] content) {
+        this.slot(path).write(this.content(content, 0, content.length));
+    }
+
+    /**
+     * Set the content of a file as UTF-8 text
+     *
+     * @see #put(String, byte[])
+     */
+    public void put(String path, String content) {
+        this.put(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Delete a file. Not written through.
+     *
+     * @return {@code true} if it existed
+     */
+    public boolean remove(String path) {
+        Slot slot = this.slots.get(path);
+        if (slot == null || slot.content == null) {
+            return false;
+        }
+        slot.content = null;
+        return true;
+    }
+
+    /**
+     * Get the paths of every file, sorted
+     */
+    public Set<String> paths() {
+        Set<String> paths = new TreeSet<>();
+        for (Slot slot : this.slots.values()) {
+            if (slot.content != null) {
+                paths.add(slot.path);
+            }
+        }
+        return Collections.unmodifiableSet(paths);
+    }
+
+    /**
+     * Copy bytes into an immutable content
+     */
+    Content content(byte[] content, int offset, int length) {
+        ByteBuffer bytes = this.direct ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        bytes.put(content, offset, length).flip();
+        return new Content(bytes.asReadOnlyBuffer(), System.currentTimeMillis());
+    }
+
+    /**
+     * Encode characters into an immutable content
+     */
+    Content content(char[] content, int offset, int length) {
+        ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(content, offset, length));
+        if (!this.direct) {
+            return new Content(encoded.asReadOnlyBuffer(), System.currentTimeMillis());
+        }
+        ByteBuffer bytes = ByteBuffer.allocateDirect(encoded.remaining());
+        bytes.put(encoded).flip();
+        return new Content(bytes.asReadOnlyBuffer(), System.currentTimeMillis());
+    }
+
+    private void writeThrough(String path, Content content) throws IOException {
+        ConfigFile file = this.target.get(path);
+        ByteBuffer bytes = content.bytes.duplicate();
+        byte[] array = new byte[bytes.remaining()];
+        bytes.get(array);
+        try {
+            file.replace(array, 0, array.length);
+        } catch (UnsupportedOperationException e) {
+            // a text only file
+            file.create();
+            CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(array));
+            file.replace(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        }
+    }
+
+    private void failed(String path, Exception e) {
+        synchronized (this.flushLock) {
+            this.failures.add(new IOException("Failed to write " + path + " through", e));
+        }
+    }
+
+    private void pending(int delta) {
+        synchronized (this.flushLock) {
+            this.pending += delta;
+            if (this.pending == 0) {
+                this.flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until every write so far went through
+     * <p>Does nothing without write-through.</p>
+     *
+     * @throws IOException If any write-through failed since the last flush. Failed writes are not retried.
+     * @throws InterruptedException If interrupted while waiting
+     */
+    public void flush() throws IOException, InterruptedException {
+        List<Exception> failed;
+        synchronized (this.flushLock) {
+            while (this.pending > 0) {
+                this.flushLock.wait();
+            }
+            if (this.failures.isEmpty()) {
+                return;
+            }
+            failed = new ArrayList<>(this.failures);
+            this.failures.clear();
+        }
+        IOException e = new IOException(failed.size() + " write-through(s) failed", failed.get(0));
+        failed.stream().skip(1).forEach(e::addSuppressed);
+        throw e;
+    }
+}
@@ -0,0 +1,218 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.api.AtomicFiles;
+import truenotzero.smart_config.api.ConfigFile;
+
+import java.io.BufferedWriter;
+import java.io.CharArrayReader;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+
+/**
+ * A UTF-8 {@link ConfigFile} on top of {@link java.nio.file}
+ * <p>
+ *     Binary content is supported too, through {@link #inputStream()} and {@link #replace(byte[], int, int)}.
+ * </p>
+ * <p>
+ *     Reading decodes the whole file at once: files smaller than the mapping threshold are read with a single bulk
+ *     read, bigger ones are memory mapped. The returned {@link Reader}s and {@link Writer}s should be closed by the
+ *     caller; {@link truenotzero.smart_config.ConfigLoader ConfigLoader} does.
+ * </p>
+ * <p>
+ *     {@link #replace(char[], int, int)} writes a temporary file next to this one, forces it to disk and renames it
+ *     over this file, so readers and crashes never see a partially written config.
+ * </p>
+ * <p>
+ *     Gzip and deflate files (see {@link Compression}) are decompressed while they are read and compressed while
+ *     they are written, as streams: they are never held uncompressed on disk nor mapped.
+ * </p>
+ *
+ * @see NioConfigFileProvider
+ */
+public class NioConfigFile implements ConfigFile {
+    private final Path path;
+    private final long mapThreshold;
+    private final CompressionStats stats;
+
+    NioConfigFile(Path path, long mapThreshold, CompressionStats stats) {
+        this.path = path;
+        this.mapThreshold = mapThreshold;
+        this.stats = stats;
+    }
+
+    /**
+     * Get the path of this file
+     *
+     * @return The resolved {@link Path}
+     */
+    public Path path() {
+        return path;
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(path);
+    }
+
+    @Override
+    public boolean create() {
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            Files.createFile(path);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public long size() {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public long lastModified() {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public Writer writer() {
+        try {
+            Compression compression = Compression.of(path);
+            if (compression != Compression.NONE) {
+                OutputStream out = stats.writing(compression, Files.newOutputStream(path));
+                return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            }
+            return Files.newBufferedWriter(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Reader reader() {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Compression compression = Compression.of(path, channel);
+            long size = channel.size();
+            ByteBuffer bytes;
+            if (compression != Compression.NONE) {
+                InputStream in = stats.reading(compression, Files.newInputStream(path));
+                return new InputStreamReader(in, StandardCharsets.UTF_8);
+            } else if (size > Integer.MAX_VALUE - 8) {
+                // Too big to map or read in one go, stream it instead
+                return Channels.newReader(FileChannel.open(path, StandardOpenOption.READ), StandardCharsets.UTF_8.name());
+            } else if (size >= mapThreshold) {
+                // The mapping stays valid after the channel is closed
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // keep reading, a single read may return less than asked for
+                }
+                bytes.flip();
+            }
+
+            CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+            return new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream inputStream() {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            return stats.reading(Compression.of(path, channel), Channels.newInputStream(channel));
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void replace(char[] content, int offset, int length) throws IOException {
+        this.replace(StandardCharsets.UTF_8.encode(CharBuffer.wrap(content, offset, length)));
+    }
+
+    @Override
+    public void replace(byte[] content, int offset, int length) throws IOException {
+        this.replace(ByteBuffer.wrap(content, offset, length));
+    }
+
+    private void replace(ByteBuffer bytes) throws IOException {
+        Path target = path.toAbsolutePath();
+        // decided before the temp file exists, a gzipped file keeps being gzipped
+        Compression compression = Compression.of(target);
+        AtomicFiles.replace(target, tmp -> {
+            if (Files.exists(target) && Files.getFileStore(target).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                // temp files are private, keep the permissions the config had
+                Files.setPosixFilePermissions(tmp, Files.getPosixFilePermissions(target));
+            }
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                if (compression == Compression.NONE) {
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                } else {
+                    try (OutputStream out = stats.writing(compression, unclosable(Channels.newOutputStream(channel)))) {
+                        Channels.newChannel(out).write(bytes);
+                    }
+                }
+                channel.force(true);
+            }
+        });
+    }
+
+    private static OutputStream unclosable(OutputStream out) {
+        // the channel still has to be forced once the compressed trailer is written
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                this.out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                this.flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.api.ConfigFile;
+import truenotzero.smart_config.api.ConfigFileProvider;
+
+import java.nio.file.Path;
+
+/**
+ * Provides UTF-8 {@link ConfigFile}'s from the filesystem using the NIO API
+ * <p>Paths are resolved against the parent directory; absolute paths are used as they are</p>
+ * <p>Compressed files such as {@code config.json.gz} are (de)compressed transparently, see {@link NioConfigFile}</p>
+ *
+ * @see NioConfigFile
+ */
+public class NioConfigFileProvider implements ConfigFileProvider {
+    /**
+     * Files this size or bigger are memory mapped instead of read into a buffer
+     */
+    public static final long DEFAULT_MAP_THRESHOLD = 1024 * 1024;
+
+    private final Path parentDirectory;
+    private final long mapThreshold;
+    private final CompressionStats compressionStats = new CompressionStats();
+
+    public NioConfigFileProvider(Path parentDirectory) {
+        this(parentDirectory, DEFAULT_MAP_THRESHOLD);
+    }
+
+    /**
+     * @param parentDirectory The directory config paths are relative to
+     * @param mapThreshold The size in bytes from which files are memory mapped
+     */
+    public NioConfigFileProvider(Path parentDirectory, long mapThreshold) {
+        this.parentDirectory = parentDirectory;
+        this.mapThreshold = mapThreshold;
+    }
+
+    /**
+     * Resolve a config path
+     *
+     * @param path The path, as given in {@code @Config}
+     * @return The path on disk
+     */
+    public Path resolve(String path) {
+        return this.parentDirectory.resolve(path);
+    }
+
+    @Override
+    public NioConfigFile get(String path) {
+        return new NioConfigFile(this.resolve(path), this.mapThreshold, this.compressionStats);
+    }
+
+    /**
+     * @return The byte counters of the compressed files this provider has read and written
+     */
+    public CompressionStats compressionStats() {
+        return this.compressionStats;
+    }
+}
@@ -0,0 +1,292 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.internal.$Gson$Types;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import truenotzero.smart_config.ConfigSequence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Reads big arrays in configs without building an object per element
+ * <p>
+ *     Gson reads {@code int[]}, {@code long[]}, {@code float[]} and {@code double[]} by boxing every element into a
+ *     list and copying the list into the array afterwards. The adapters of this factory stream the numbers straight
+ *     into a growing primitive array instead. Writing goes through Gson's own adapters, so the output doesn't
+ *     change.
+ * </p>
+ * <p>
+ *     {@link ConfigSequence} fields are read into a lazy sequence that keeps the array in the compact
+ *     {@link BinaryTranslator} encoding, and only decodes an element when it is accessed. A lazy sequence is written
+ *     back without being decoded at all, so its elements come out as they were read rather than as Gson would
+ *     format them.
+ * </p>
+ * <p>
+ *     Register it with {@link com.google.gson.GsonBuilder#registerTypeAdapterFactory(TypeAdapterFactory)}, on the
+ *     {@link Gson} given to {@link JsonTranslator} or {@link BinaryTranslator}; generated {@link JsonCodec}s pick it
+ *     up too. {@link FilesystemJson} registers it.
+ * </p>
+ */
+public final class StreamingTypeAdapterFactory implements TypeAdapterFactory {
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+        Class<? super T> raw = typeToken.getRawType();
+        if (raw == int[].class) {
+            return (TypeAdapter<T>) new IntArrayAdapter(gson.getAdapter(int.class));
+        } else if (raw == long[].class) {
+            return (TypeAdapter<T>) new LongArrayAdapter(gson.getAdapter(long.class));
+        } else if (raw == double[].class) {
+            return (TypeAdapter<T>) new DoubleArrayAdapter(gson.getAdapter(double.class));
+        } else if (raw == float[].class) {
+            return (TypeAdapter<T>) new FloatArrayAdapter(gson.getAdapter(float.class));
+        } else if (raw == ConfigSequence.class) {
+            Type element = $Gson$Types.getCollectionElementType(typeToken.getType(), raw);
+            return (TypeAdapter<T>) new SequenceAdapter<>(gson.getAdapter(TypeToken.get(element)));
+        }
+        return null;
+    }
+
+    /**
+     * Get the next capacity of a full array
+     */
+    private static int grow(int length) {
+        if (length >= Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("Array too big");
+        }
+        return (int) Math.min(Integer.MAX_VALUE - 8, length * 2L);
+    }
+
+    private static final class IntArrayAdapter extends TypeAdapter<int[]> {
+        private final TypeAdapter<Integer> element;
+
+        IntArrayAdapter(TypeAdapter<Integer> element) {
+            this.element = element;
+        }
+
+        @Override
+        public int[] read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            int[] values = new int[16];
+            int size = 0;
+            in.beginArray();
+            try {
+                while (in.hasNext()) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, grow(values.length));
+                    }
+                    values[size++] = in.nextInt();
+                }
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
+            in.endArray();
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public void write(JsonWriter out, int[] values) throws IOException {
+            if (values == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (int value : values) {
+                this.element.write(out, value);
+            }
+            out.endArray();
+        }
+    }
+
+    private static final class LongArrayAdapter extends TypeAdapter<long[]> {
+        private final TypeAdapter<Long> element;
+
+        LongArrayAdapter(TypeAdapter<Long> element) {
+            this.element = element;
+        }
+
+        @Override
+        public long[] read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            long[] values = new long[16];
+            int size = 0;
+            in.beginArray();
+            try {
+                while (in.hasNext()) {
+                    if (size == values.length) {
+                        values = Arrays.copyOf(values, grow(values.length));
+                    }
+                    values[size++] = in.nextLong();
+                }
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
+            in.endArray();
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public void write(JsonWriter out, long[] values) throws IOException {
+            if (values == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (long value : values) {
+                this.element.write(out, value);
+            }
+            out.endArray();
+        }
+    }
+
+    private static final class DoubleArrayAdapter extends TypeAdapter<double[]> {
+        private final TypeAdapter<Double> element;
+
+        DoubleArrayAdapter(TypeAdapter<Double> element) {
+            this.element = element;
+        }
+
+        @Override
+        public double[] read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            double[] values = new double[16];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, grow(values.length));
+                }
+                values[size++] = in.nextDouble();
+            }
+            in.endArray();
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public void write(JsonWriter out, double[] values) throws IOException {
+            if (values == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (double value : values) {
+                this.element.write(out, value);
+            }
+            out.endArray();
+        }
+    }
+
+    private static final class FloatArrayAdapter extends TypeAdapter<float[]> {
+        private final TypeAdapter<Float> element;
+
+        FloatArrayAdapter(TypeAdapter<Float> element) {
+            this.element = element;
+        }
+
+        @Override
+        public float[] read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            float[] values = new float[16];
+            int size = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, grow(values.length));
+                }
+                values[size++] = (float) in.nextDouble();
+            }
+            in.endArray();
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        }
+
+        @Override
+        public void write(JsonWriter out, float[] values) throws IOException {
+            if (values == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginArray();
+            for (float value : values) {
+                this.element.write(out, value);
+            }
+            out.endArray();
+        }
+    }
+
+    private static final class SequenceAdapter<E> extends TypeAdapter<ConfigSequence<E>> {
+        private final TypeAdapter<E> element;
+
+        SequenceAdapter(TypeAdapter<E> element) {
+            this.element = element;
+        }
+
+        @Override
+        public ConfigSequence<E> read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BinaryJsonWriter encoded = new BinaryJsonWriter(bytes, Collections.emptyList());
+            encoded.setLenient(true);
+            encoded.setSerializeNulls(true);
+            int[] offsets = new int[16];
+            int size = 0;
+
+            encoded.beginArray();
+            in.beginArray();
+            while (in.hasNext()) {
+                if (size + 1 >= offsets.length) {
+                    offsets = Arrays.copyOf(offsets, grow(offsets.length));
+                }
+                offsets[size++] = (int) encoded.position();
+                BinaryJsonConverter.copy(in, encoded);
+            }
+            in.endArray();
+            offsets[size] = (int) encoded.position();
+            encoded.endArray();
+            encoded.flush();
+            return new LazySequence<>(bytes.toByteArray(), Arrays.copyOf(offsets, size + 1), encoded.names(),
+                    this.element);
+        }
+
+        @Override
+        public void write(JsonWriter out, ConfigSequence<E> sequence) throws IOException {
+            if (sequence == null) {
+                out.nullValue();
+                return;
+            }
+            if (sequence instanceof LazySequence) {
+                ((LazySequence<E>) sequence).writeTo(out);
+                return;
+            }
+            out.beginArray();
+            for (E e : sequence) {
+                this.element.write(out, e);
+            }
+            out.endArray();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.api.ConfigFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.CharArrayReader;
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+
+/**
+ * A UTF-8 {@link ConfigFile} stored as an entry of a zip or jar archive
+ * <p>
+ *     Binary content is supported too. Reads go straight to the archive; writes are kept in memory until the
+ *     provider rewrites it, see {@link ZipConfigFileProvider}.
+ * </p>
+ *
+ * @see ZipConfigFileProvider
+ */
+public class ZipConfigFile implements ConfigFile {
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ZipConfigFileProvider archive;
+    private final String name;
+
+    ZipConfigFile(ZipConfigFileProvider archive, String name) {
+        this.archive = archive;
+        this.name = name;
+    }
+
+    /**
+     * Get the name of the entry in the archive
+     */
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public boolean exists() {
+        ZipEntry entry = this.archive.entry(this.name);
+        return entry != null && !entry.isDirectory();
+    }
+
+    /**
+     * Add an empty entry to the archive if there is none
+     *
+     * @throws UnsupportedOperationException If the archive is read-only
+     */
+    @Override
+    public boolean create() {
+        return this.archive.write(this.name, EMPTY, 0, 0, true);
+    }
+
+    @Override
+    public long size() {
+        ZipEntry entry = this.archive.entry(this.name);
+        return entry == null ? -1 : entry.getSize();
+    }
+
+    @Override
+    public long lastModified() {
+        ZipEntry entry = this.archive.entry(this.name);
+        return entry == null ? -1 : entry.getTime();
+    }
+
+    /**
+     * Get a {@link Writer} that replaces the entry when closed
+     *
+     * @throws UnsupportedOperationException On {@link Writer#close()}, if the archive is read-only
+     */
+    @Override
+    public Writer writer() {
+        return new CharArrayWriter() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                try {
+                    ZipConfigFile.this.replace(this.buf, 0, this.count);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public Reader reader() {
+        try {
+            CharBuffer chars = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(this.archive.read(this.name)));
+            return new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public InputStream inputStream() {
+        try {
+            return new ByteArrayInputStream(this.archive.read(this.name));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @throws UnsupportedOperationException If the archive is read-only
+     */
+    @Override
+    public void replace(char[] content, int offset, int length) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(content, offset, length));
+        this.archive.write(this.name, bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(), false);
+    }
+
+    /**
+     * @throws UnsupportedOperationException If the archive is read-only
+     */
+    @Override
+    public void replace(byte[] content, int offset, int length) throws IOException {
+        this.archive.write(this.name, content, offset, length, false);
+    }
+}
@@ -0,0 +1,294 @@
+package truenotzero.smart_config.impl;
+
+import truenotzero.smart_config.api.AtomicFiles;
+import truenotzero.smart_config.api.ConfigFile;
+import truenotzero.smart_config.api.ConfigFileProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Provides {@link ConfigFile}'s from the entries of a single zip or jar archive
+ * <p>
+ *     The archive is opened once, and its central directory is kept in memory, so looking up, checking and reading
+ *     a config costs no file system calls beyond reading the entry's bytes in place. Entries are never extracted.
+ *     Config paths are entry names, with {@code /} as separator.
+ * </p>
+ * <p>
+ *     In {@link Mode#READ_ONLY} mode the archive is never written to: creating or writing a config throws
+ *     {@link UnsupportedOperationException}. In {@link Mode#REWRITE} mode, writes are kept in memory, where reads
+ *     already see them, until the provider is {@link #flush() flushed} or {@link #close() closed}. That builds a
+ *     new archive next to the old one, with the written entries replaced and all the others copied, and renames it
+ *     over the old one. Readers and crashes never see a partially written archive, and writing every config of a
+ *     {@link truenotzero.smart_config.ConfigLoader#init() ConfigLoader.init()} costs a single copy of the archive.
+ * </p>
+ * <p>
+ *     The provider should be {@link #close() closed} when no longer used, or the pending writes are lost. Configs
+ *     can't be read or written once it is closed.
+ * </p>
+ *
+ * @see ZipConfigFile
+ */
+public class ZipConfigFileProvider implements ConfigFileProvider, Closeable, Flushable {
+    /**
+     * Whether configs can be written back to the archive
+     */
+    public enum Mode {
+        /**
+         * Only read the archive
+         */
+        READ_ONLY,
+        /**
+         * Write configs by atomically replacing the whole archive, on {@link #flush()} and {@link #close()}
+         */
+        REWRITE
+    }
+
+    private final Path archive;
+    private final Mode mode;
+    private final ReadWriteLock lock;
+    // written entries not in the archive yet, by name
+    private final Map<String, Pending> pending;
+    private ZipFile zip;
+    private boolean closed;
+
+    /**
+     * Open an archive
+     *
+     * @param archive The zip or jar file. In {@link Mode#REWRITE} mode it is created on the first write if missing.
+     * @param mode Whether configs can be written
+     * @throws IOException If the archive exists but can't be opened
+     */
+    public ZipConfigFileProvider(Path archive, Mode mode) throws IOException {
+        this.archive = archive.toAbsolutePath();
+        this.mode = mode;
+        this.lock = new ReentrantReadWriteLock();
+        this.pending = new LinkedHashMap<>();
+        this.zip = open(this.archive);
+    }
+
+    private static ZipFile open(Path archive) throws IOException {
+        return Files.exists(archive) ? new ZipFile(archive.toFile()) : null;
+    }
+
+    /**
+     * Get the path of the archive
+     */
+    public Path archive() {
+        return archive;
+    }
+
+    /**
+     * Get whether configs can be written
+     */
+    public Mode mode() {
+        return mode;
+    }
+
+    @Override
+    public ZipConfigFile get(String path) {
+        return new ZipConfigFile(this, path);
+    }
+
+    /**
+     * Look an entry up in the central directory
+     *
+     * @return The entry, or {@code null} if there is none
+     */
+    ZipEntry entry(String name) {
+        this.lock.readLock().lock();
+        try {
+            this.checkOpen();
+            Pending written = this.pending.get(name);
+            if (written != null) {
+                return written.entry;
+            }
+            return this.zip == null ? null : this.zip.getEntry(name);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read an entry whole, the caller must not modify it
+     *
+     * @throws NoSuchFileException If there is no such entry
+     */
+    byte[] read(String name) throws IOException {
+        this.lock.readLock().lock();
+        try {
+            this.checkOpen();
+            Pending written = this.pending.get(name);
+            if (written != null) {
+                return written.content;
+            }
+            ZipEntry entry = this.zip == null ? null : this.zip.getEntry(name);
+            if (entry == null || entry.isDirectory()) {
+                throw new NoSuchFileException(this.archive + "!/" + name);
+            }
+            long size = entry.getSize();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(size < 0 || size > Integer.MAX_VALUE ? 8192 : (int) size);
+            try (InputStream in = this.zip.getInputStream(entry)) {
+                copy(in, bytes);
+            }
+            return bytes.toByteArray();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace an entry, or add it if missing, once the provider is flushed
+     *
+     * @param onlyIfMissing Leave the entry untouched if it exists
+     * @return {@code true} if the entry was written
+     * @throws UnsupportedOperationException In {@link Mode#READ_ONLY} mode
+     */
+    boolean write(String name, byte[] content, int offset, int length, boolean onlyIfMissing) {
+        if (this.mode == Mode.READ_ONLY) {
+            throw new UnsupportedOperationException("Read-only archive: " + this.archive);
+        }
+
+        this.lock.writeLock().lock();
+        try {
+            this.checkOpen();
+            if (onlyIfMissing && (this.pending.containsKey(name) || this.zip != null && this.zip.getEntry(name) != null)) {
+                return false;
+            }
+            ZipEntry entry = new ZipEntry(name);
+            entry.setTime(System.currentTimeMillis());
+            entry.setSize(length);
+            this.pending.put(name, new Pending(entry, Arrays.copyOfRange(content, offset, offset + length)));
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write the pending entries to the archive, by rewriting it once
+     *
+     * @throws IOException If the archive could not be rewritten. The entries stay pending.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            this.checkOpen();
+            this.rewrite();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private void rewrite() throws IOException {
+        if (this.pending.isEmpty()) {
+            return;
+        }
+
+        AtomicFiles.replace(this.archive, tmp -> {
+            try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(tmp))) {
+                if (this.zip != null) {
+                    Enumeration<? extends ZipEntry> entries = this.zip.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        if (this.pending.containsKey(entry.getName())) {
+                            continue;
+                        }
+                        // a fresh entry: the compressed size of the old one won't match once recompressed
+                        ZipEntry copy = new ZipEntry(entry.getName());
+                        copy.setTime(entry.getTime());
+                        copy.setComment(entry.getComment());
+                        out.putNextEntry(copy);
+                        try (InputStream in = this.zip.getInputStream(entry)) {
+                            copy(in, out);
+                        }
+                        out.closeEntry();
+                    }
+                }
+                for (Pending written : this.pending.values()) {
+                    ZipEntry entry = new ZipEntry(written.entry.getName());
+                    entry.setTime(written.entry.getTime());
+                    out.putNextEntry(entry);
+                    out.write(written.content);
+                    out.closeEntry();
+                }
+            }
+        });
+        this.pending.clear();
+
+        // the old archive stays readable through its open handle until closed, even though it was replaced
+        ZipFile old = this.zip;
+        this.zip = open(this.archive);
+        if (old != null) {
+            old.close();
+        }
+    }
+
+    private void checkOpen() {
+        if (this.closed) {
+            throw new IllegalStateException("Archive closed: " + this.archive);
+        }
+    }
+
+    private static void copy(InputStream in, OutputStream out) throws IOException {
+        byte[] chunk = new byte[8192];
+        int n;
+        while ((n = in.read(chunk)) >= 0) {
+            out.write(chunk, 0, n);
+        }
+    }
+
+    /**
+     * Write the pending entries and close the archive. Configs can't be read or written afterwards.
+     *
+     * @throws IOException If the archive could not be rewritten. It is closed all the same, and the entries lost.
+     */
+    @Override
+    public void close() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            try {
+                this.rewrite();
+            } finally {
+                this.pending.clear();
+                if (this.zip != null) {
+                    this.zip.close();
+                    this.zip = null;
+                }
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private static final class Pending {
+        final ZipEntry entry;
+        final byte[] content;
+
+        Pending(ZipEntry entry, byte[] content) {
+            this.entry = entry;
+            this.content = content;
+        }
+    }
+}
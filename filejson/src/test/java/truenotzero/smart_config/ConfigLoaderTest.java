@@ -1,6 +1,7 @@
 package truenotzero.smart_config;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -10,11 +11,21 @@ import org.mockito.MockitoAnnotations;
 import truenotzero.smart_config.api.ConfigClassLocator;
 import truenotzero.smart_config.api.ConfigFile;
 import truenotzero.smart_config.api.ConfigFileProvider;
+import truenotzero.smart_config.impl.IndexedConfigClassLocator;
+import truenotzero.smart_config.impl.JsonCodec;
 import truenotzero.smart_config.impl.JsonTranslator;
 
 import java.io.*;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -35,7 +46,7 @@ public class ConfigLoaderTest {
 
 
     @Before
-    public void before() {
+    public void before() throws IOException {
         MockitoAnnotations.initMocks(this);
 
         configClasses = new HashSet<>();
@@ -54,6 +65,7 @@ public class ConfigLoaderTest {
         });
 
         when(configFile.reader()).thenReturn(reader);
+        when(reader.read(any(char[].class), anyInt(), anyInt())).thenReturn(-1);
         when(configFile.writer()).thenReturn(writer);
 
         cl = new ConfigLoader(classLocator, fileProvider, new JsonTranslator(new Gson()));
@@ -77,6 +89,104 @@ public class ConfigLoaderTest {
         assertEquals(names, cl.scannedConfigNames());
     }
 
+    @Test
+    public void indexedLocator() {
+        ClassLoader classLoader = getClass().getClassLoader();
+        assertTrue(IndexedConfigClassLocator.isPresent(classLoader));
+
+        Set<Class<?>> located = new IndexedConfigClassLocator(classLoader, "truenotzero.smart_config").locate();
+        assertTrue(located.contains(DummyConfig.class));
+        assertTrue(new IndexedConfigClassLocator(classLoader, "some.other.pkg").locate().isEmpty());
+    }
+
+    @Test
+    public void indexOnlyUsedWhenItCoversThePackage() throws IOException {
+        // a dependency's index, listing only its own configs
+        Path dependency = Files.createTempDirectory("dependency");
+        Files.createDirectories(dependency.resolve("some/dependency"));
+        Path index = dependency.resolve(ConfigClassLocator.INDEX_RESOURCE);
+        Files.createDirectories(index.getParent());
+        Files.write(index, Collections.singletonList("some.dependency.DependencyConfig"));
+        try (URLClassLoader dependencyOnly = new URLClassLoader(
+                new URL[]{dependency.toUri().toURL()}, null)) {
+            assertTrue(IndexedConfigClassLocator.isPresent(dependencyOnly));
+            assertFalse(IndexedConfigClassLocator.covers(dependencyOnly, "truenotzero.smart_config"));
+            assertTrue(IndexedConfigClassLocator.covers(dependencyOnly, "some.dependency"));
+            assertFalse(IndexedConfigClassLocator.covers(dependencyOnly, "some.dependency_other"));
+            assertFalse(IndexedConfigClassLocator.covers(dependencyOnly, ""));
+        }
+
+        // the test configs are indexed, but the library's own classes share their package without an index
+        ClassLoader classLoader = getClass().getClassLoader();
+        assertFalse(IndexedConfigClassLocator.covers(classLoader, "truenotzero.smart_config"));
+        assertFalse(IndexedConfigClassLocator.covers(classLoader, ""));
+        assertFalse(IndexedConfigClassLocator.covers(classLoader, "some.other.pkg"));
+    }
+
+    @Test
+    public void partialIndexDoesNotCoverThePackage() throws IOException {
+        // app.one is compiled with the processor, app.two (in another jar) without
+        Path indexed = Files.createTempDirectory("indexed");
+        Files.createDirectories(indexed.resolve("app/one"));
+        Path index = indexed.resolve(ConfigClassLocator.INDEX_RESOURCE);
+        Files.createDirectories(index.getParent());
+        Files.write(index, Collections.singletonList("app.one.FirstConfig"));
+        Path unindexed = Files.createTempDirectory("unindexed");
+        Files.createDirectories(unindexed.resolve("app/two"));
+
+        try (URLClassLoader both = new URLClassLoader(
+                new URL[]{indexed.toUri().toURL(), unindexed.toUri().toURL()}, null)) {
+            assertTrue(IndexedConfigClassLocator.covers(both, "app.one"));
+            // app.two.* would be silently dropped by the index
+            assertFalse(IndexedConfigClassLocator.covers(both, "app.two"));
+            assertFalse(IndexedConfigClassLocator.covers(both, "app"));
+        }
+    }
+
+    @Test
+    public void generatedCodecMatchesGson() throws Exception {
+        assertNotNull(Class.forName(DummyConfig.class.getName() + JsonCodec.SUFFIX));
+        assertNotNull(Class.forName(CodecConfig.class.getName() + JsonCodec.SUFFIX));
+
+        Gson gson = new GsonBuilder().serializeNulls().setPrettyPrinting().create();
+        JsonTranslator json = new JsonTranslator(gson);
+
+        CodecConfig it = new CodecConfig();
+        it.names = Arrays.asList("a", "b");
+        it.anything = Collections.singletonMap("k", 1.5);
+        it.nested = new CodecConfig.Nested();
+        it.weights = new int[] { 1, 2, 3 };
+        it.self = it;
+        StringWriter out = new StringWriter();
+        json.write(out, CodecConfig.class, it);
+        assertEquals(gson.toJson(it, CodecConfig.class), out.toString());
+
+        String in = "{\"count\":null,\"ratio\":2.5,\"unknown\":[1,{}],\"renamed\":\"x\","
+                + "\"names\":[\"c\"],\"weights\":[4],\"nested\":{\"id\":7},\"anything\":{\"a\":[1]}}";
+        CodecConfig generated = json.read(new StringReader(in), CodecConfig.class);
+        CodecConfig reflective = gson.fromJson(in, CodecConfig.class);
+        assertEquals(gson.toJson(reflective), gson.toJson(generated));
+        assertEquals(5, generated.count);
+        assertEquals("x", generated.label);
+
+        assertNull(json.read(new StringReader(""), CodecConfig.class));
+    }
+
+    @Test
+    public void compactWrite() throws IOException {
+        Gson pretty = new GsonBuilder().setPrettyPrinting().create();
+        CodecConfig it = new CodecConfig();
+        it.names = Arrays.asList("a", "b");
+
+        StringWriter out = new StringWriter();
+        new JsonTranslator(pretty, true).write(out, CodecConfig.class, it);
+        assertEquals(new Gson().toJson(it), out.toString());
+
+        out = new StringWriter();
+        new JsonTranslator(pretty, false).write(out, CodecConfig.class, it);
+        assertEquals(pretty.toJson(it), out.toString());
+    }
+
     @Test
     public void verifyExistentFile() {
         when(configFile.exists()).thenReturn(true);
@@ -245,3 +355,24 @@ class DummyConfig {
     @Config.Instance
     static DummyConfig VALUES;
 }
+
+@SuppressWarnings("unused")
+@Config("cfg/codec_config.json")
+class CodecConfig {
+    int count = 5;
+    Double ratio;
+    @com.google.gson.annotations.SerializedName(value = "renamed", alternate = "label")
+    String label = "label";
+    List<String> names;
+    int[] weights;
+    Object anything;
+    Nested nested;
+    CodecConfig self;
+
+    static class Nested {
+        long id = 1;
+    }
+
+    @Config.Instance
+    static CodecConfig VALUES;
+}
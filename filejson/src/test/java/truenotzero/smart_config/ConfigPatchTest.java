@@ -0,0 +1,91 @@
+package truenotzero.smart_config;
+
+import com.google.gson.Gson;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import truenotzero.smart_config.impl.JsonTranslator;
+import truenotzero.smart_config.impl.NioConfigFileProvider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ConfigPatchTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    public static class Limit {
+        public int max;
+
+        public Limit() {
+        }
+
+        Limit(int max) {
+            this.max = max;
+        }
+    }
+
+    @Config("cfg/patch.json")
+    public static class PatchConfig {
+        public int port = 80;
+        public String host = "localhost";
+        public List<String> tags = new ArrayList<>(Arrays.asList("a", "b"));
+        public Map<String, Limit> limits = new LinkedHashMap<>();
+        public Limit main = new Limit(5);
+
+        public PatchConfig() {
+            limits.put("eu", new Limit(1));
+            limits.put("us", new Limit(2));
+        }
+
+        @Config.Instance
+        public static PatchConfig INSTANCE;
+    }
+
+    @Test
+    public void patchKeepsUnchangedValues() throws IOException {
+        ConfigLoader loader = new ConfigLoader(() -> Collections.singleton(PatchConfig.class),
+                new NioConfigFileProvider(tmp.getRoot().toPath()), new JsonTranslator(new Gson()));
+        loader.setReloadMode(ConfigLoader.ReloadMode.PATCH);
+        loader.init();
+        loader.load();
+        PatchConfig live = PatchConfig.INSTANCE;
+        Path file = tmp.getRoot().toPath().resolve("cfg/patch.json");
+
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        Files.write(file, json.replace("\"port\":80", "\"port\":81").replace("\"max\":1", "\"max\":10")
+                .getBytes(StandardCharsets.UTF_8));
+        ChangeSet changes = loader.reloadChanges(PatchConfig.class);
+
+        assertEquals(Arrays.asList("port", "limits[eu].max"),
+                changes.changes().stream().map(ChangeSet.Change::path).collect(Collectors.toList()));
+        assertTrue(changes.touches("limits"));
+        assertFalse(changes.touches("main"));
+        PatchConfig patched = PatchConfig.INSTANCE;
+        assertNotSame(live, patched);
+        assertEquals(80, live.port);
+        assertEquals(81, patched.port);
+        assertEquals(10, patched.limits.get("eu").max);
+        assertSame(live.tags, patched.tags);
+        assertSame(live.main, patched.main);
+        assertSame(live.limits.get("us"), patched.limits.get("us"));
+
+        // same values, different formatting
+        long version = loader.ref(PatchConfig.class).version();
+        Files.write(file, new String(Files.readAllBytes(file), StandardCharsets.UTF_8).replace(",", " ,")
+                .getBytes(StandardCharsets.UTF_8));
+        assertTrue(loader.reloadChanges(PatchConfig.class).isEmpty());
+        assertSame(patched, PatchConfig.INSTANCE);
+        assertEquals(version, loader.ref(PatchConfig.class).version());
+    }
+}
@@ -0,0 +1,166 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.internal.JsonReaderInternalAccess;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import truenotzero.smart_config.Config;
+import truenotzero.smart_config.ConfigLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class BinaryTranslatorTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Config("cfg/binary.bin")
+    public static class BinaryConfig {
+        public int count = 3;
+        public long big = Long.MIN_VALUE;
+        public double ratio = 0.1;
+        public float scale = 1.1f;
+        public boolean enabled = true;
+        public String label = "h\u00e9llo \u4e16\u754c \ud83d\ude00";
+        public String missing;
+        public BigDecimal exact = new BigDecimal("1e-40");
+        public int[] weights = {1, -2, 300000};
+        public List<String> names = new ArrayList<>(Arrays.asList("a", "b"));
+        public Map<String, Integer> limits = new LinkedHashMap<>();
+        public BinaryConfig nested;
+
+        @Config.Instance
+        public static BinaryConfig INSTANCE;
+    }
+
+    public static class KeyedConfig {
+        public TreeMap<Integer, String> byId = new TreeMap<>();
+        public Map<Boolean, String> byFlag = new LinkedHashMap<>();
+    }
+
+    private static BinaryConfig sample() {
+        BinaryConfig c = new BinaryConfig();
+        c.limits.put("x", 1);
+        c.limits.put("y", 2);
+        c.nested = new BinaryConfig();
+        return c;
+    }
+
+    private final Gson gson = new GsonBuilder().serializeNulls().create();
+    private final BinaryTranslator translator = new BinaryTranslator(gson);
+
+    @Test
+    public void roundTrip() throws IOException {
+        BinaryConfig c = sample();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        translator.write(out, BinaryConfig.class, c);
+
+        BinaryConfig read = translator.read(new ByteArrayInputStream(out.toByteArray()), BinaryConfig.class);
+        // binds exactly like JSON
+        assertEquals(gson.toJson(c), gson.toJson(read));
+    }
+
+    @Test
+    public void readsDirectBuffersInPlace() throws IOException {
+        BinaryConfig c = sample();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        translator.write(out, BinaryConfig.class, c);
+
+        // not backed by an array, like a mapped snapshot, and not starting at 0
+        ByteBuffer direct = ByteBuffer.allocateDirect(out.size() + 3);
+        direct.position(3);
+        direct.put(out.toByteArray());
+        direct.position(3);
+        BinaryConfig read = translator.read(direct, BinaryConfig.class);
+        assertEquals(gson.toJson(c), gson.toJson(read));
+        assertEquals(3, direct.position());
+    }
+
+    @Test
+    public void emptyIsNull() throws IOException {
+        assertNull(translator.read(new ByteArrayInputStream(new byte[0]), BinaryConfig.class));
+    }
+
+    @Test
+    public void smallerThanJson() throws IOException {
+        BinaryConfig c = sample();
+        c.weights = new int[1000];
+        for (int i = 0; i < c.weights.length; ++i) {
+            c.weights[i] = i * 37;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        translator.write(out, BinaryConfig.class, c);
+
+        assertTrue(out.size() < gson.toJson(c).length() * 3 / 4);
+    }
+
+    @Test
+    public void converterIsLossless() throws IOException {
+        String json = "{\"a\":1,\"b\":1.0,\"c\":1e5,\"d\":0.1,\"e\":-9223372036854775808,\"f\":123456789012345678901234,"
+                + "\"g\":\"\\u00e9\\ud83d\\ude00\\ud800\",\"h\":[true,false,null,[],{}],\"i\":{\"a\":\"nested\"},\"j\":null}";
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryJsonConverter.toBinary(new StringReader(json), binary);
+
+        StringWriter back = new StringWriter();
+        BinaryJsonConverter.toJson(new ByteArrayInputStream(binary.toByteArray()), back, new Gson());
+        String expected = json.replace("\\u00e9", "\u00e9").replace("\\ud83d\\ude00", "\ud83d\ude00").replace("\\ud800", "\ud800");
+        assertEquals(expected, back.toString());
+    }
+
+    @Test
+    public void converterMatchesTranslator() throws IOException {
+        BinaryConfig c = sample();
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        BinaryJsonConverter.toBinary(new StringReader(gson.toJson(c)), binary);
+
+        BinaryConfig read = translator.read(new ByteArrayInputStream(binary.toByteArray()), BinaryConfig.class);
+        assertEquals(gson.toJson(c), gson.toJson(read));
+    }
+
+    @Test
+    public void loadsThroughConfigLoader() throws IOException {
+        NioConfigFileProvider files = new NioConfigFileProvider(tmp.getRoot().toPath());
+        ConfigLoader loader = new ConfigLoader(() -> Collections.singleton(BinaryConfig.class), files, translator);
+        loader.init();
+        loader.load();
+        assertEquals(3, BinaryConfig.INSTANCE.count);
+
+        BinaryConfig.INSTANCE.count = 42;
+        assertTrue(loader.store(BinaryConfig.class));
+        assertFalse(loader.store(BinaryConfig.class));
+        BinaryConfig.INSTANCE = null;
+        loader.load(BinaryConfig.class);
+        assertEquals(42, BinaryConfig.INSTANCE.count);
+    }
+
+    @Test
+    public void readsMapKeysWithoutPatchingGson() throws IOException {
+        KeyedConfig c = new KeyedConfig();
+        c.byId.put(10, "ten");
+        c.byId.put(2, "two");
+        c.byFlag.put(true, "yes");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        translator.write(out, KeyedConfig.class, c);
+
+        KeyedConfig read = translator.read(new ByteArrayInputStream(out.toByteArray()), KeyedConfig.class);
+        assertEquals(c.byId, read.byId);
+        assertEquals(c.byFlag, read.byFlag);
+        // Gson's own hook is left alone
+        assertTrue(JsonReaderInternalAccess.INSTANCE.getClass().getName().startsWith("com.google.gson."));
+    }
+}
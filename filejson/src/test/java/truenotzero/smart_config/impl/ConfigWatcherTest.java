@@ -0,0 +1,133 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import truenotzero.smart_config.Config;
+import truenotzero.smart_config.ConfigLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConfigWatcherTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Config("cfg/watched.json")
+    public static class WatchedConfig {
+        public int value = 1;
+
+        @Config.Instance
+        public static WatchedConfig INSTANCE;
+    }
+
+    @Config("later/deep/created.json")
+    public static class CreatedConfig {
+        public int value = 1;
+
+        @Config.Instance
+        public static CreatedConfig INSTANCE;
+    }
+
+    private ConfigLoader loader;
+    private ConfigWatcher watcher;
+    private Path file;
+    private final BlockingQueue<Class<?>> reloads = new LinkedBlockingQueue<>();
+
+    @Before
+    public void before() throws IOException {
+        NioConfigFileProvider files = new NioConfigFileProvider(tmp.getRoot().toPath());
+        loader = new ConfigLoader(() -> Collections.singleton(WatchedConfig.class), files, new JsonTranslator(new Gson()));
+        loader.init();
+        loader.load();
+        file = files.resolve("cfg/watched.json");
+
+        watcher = new ConfigWatcher(loader, files, 50, new ConfigWatcher.Listener() {
+            @Override
+            public void reloaded(Class<?> clazz) {
+                reloads.add(clazz);
+            }
+        });
+        watcher.start();
+    }
+
+    @After
+    public void after() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    public void reloadsEditedFile() throws Exception {
+        // a burst of writes is debounced into a single reload
+        Files.write(file, "{\"value\":2}".getBytes(StandardCharsets.UTF_8));
+        Files.write(file, "{\"value\":3}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(WatchedConfig.class, reloads.poll(10, TimeUnit.SECONDS));
+        assertEquals(3, WatchedConfig.INSTANCE.value);
+        assertNull(reloads.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void ignoresOwnStore() throws Exception {
+        WatchedConfig.INSTANCE.value = 42;
+        assertTrue(loader.store(WatchedConfig.class));
+
+        assertNull(reloads.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals(42, WatchedConfig.INSTANCE.value);
+    }
+
+    @Test
+    public void watchesFilesystemProvider() throws Exception {
+        watcher.close();
+        watcher = new ConfigWatcher(loader, new FilesystemConfigFileProvider(tmp.getRoot()), 50, new ConfigWatcher.Listener() {
+            @Override
+            public void reloaded(Class<?> clazz) {
+                reloads.add(clazz);
+            }
+        });
+        watcher.start();
+
+        Files.write(file, "{\"value\":7}".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(WatchedConfig.class, reloads.poll(10, TimeUnit.SECONDS));
+        assertEquals(7, WatchedConfig.INSTANCE.value);
+    }
+
+    @Test
+    public void watchesDirectoryCreatedLater() throws Exception {
+        NioConfigFileProvider files = new NioConfigFileProvider(tmp.getRoot().toPath());
+        ConfigLoader later = new ConfigLoader(() -> Collections.singleton(CreatedConfig.class), files,
+                new JsonTranslator(new Gson()));
+        // scanned only, so later/deep doesn't exist yet
+        later.scan();
+        try (ConfigWatcher createdWatcher = new ConfigWatcher(later, files, 50, new ConfigWatcher.Listener() {
+            @Override
+            public void reloaded(Class<?> clazz) {
+                reloads.add(clazz);
+            }
+        })) {
+            createdWatcher.start();
+
+            Path created = files.resolve("later/deep/created.json");
+            Files.createDirectories(created.getParent());
+            Files.write(created, "{\"value\":5}".getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(CreatedConfig.class, reloads.poll(10, TimeUnit.SECONDS));
+            assertEquals(5, CreatedConfig.INSTANCE.value);
+
+            Files.write(created, "{\"value\":6}".getBytes(StandardCharsets.UTF_8));
+            assertEquals(CreatedConfig.class, reloads.poll(10, TimeUnit.SECONDS));
+            assertEquals(6, CreatedConfig.INSTANCE.value);
+        }
+    }
+}
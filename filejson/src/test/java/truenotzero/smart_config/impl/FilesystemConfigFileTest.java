@@ -0,0 +1,60 @@
+package truenotzero.smart_config.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import truenotzero.smart_config.api.ConfigFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+import static truenotzero.smart_config.impl.TestFiles.readAll;
+
+public class FilesystemConfigFileTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void resolvesAgainstParentDirectoryInUtf8() throws IOException {
+        File root = tmp.getRoot();
+        ConfigFile f = new FilesystemConfigFileProvider(root).get("a.json");
+        assertTrue(f.create());
+        assertTrue(new File(root, "a.json").exists());
+
+        String content = "{\"name\":\"héllo 世界\"}";
+        try (Writer writer = f.writer()) {
+            writer.write(content);
+        }
+        assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(root.toPath().resolve("a.json")));
+        try (Reader reader = f.reader()) {
+            assertEquals(content, readAll(reader));
+        }
+    }
+
+    @Test
+    public void replaceKeepsSniffedCompression() throws IOException {
+        File root = tmp.getRoot();
+        ConfigFile f = new FilesystemConfigFileProvider(root).get("b.json");
+        Path path = root.toPath().resolve("b.json");
+        Files.write(path, new byte[] { 0x1f, (byte) 0x8b });
+        f.replace(new byte[0], 0, 0);
+        // gzipped content without an extension is found by its magic bytes and stays gzipped
+        String content = "{\"a\":1}";
+        f.replace(content.toCharArray(), 0, content.length());
+
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            assertEquals(content, new String(readAll(in), StandardCharsets.UTF_8));
+        }
+        try (Reader reader = f.reader()) {
+            assertEquals(content, readAll(reader));
+        }
+        assertArrayEquals(new String[] { "b.json" }, root.list());
+    }
+}
@@ -0,0 +1,236 @@
+package truenotzero.smart_config.impl;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static truenotzero.smart_config.impl.TestFiles.readAll;
+
+public class HttpConfigFileTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+    private final AtomicInteger gets = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicInteger batches = new AtomicInteger();
+    // slow.json is only served once released
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean releaseTimedOut;
+    private final ExecutorService handlers = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private URI base;
+    private Path cache;
+
+    @Before
+    public void before() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/cfg/", this::get);
+        server.createContext("/batch", this::batch);
+        server.setExecutor(handlers);
+        server.start();
+        base = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/cfg/");
+        cache = tmp.getRoot().toPath().resolve("cache");
+        files.put("a.json", "{\"a\":1}");
+        files.put("b.json", "{\"b\":2}");
+    }
+
+    @After
+    public void after() {
+        if (server != null) {
+            server.stop(0);
+        }
+        handlers.shutdownNow();
+    }
+
+    private static String etag(String content) {
+        return "\"" + Integer.toHexString(content.hashCode()) + "\"";
+    }
+
+    private void get(HttpExchange exchange) throws IOException {
+        gets.incrementAndGet();
+        String path = exchange.getRequestURI().getPath().substring("/cfg/".length());
+        if (path.equals("slow.json")) {
+            try {
+                releaseTimedOut = !release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String content = files.get(path);
+        if (content == null) {
+            exchange.sendResponseHeaders(404, -1);
+        } else if (etag(content).equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            byte[] body = content.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("ETag", etag(content));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private void batch(HttpExchange exchange) throws IOException {
+        batches.incrementAndGet();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            byte[] chunk = new byte[1024];
+            int n;
+            while ((n = in.read(chunk)) >= 0) {
+                request.write(chunk, 0, n);
+            }
+            for (String line : new String(request.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+                String[] fields = line.split("\t");
+                String content = files.get(fields[0]);
+                if (content == null) {
+                    response.write((fields[0] + "\t-\t-1\t-1\n").getBytes(StandardCharsets.UTF_8));
+                } else if (!etag(content).equals(fields[1])) {
+                    byte[] body = content.getBytes(StandardCharsets.UTF_8);
+                    response.write((fields[0] + "\t" + etag(content) + "\t-1\t" + body.length + "\n")
+                            .getBytes(StandardCharsets.UTF_8));
+                    response.write(body);
+                }
+            }
+        }
+        if (response.size() == 0) {
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            exchange.sendResponseHeaders(200, response.size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                response.writeTo(out);
+            }
+        }
+        exchange.close();
+    }
+
+    private static String read(HttpConfigFile f) throws IOException {
+        try (Reader reader = f.reader()) {
+            return readAll(reader);
+        }
+    }
+
+    @Test
+    public void conditionalGet() throws IOException {
+        HttpConfigFileProvider provider = new HttpConfigFileProvider(base, cache);
+        provider.setMaxAge(Duration.ofHours(1));
+        HttpConfigFile a = provider.get("a.json");
+        assertTrue(a.exists());
+        assertEquals(7, a.size());
+        assertEquals("{\"a\":1}", read(a));
+        // all within the max age
+        assertEquals(1, gets.get());
+        assertFalse(provider.get("missing.json").exists());
+
+        provider.setMaxAge(Duration.ZERO);
+        assertEquals("{\"a\":1}", read(a));
+        assertEquals(1, notModified.get());
+
+        files.put("a.json", "{\"a\":22}");
+        assertEquals("{\"a\":22}", read(a));
+    }
+
+    @Test
+    public void filesAreFetchedInParallel() throws Exception {
+        files.put("slow.json", "{}");
+        HttpConfigFileProvider provider = new HttpConfigFileProvider(base, cache);
+        Thread slowReader = new Thread(() -> provider.get("slow.json").exists());
+        slowReader.start();
+        while (gets.get() == 0) {
+            Thread.sleep(1);
+        }
+
+        // while slow.json is still being fetched
+        assertEquals("{\"a\":1}", read(provider.get("a.json")));
+        release.countDown();
+        slowReader.join();
+        assertFalse("a.json waited for slow.json", releaseTimedOut);
+    }
+
+    @Test
+    public void offlineStartFromCache() throws IOException {
+        HttpConfigFileProvider online = new HttpConfigFileProvider(base, cache);
+        assertEquals("{\"b\":2}", read(online.get("b.json")));
+        server.stop(0);
+        server = null;
+
+        HttpConfigFileProvider offline = new HttpConfigFileProvider(base, cache);
+        HttpConfigFile b = offline.get("b.json");
+        assertTrue(b.exists());
+        assertEquals("{\"b\":2}", read(b));
+        HttpConfigFile a = offline.get("a.json");
+        try {
+            a.exists();
+            fail("never fetched, nothing cached");
+        } catch (java.io.UncheckedIOException expected) {
+            // nothing to fall back on
+        }
+        // not reported as merely unknown either
+        try {
+            a.size();
+            fail("never fetched, nothing cached");
+        } catch (java.io.UncheckedIOException expected) {
+        }
+        try {
+            a.lastModified();
+            fail("never fetched, nothing cached");
+        } catch (java.io.UncheckedIOException expected) {
+        }
+    }
+
+    @Test
+    public void batchRevalidatesEverything() throws IOException {
+        HttpConfigFileProvider provider = new HttpConfigFileProvider(base, cache);
+        provider.setBatchPath("/batch");
+        provider.setMaxAge(Duration.ofHours(1));
+        HttpConfigFile a = provider.get("a.json");
+        HttpConfigFile b = provider.get("b.json");
+        assertEquals("{\"a\":1}", read(a));
+        assertEquals("{\"b\":2}", read(b));
+        assertEquals(1, batches.get());
+
+        // nothing changed: one request, and a 304
+        provider.setMaxAge(Duration.ZERO);
+        assertEquals("{\"a\":1}", read(a));
+        assertEquals(2, batches.get());
+
+        files.put("b.json", "{\"b\":3}");
+        files.remove("a.json");
+        provider.setMaxAge(Duration.ofHours(1));
+        // still fresh
+        assertTrue(a.exists());
+        provider.setMaxAge(Duration.ZERO);
+        assertFalse(a.exists());
+        provider.setMaxAge(Duration.ofHours(1));
+        assertEquals("{\"b\":3}", read(b));
+        assertEquals(3, batches.get());
+        assertEquals(0, gets.get());
+    }
+}
@@ -0,0 +1,94 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import truenotzero.smart_config.MappedDoubleArray;
+import truenotzero.smart_config.MappedIndex;
+import truenotzero.smart_config.MappedIntArray;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class MappedTypeAdapterFactoryTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    static class Tables {
+        MappedIntArray tiers = MappedIntArray.of();
+        MappedDoubleArray weights;
+        MappedIndex routes = MappedIndex.of();
+    }
+
+    private static final String JSON = "{\"tiers\":[10,20,30],\"weights\":[0.5,1000.0],"
+            + "\"routes\":{\"b\":2,\"a\":1,\"\\u00e9\":3,\"\\ud83d\\ude00\":4,\"\\uffff\":5}}";
+
+    private Path sidecars;
+    private JsonTranslator json;
+
+    @Before
+    public void before() {
+        sidecars = tmp.getRoot().toPath().resolve("tables");
+        Gson gson = new GsonBuilder()
+                .registerTypeAdapterFactory(new MappedTypeAdapterFactory(sidecars))
+                .create();
+        json = new JsonTranslator(gson);
+    }
+
+    private long sidecarCount() throws IOException {
+        try (Stream<Path> files = Files.list(sidecars)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    public void readsFromTheMapping() throws IOException {
+        Tables tables = json.read(new StringReader(JSON), Tables.class);
+        assertEquals(3, tables.tiers.size());
+        assertEquals(30, tables.tiers.get(2));
+        assertArrayEquals(new double[] { 0.5, 1000 }, tables.weights.toArray(), 0);
+        assertEquals(5, tables.routes.size());
+        assertEquals(1, tables.routes.get("a", -1));
+        assertEquals(3, tables.routes.get("\u00e9", -1));
+        assertEquals(4, tables.routes.get("\ud83d\ude00").getAsLong());
+        assertEquals(5, tables.routes.get("\uffff", -1));
+        assertFalse(tables.routes.containsKey("c"));
+        assertEquals(3, sidecarCount());
+    }
+
+    @Test
+    public void sameContentSameSidecar() throws IOException {
+        Tables first = json.read(new StringReader(JSON), Tables.class);
+        Tables second = json.read(new StringReader(JSON), Tables.class);
+        assertEquals(3, sidecarCount());
+        assertEquals(first.tiers, second.tiers);
+        assertEquals(first.routes, second.routes);
+        assertEquals(MappedIntArray.of(10, 20, 30), first.tiers);
+
+        Tables changed = json.read(new StringReader(JSON.replace("30", "31")), Tables.class);
+        assertEquals(4, sidecarCount());
+        assertNotEquals(first.tiers, changed.tiers);
+        // the old mapping stays readable
+        assertEquals(30, first.tiers.get(2));
+    }
+
+    @Test
+    public void writesBackTheSameJson() throws IOException {
+        Tables tables = json.read(new StringReader(JSON), Tables.class);
+        StringWriter out = new StringWriter();
+        json.write(out, Tables.class, tables);
+        Tables back = json.read(new StringReader(out.toString()), Tables.class);
+        assertEquals(tables.tiers, back.tiers);
+        assertEquals(tables.weights, back.weights);
+        assertEquals(tables.routes, back.routes);
+        assertEquals(3, sidecarCount());
+    }
+}
@@ -0,0 +1,106 @@
+package truenotzero.smart_config.impl;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+import static truenotzero.smart_config.impl.TestFiles.readAll;
+
+public class MemoryConfigFileTest {
+    @Test
+    public void roundTrip() throws IOException {
+        for (boolean direct : new boolean[] { false, true }) {
+            MemoryConfigFileProvider provider = new MemoryConfigFileProvider(direct);
+            MemoryConfigFile f = provider.get("cfg/a.json");
+            assertFalse(f.exists());
+            assertTrue(f.create());
+            assertFalse(f.create());
+            assertEquals(0, f.size());
+
+            try (Writer writer = f.writer()) {
+                writer.write("{\"a\":\"\u00e9\"}");
+            }
+            assertEquals(10, f.size());
+            try (Reader reader = provider.get("cfg/a.json").reader()) {
+                assertEquals("{\"a\":\"\u00e9\"}", readAll(reader));
+            }
+
+            f.replace(new byte[] { 1, 2, 3 }, 1, 2);
+            try (InputStream in = f.inputStream()) {
+                assertEquals(2, in.read());
+                assertEquals(3, in.read());
+                assertEquals(-1, in.read());
+            }
+            assertEquals(1, provider.paths().size());
+        }
+    }
+
+    @Test
+    public void writeThroughIsCoalesced() throws Exception {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        MemoryConfigFileProvider disk = new MemoryConfigFileProvider();
+        MemoryConfigFileProvider provider = new MemoryConfigFileProvider(false, disk, tasks::add);
+
+        provider.put("a.json", "1");
+        provider.put("a.json", "2");
+        provider.put("b.json", "b");
+        provider.put("a.json", "3");
+        assertFalse(disk.get("a.json").exists());
+        assertEquals(2, tasks.size());
+
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+        provider.flush();
+        try (Reader reader = disk.get("a.json").reader()) {
+            assertEquals("3", readAll(reader));
+        }
+        try (Reader reader = disk.get("b.json").reader()) {
+            assertEquals("b", readAll(reader));
+        }
+    }
+
+    @Test
+    public void writeThroughEndsWithTheContentInMemory() throws Exception {
+        MemoryConfigFileProvider disk = new MemoryConfigFileProvider();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MemoryConfigFileProvider provider = new MemoryConfigFileProvider(false, disk, executor);
+            for (int round = 0; round < 200; ++round) {
+                CountDownLatch start = new CountDownLatch(1);
+                Thread[] writers = new Thread[2];
+                for (int w = 0; w < writers.length; ++w) {
+                    String value = Integer.toString(w);
+                    writers[w] = new Thread(() -> {
+                        try {
+                            start.await();
+                            provider.put("a.json", value);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+                    writers[w].start();
+                }
+                start.countDown();
+                for (Thread writer : writers) {
+                    writer.join();
+                }
+                provider.flush();
+                try (Reader memory = provider.get("a.json").reader(); Reader written = disk.get("a.json").reader()) {
+                    assertEquals(readAll(memory), readAll(written));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package truenotzero.smart_config.impl;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.*;
+import static truenotzero.smart_config.impl.TestFiles.readAll;
+
+public class NioConfigFileTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path root;
+
+    @Before
+    public void before() {
+        root = tmp.getRoot().toPath();
+    }
+
+    @Test
+    public void resolvesAgainstParentDirectory() {
+        NioConfigFileProvider provider = new NioConfigFileProvider(root);
+        assertEquals(root.resolve("cfg/a.json"), provider.get("cfg/a.json").path());
+    }
+
+    @Test
+    public void createMakesParentDirectories() {
+        NioConfigFile f = new NioConfigFileProvider(root).get("cfg/nested/a.json");
+        assertFalse(f.exists());
+        assertTrue(f.create());
+        assertTrue(f.exists());
+        assertFalse(f.create());
+    }
+
+    @Test
+    public void roundTripUtf8() throws IOException {
+        NioConfigFile f = new NioConfigFileProvider(root).get("a.json");
+        String content = "{\"name\":\"héllo 世界 😀\"}";
+        try (Writer writer = f.writer()) {
+            writer.write(content);
+        }
+        assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(f.path()));
+        try (Reader reader = f.reader()) {
+            assertEquals(content, readAll(reader));
+        }
+    }
+
+    @Test
+    public void atomicReplace() throws IOException {
+        NioConfigFile f = new NioConfigFileProvider(root).get("cfg/a.json");
+        assertTrue(f.create());
+        char[] content = "xx{\"a\":\"ü\"}xx".toCharArray();
+        f.replace(content, 2, content.length - 4);
+
+        assertEquals("{\"a\":\"ü\"}", new String(Files.readAllBytes(f.path()), StandardCharsets.UTF_8));
+        // no temp files left behind
+        assertEquals(1, root.resolve("cfg").toFile().list().length);
+    }
+
+    @Test
+    public void mappedRead() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            sb.append("é").append(i);
+        }
+        Files.write(root.resolve("big.json"), sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        NioConfigFile f = new NioConfigFileProvider(root, 16).get("big.json");
+        try (Reader reader = f.reader()) {
+            assertEquals(sb.toString(), readAll(reader));
+        }
+    }
+
+    @Test
+    public void compressedByExtension() throws IOException {
+        NioConfigFileProvider provider = new NioConfigFileProvider(root);
+        NioConfigFile gz = provider.get("a.json.gz");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; ++i) {
+            sb.append("{\"name\":\"h\u00e9llo\"}");
+        }
+        String content = sb.toString();
+        try (Writer writer = gz.writer()) {
+            writer.write(content);
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gz.path()))) {
+            assertEquals(content, new String(readAll(in), StandardCharsets.UTF_8));
+        }
+        try (Reader reader = gz.reader()) {
+            assertEquals(content, readAll(reader));
+        }
+
+        long compressed = Files.size(gz.path());
+        CompressionStats stats = provider.compressionStats();
+        assertTrue(compressed < content.length());
+        assertEquals(compressed, stats.compressedBytesWritten());
+        assertEquals(compressed, stats.compressedBytesRead());
+        assertEquals(content.length() + 100, stats.uncompressedBytesWritten());
+        assertEquals(content.length() + 100, stats.uncompressedBytesRead());
+
+        NioConfigFile deflate = provider.get("b.json.deflate");
+        char[] chars = content.toCharArray();
+        deflate.replace(chars, 0, chars.length);
+        try (InputStream in = new InflaterInputStream(Files.newInputStream(deflate.path()))) {
+            assertEquals(content, new String(readAll(in), StandardCharsets.UTF_8));
+        }
+        // no temp files left behind
+        assertEquals(2, root.toFile().list().length);
+    }
+
+    @Test
+    public void gzipDetectedByMagic() throws IOException {
+        Path path = root.resolve("a.bin");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+            out.write(new byte[]{1, 2, 3});
+        }
+
+        NioConfigFile f = new NioConfigFileProvider(root).get("a.bin");
+        try (InputStream in = f.inputStream()) {
+            assertArrayEquals(new byte[]{1, 2, 3}, readAll(in));
+        }
+        // stays gzipped when written back
+        f.replace(new byte[]{4, 5}, 0, 2);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            assertArrayEquals(new byte[]{4, 5}, readAll(in));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import truenotzero.smart_config.Config;
+import truenotzero.smart_config.ConfigLoader;
+import truenotzero.smart_config.ConfigStats;
+import truenotzero.smart_config.SnapshotCache;
+import truenotzero.smart_config.api.Translator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SnapshotCacheTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Config("cfg/snapshot.json")
+    public static class SnapshotConfig {
+        public int value = 1;
+        public String name = "default";
+
+        @Config.Instance
+        public static SnapshotConfig INSTANCE;
+    }
+
+    private final Gson gson = new Gson();
+    private final AtomicInteger parses = new AtomicInteger();
+    private NioConfigFileProvider files;
+    private Path file;
+    private Path snapshot;
+
+    @Before
+    public void before() throws IOException {
+        files = new NioConfigFileProvider(tmp.getRoot().toPath());
+        file = files.resolve("cfg/snapshot.json");
+        snapshot = tmp.getRoot().toPath().resolve("snapshot.bin");
+        Files.createDirectories(file.getParent());
+        write("{\"value\":2,\"name\":\"first\"}");
+    }
+
+    private void write(String json) throws IOException {
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Start like a fresh process would, counting the files that get parsed
+     */
+    private ConfigLoader start() throws IOException {
+        JsonTranslator json = new JsonTranslator(gson);
+        Translator counting = new Translator() {
+            @Override
+            public <T> T read(Reader reader, Class<T> type) throws IOException {
+                parses.incrementAndGet();
+                return json.read(reader, type);
+            }
+
+            @Override
+            public <T> void write(Writer writer, Class<T> type, T t) throws IOException {
+                json.write(writer, type, t);
+            }
+        };
+        ConfigLoader loader = new ConfigLoader(() -> Collections.singleton(SnapshotConfig.class), files, counting);
+        loader.setSnapshotCache(new SnapshotCache(snapshot, new BinaryTranslator(gson)));
+        loader.init();
+        SnapshotConfig.INSTANCE = null;
+        parses.set(0);
+        loader.load();
+        return loader;
+    }
+
+    @Test
+    public void unchangedFilesAreNotParsed() throws IOException {
+        start();
+        assertEquals(1, parses.get());
+        assertTrue(Files.exists(snapshot));
+
+        start();
+        assertEquals(0, parses.get());
+        assertEquals(2, SnapshotConfig.INSTANCE.value);
+        assertEquals("first", SnapshotConfig.INSTANCE.name);
+    }
+
+    @Test
+    public void touchedFilesAreNotParsed() throws IOException {
+        start();
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60_000));
+
+        start();
+        assertEquals(0, parses.get());
+        assertEquals(2, SnapshotConfig.INSTANCE.value);
+    }
+
+    @Test
+    public void changedFilesAreParsed() throws IOException {
+        start();
+        write("{\"value\":3,\"name\":\"second\"}");
+
+        start();
+        assertEquals(1, parses.get());
+        assertEquals(3, SnapshotConfig.INSTANCE.value);
+
+        start();
+        assertEquals(0, parses.get());
+        assertEquals("second", SnapshotConfig.INSTANCE.name);
+    }
+
+    @Test
+    public void corruptSnapshotIsIgnored() throws IOException {
+        Files.write(snapshot, new byte[]{1, 2, 3});
+
+        start();
+        assertEquals(1, parses.get());
+        assertEquals(2, SnapshotConfig.INSTANCE.value);
+    }
+
+    @Test
+    public void unwritableSnapshotOnlyReported() throws IOException {
+        // the snapshot's directory can't be created
+        Path blocker = tmp.newFile("blocker").toPath();
+        ConfigLoader loader = new ConfigLoader(() -> Collections.singleton(SnapshotConfig.class), files,
+                new JsonTranslator(gson));
+        ConfigStats stats = new ConfigStats();
+        loader.setMetrics(stats);
+        loader.setSnapshotCache(new SnapshotCache(blocker.resolve("snapshot.bin"), new BinaryTranslator(gson)));
+        loader.init();
+
+        loader.load();
+        assertEquals(2, loader.get(SnapshotConfig.class).value);
+        assertEquals(1, stats.snapshotFailures());
+    }
+}
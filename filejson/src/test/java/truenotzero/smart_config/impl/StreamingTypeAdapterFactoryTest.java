@@ -0,0 +1,91 @@
+package truenotzero.smart_config.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.Test;
+import truenotzero.smart_config.ConfigSequence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class StreamingTypeAdapterFactoryTest {
+    static class Point {
+        int x;
+        String name;
+    }
+
+    static class Tables {
+        int[] tiers = { 1, 2 };
+        long[] limits;
+        double[] weights;
+        float[] ratios;
+        ConfigSequence<Point> points = ConfigSequence.of();
+    }
+
+    private static final String JSON = "{\"tiers\":[10,20,30],\"limits\":[9007199254740993],\"weights\":[0.5,1e3],"
+            + "\"ratios\":[0.1],\"points\":[{\"x\":1,\"name\":\"a\"},{\"x\":2,\"name\":null},null,{\"x\":3,\"name\":\"c\"}]}";
+
+    private final Gson plain = new GsonBuilder().serializeNulls().create();
+    private final Gson streaming = new GsonBuilder().serializeNulls()
+            .registerTypeAdapterFactory(new StreamingTypeAdapterFactory())
+            .create();
+
+    private static String write(JsonTranslator translator, Tables tables) throws IOException {
+        StringWriter out = new StringWriter();
+        translator.write(out, Tables.class, tables);
+        return out.toString();
+    }
+
+    @Test
+    public void readsPrimitiveArraysAndLazySequences() throws IOException {
+        Tables tables = new JsonTranslator(this.streaming).read(new StringReader(JSON), Tables.class);
+        assertArrayEquals(new int[] { 10, 20, 30 }, tables.tiers);
+        assertArrayEquals(new long[] { 9007199254740993L }, tables.limits);
+        assertArrayEquals(new double[] { 0.5, 1000 }, tables.weights, 0);
+        assertArrayEquals(new float[] { 0.1f }, tables.ratios, 0);
+
+        assertTrue(tables.points instanceof LazySequence);
+        assertEquals(4, tables.points.size());
+        assertEquals("a", tables.points.get(0).name);
+        assertNull(tables.points.get(1).name);
+        assertNull(tables.points.get(2));
+        assertEquals(3, tables.points.get(3).x);
+        assertEquals("c", tables.points.get(3).name);
+    }
+
+    @Test
+    public void writesLikeGson() throws IOException {
+        Tables tables = new JsonTranslator(this.streaming).read(new StringReader(JSON), Tables.class);
+        Tables same = new JsonTranslator(this.streaming).read(new StringReader(JSON), Tables.class);
+        assertEquals(tables.points, same.points);
+
+        Tables materialized = new Tables();
+        materialized.tiers = tables.tiers;
+        materialized.limits = tables.limits;
+        materialized.weights = tables.weights;
+        materialized.ratios = tables.ratios;
+        materialized.points = ConfigSequence.copyOf(tables.points);
+
+        // the lazy sequence is written back without decoding, the materialized one through the element adapter
+        String expected = write(new JsonTranslator(this.streaming), materialized);
+        assertEquals(expected, write(new JsonTranslator(this.streaming), tables));
+        assertEquals(expected, write(new JsonTranslator(this.plain), materialized));
+    }
+
+    @Test
+    public void binaryRoundTrip() throws IOException {
+        Tables tables = new JsonTranslator(this.streaming).read(new StringReader(JSON), Tables.class);
+        BinaryTranslator binary = new BinaryTranslator(this.streaming);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        binary.write(bytes, Tables.class, tables);
+        Tables back = binary.read(new ByteArrayInputStream(bytes.toByteArray()), Tables.class);
+        assertArrayEquals(tables.tiers, back.tiers);
+        assertEquals(tables.points, back.points);
+        assertEquals("c", back.points.get(3).name);
+    }
+}
@@ -0,0 +1,33 @@
+package truenotzero.smart_config.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Helpers shared by the {@link truenotzero.smart_config.api.ConfigFile} tests
+ */
+final class TestFiles {
+    private TestFiles() {}
+
+    static String readAll(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[64];
+        int n;
+        while ((n = reader.read(buf)) >= 0) {
+            sb.append(buf, 0, n);
+        }
+        return sb.toString();
+    }
+
+    static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[64];
+        int n;
+        while ((n = in.read(buf)) >= 0) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
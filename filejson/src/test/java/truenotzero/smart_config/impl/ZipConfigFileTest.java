@@ -0,0 +1,127 @@
+package truenotzero.smart_config.impl;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.*;
+import static truenotzero.smart_config.impl.TestFiles.readAll;
+
+public class ZipConfigFileTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private Path archive;
+
+    @Before
+    public void before() throws IOException {
+        archive = tmp.getRoot().toPath().resolve("configs.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(archive))) {
+            out.putNextEntry(new ZipEntry("cfg/"));
+            out.putNextEntry(new ZipEntry("cfg/a.json"));
+            out.write("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+            out.putNextEntry(new ZipEntry("cfg/b.json"));
+            out.write("{\"b\":\"\u00e9\"}".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+    }
+
+    @Test
+    public void readsEntriesInPlace() throws IOException {
+        try (ZipConfigFileProvider provider = new ZipConfigFileProvider(archive, ZipConfigFileProvider.Mode.READ_ONLY)) {
+            ZipConfigFile b = provider.get("cfg/b.json");
+            assertTrue(b.exists());
+            assertEquals(10, b.size());
+            try (Reader reader = b.reader()) {
+                assertEquals("{\"b\":\"\u00e9\"}", readAll(reader));
+            }
+            assertFalse(provider.get("cfg").exists());
+            assertFalse(provider.get("cfg/c.json").exists());
+            assertEquals(-1, provider.get("cfg/c.json").size());
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void readOnlyRefusesWrites() throws IOException {
+        try (ZipConfigFileProvider provider = new ZipConfigFileProvider(archive, ZipConfigFileProvider.Mode.READ_ONLY)) {
+            provider.get("cfg/c.json").create();
+        }
+    }
+
+    @Test
+    public void rewriteReplacesOneEntryAndKeepsTheOthers() throws IOException {
+        try (ZipConfigFileProvider provider = new ZipConfigFileProvider(archive, ZipConfigFileProvider.Mode.REWRITE)) {
+            ZipConfigFile a = provider.get("cfg/a.json");
+            try (Writer writer = a.writer()) {
+                writer.write("{\"a\":2}");
+            }
+            try (Reader reader = a.reader()) {
+                assertEquals("{\"a\":2}", readAll(reader));
+            }
+
+            ZipConfigFile c = provider.get("cfg/c.json");
+            assertTrue(c.create());
+            assertFalse(c.create());
+            assertTrue(c.exists());
+            assertEquals(0, c.size());
+        }
+
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            assertNotNull(zip.getEntry("cfg/b.json"));
+            assertNotNull(zip.getEntry("cfg/c.json"));
+            assertEquals(7, zip.getEntry("cfg/a.json").getSize());
+        }
+        try (Stream<Path> files = Files.list(archive.getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void writesWaitForFlush() throws IOException {
+        try (ZipConfigFileProvider provider = new ZipConfigFileProvider(archive, ZipConfigFileProvider.Mode.REWRITE)) {
+            for (int i = 0; i < 100; ++i) {
+                char[] content = Integer.toString(i).toCharArray();
+                provider.get("cfg/n" + i + ".json").replace(content, 0, content.length);
+            }
+            try (ZipFile zip = new ZipFile(archive.toFile())) {
+                assertNull(zip.getEntry("cfg/n0.json"));
+            }
+            // pending writes are read back before they reach the archive
+            ZipConfigFile n42 = provider.get("cfg/n42.json");
+            assertTrue(n42.exists());
+            assertEquals(2, n42.size());
+            try (Reader reader = n42.reader()) {
+                assertEquals("42", readAll(reader));
+            }
+
+            provider.flush();
+            try (ZipFile zip = new ZipFile(archive.toFile())) {
+                assertEquals(103, zip.size());
+                assertEquals(2, zip.getEntry("cfg/n99.json").getSize());
+            }
+        }
+    }
+
+    @Test
+    public void closedArchiveSaysSo() throws IOException {
+        ZipConfigFileProvider provider = new ZipConfigFileProvider(archive, ZipConfigFileProvider.Mode.READ_ONLY);
+        provider.close();
+        try {
+            provider.get("cfg/a.json").exists();
+            fail("expected " + IllegalStateException.class.getName());
+        } catch (IllegalStateException e) {
+            assertEquals("Archive closed: " + archive.toAbsolutePath(), e.getMessage());
+        }
+    }
+}
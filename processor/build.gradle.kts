@@ -0,0 +1,29 @@
+plugins {
+	java
+    `java-library`
+}
+
+group = "truenotzero"
+version = "1.0-SNAPSHOT"
+
+java {
+	sourceCompatibility = JavaVersion.VERSION_1_8
+	targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+tasks.withType<JavaCompile> {
+	// never depend on the platform charset
+	options.encoding = "UTF-8"
+}
+
+repositories {
+	jcenter()
+}
+
+dependencies {
+	implementation(project(":api"))
+
+	// the generated codecs compile against filejson
+	testImplementation(project(":filejson"))
+	testImplementation("junit:junit:4.12")
+}
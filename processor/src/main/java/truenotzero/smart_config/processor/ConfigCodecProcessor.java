@@ -0,0 +1,454 @@
+package truenotzero.smart_config.processor;
+
+import truenotzero.smart_config.api.ConfigClassLocator;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates a reflection-free {@code truenotzero.smart_config.impl.JsonCodec} for every {@code @Config} class
+ * <p>
+ *     A codec is generated only when the {@code filejson} module (and so Gson) is on the compile classpath, and only
+ *     for classes it can handle exactly like Gson does. Classes are skipped (and left to Gson) when they:
+ *     <ul>
+ *         <li>are abstract, generic, or not accessible from their own package</li>
+ *         <li>have no accessible default constructor</li>
+ *         <li>have persisted fields that are {@code final}, not accessible, use type variables, or have
+ *         {@code @JsonAdapter}</li>
+ *         <li>have two persisted fields with the same JSON name</li>
+ *     </ul>
+ * </p>
+ *
+ * @see ConfigIndexProcessor
+ */
+public class ConfigCodecProcessor extends AbstractProcessor {
+    private static final String CODEC = "truenotzero.smart_config.impl.JsonCodec";
+    private static final String CODEC_SUFFIX = "_JsonCodec";
+    private static final String SERIALIZED_NAME = "com.google.gson.annotations.SerializedName";
+    private static final String JSON_ADAPTER = "com.google.gson.annotations.JsonAdapter";
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ConfigClassLocator.CONFIG_ANNOTATION.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Elements elements = this.processingEnv.getElementUtils();
+        if (elements.getTypeElement(CODEC) == null) {
+            // filejson isn't on the classpath, nothing to generate against
+            return false;
+        }
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(ConfigClassLocator.CONFIG_ANNOTATION)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<CodecField> fields = this.fields(type);
+            if (fields != null) {
+                this.generate(type, fields);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * A persisted field, as the generated codec sees it
+     */
+    private static final class CodecField {
+        final String name;
+        final String owner;
+        final String type;
+        final String boxed;
+        final boolean staticType;
+        final List<String> jsonNames;
+
+        CodecField(String name, String owner, String type, String boxed, boolean staticType, List<String> jsonNames) {
+            this.name = name;
+            this.owner = owner;
+            this.type = type;
+            this.boxed = boxed;
+            this.staticType = staticType;
+            this.jsonNames = jsonNames;
+        }
+    }
+
+    /**
+     * Collect the persisted fields in Gson's order, or return {@code null} if no codec can be generated
+     */
+    private List<CodecField> fields(TypeElement type) {
+        PackageElement pkg = this.processingEnv.getElementUtils().getPackageOf(type);
+        if (type.getModifiers().contains(Modifier.ABSTRACT)
+                || !type.getTypeParameters().isEmpty()
+                || (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC))
+                || !this.accessible(type, pkg)
+                || !this.hasDefaultConstructor(type, pkg)) {
+            return null;
+        }
+
+        List<CodecField> fields = new ArrayList<>();
+        Set<String> jsonNames = new HashSet<>();
+        // Gson walks from the class up to its superclasses
+        for (TypeElement c = type; c != null; c = this.superclass(c)) {
+            for (VariableElement field : ElementFilter.fieldsIn(c.getEnclosedElements())) {
+                Set<Modifier> modifiers = field.getModifiers();
+                if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) {
+                    continue;
+                }
+                CodecField codecField = this.field(c, field, pkg);
+                if (codecField == null) {
+                    return null;
+                }
+                for (String jsonName : codecField.jsonNames) {
+                    if (!jsonNames.add(jsonName)) {
+                        return null;
+                    }
+                }
+                fields.add(codecField);
+            }
+        }
+        return fields;
+    }
+
+    private CodecField field(TypeElement owner, VariableElement field, PackageElement pkg) {
+        Set<Modifier> modifiers = field.getModifiers();
+        boolean visible = modifiers.contains(Modifier.PUBLIC)
+                || (!modifiers.contains(Modifier.PRIVATE) && this.processingEnv.getElementUtils().getPackageOf(owner).equals(pkg));
+        if (!visible || modifiers.contains(Modifier.FINAL) || !this.accessible(owner, pkg)
+                || this.annotation(field, JSON_ADAPTER) != null) {
+            return null;
+        }
+
+        TypeMirror type = field.asType();
+        if (this.hasTypeVariable(type)) {
+            return null;
+        }
+        String typeName = this.erasedName(type, pkg);
+        if (typeName == null) {
+            return null;
+        }
+
+        Types types = this.processingEnv.getTypeUtils();
+        String boxed = null;
+        boolean staticType;
+        if (type.getKind().isPrimitive()) {
+            boxed = types.boxedClass(types.getPrimitiveType(type.getKind())).getQualifiedName().toString();
+            staticType = true;
+        } else if (type.getKind() == TypeKind.ARRAY) {
+            staticType = ((ArrayType) type).getComponentType().getKind().isPrimitive();
+        } else {
+            DeclaredType declared = (DeclaredType) type;
+            // Gson only looks at the runtime type of raw, non-final field types
+            staticType = !declared.getTypeArguments().isEmpty()
+                    || declared.asElement().getModifiers().contains(Modifier.FINAL);
+        }
+
+        List<String> jsonNames = new ArrayList<>();
+        jsonNames.add(field.getSimpleName().toString());
+        AnnotationMirror serializedName = this.annotation(field, SERIALIZED_NAME);
+        if (serializedName != null) {
+            jsonNames.clear();
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> e : serializedName.getElementValues().entrySet()) {
+                String key = e.getKey().getSimpleName().toString();
+                if ("value".equals(key)) {
+                    jsonNames.add(0, (String) e.getValue().getValue());
+                } else if ("alternate".equals(key)) {
+                    for (Object alternate : (List<?>) e.getValue().getValue()) {
+                        jsonNames.add((String) ((AnnotationValue) alternate).getValue());
+                    }
+                }
+            }
+        }
+
+        return new CodecField(field.getSimpleName().toString(), owner.getQualifiedName().toString(), typeName, boxed,
+                staticType, jsonNames);
+    }
+
+    private TypeElement superclass(TypeElement type) {
+        TypeMirror superclass = type.getSuperclass();
+        if (superclass.getKind() != TypeKind.DECLARED) {
+            return null;
+        }
+        TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+        return element.getQualifiedName().contentEquals(Object.class.getName()) ? null : element;
+    }
+
+    private AnnotationMirror annotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if a type can be named from a class in {@code pkg}
+     */
+    private boolean accessible(TypeElement type, PackageElement pkg) {
+        Elements elements = this.processingEnv.getElementUtils();
+        for (Element e = type; e instanceof TypeElement; e = e.getEnclosingElement()) {
+            Set<Modifier> modifiers = e.getModifiers();
+            if (modifiers.contains(Modifier.PRIVATE)
+                    || (!modifiers.contains(Modifier.PUBLIC) && !elements.getPackageOf(e).equals(pkg))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasDefaultConstructor(TypeElement type, PackageElement pkg) {
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty()) {
+                Set<Modifier> modifiers = constructor.getModifiers();
+                return !modifiers.contains(Modifier.PRIVATE)
+                        && (modifiers.contains(Modifier.PUBLIC) || this.processingEnv.getElementUtils().getPackageOf(type).equals(pkg));
+            }
+        }
+        return false;
+    }
+
+    private boolean hasTypeVariable(TypeMirror type) {
+        switch (type.getKind()) {
+            case TYPEVAR:
+            case WILDCARD:
+            case ERROR:
+                return true;
+            case ARRAY:
+                return this.hasTypeVariable(((ArrayType) type).getComponentType());
+            case DECLARED:
+                for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+                    if (this.hasTypeVariable(argument)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Get the source name of a type's erasure, or {@code null} if it can't be named from {@code pkg}
+     */
+    private String erasedName(TypeMirror type, PackageElement pkg) {
+        if (type.getKind().isPrimitive()) {
+            return type.getKind().name().toLowerCase(Locale.ROOT);
+        }
+        switch (type.getKind()) {
+            case ARRAY:
+                String component = this.erasedName(((ArrayType) type).getComponentType(), pkg);
+                return component == null ? null : component + "[]";
+            case DECLARED:
+                TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+                return this.accessible(element, pkg) ? element.getQualifiedName().toString() : null;
+            default:
+                return null;
+        }
+    }
+
+    private void generate(TypeElement type, List<CodecField> fields) {
+        Elements elements = this.processingEnv.getElementUtils();
+        String pkg = elements.getPackageOf(type).getQualifiedName().toString();
+        String binaryName = elements.getBinaryName(type).toString();
+        String simpleName = (pkg.isEmpty() ? binaryName : binaryName.substring(pkg.length() + 1)) + CODEC_SUFFIX;
+        String configType = type.getQualifiedName().toString();
+
+        StringBuilder src = new StringBuilder();
+        if (!pkg.isEmpty()) {
+            src.append("package ").append(pkg).append(";\n\n");
+        }
+        src.append("// Generated by ").append(ConfigCodecProcessor.class.getName()).append(", do not edit\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(simpleName).append(" extends ").append(CODEC)
+                .append('<').append(configType).append("> {\n");
+
+        // one declared type and adapter per field, resolved once
+        for (int i = 0; i < fields.size(); ++i) {
+            src.append("    private final java.lang.reflect.Type t").append(i).append(";\n")
+                    .append("    private final com.google.gson.TypeAdapter<Object> a").append(i).append(";\n");
+            if (fields.get(i).boxed != null) {
+                src.append("    private final com.google.gson.TypeAdapter<Object> w").append(i).append(";\n");
+            }
+        }
+
+        src.append("\n    public ").append(simpleName).append("(com.google.gson.Gson gson) {\n")
+                .append("        super(gson);\n");
+        for (int i = 0; i < fields.size(); ++i) {
+            CodecField f = fields.get(i);
+            src.append("        this.t").append(i).append(" = fieldType(").append(f.owner).append(".class, \"")
+                    .append(f.name).append("\");\n")
+                    .append("        this.a").append(i).append(" = adapter(t").append(i).append(");\n");
+            if (f.boxed != null) {
+                src.append("        this.w").append(i).append(" = runtimeAdapter(a").append(i).append(", t").append(i)
+                        .append(", ").append(f.boxed).append(".class);\n");
+            }
+        }
+        src.append("    }\n");
+
+        // read
+        src.append("\n    @Override\n")
+                .append("    public ").append(configType).append(" read(com.google.gson.stream.JsonReader in) throws java.io.IOException {\n")
+                .append("        if (in.peek() == com.google.gson.stream.JsonToken.NULL) {\n")
+                .append("            in.nextNull();\n")
+                .append("            return null;\n")
+                .append("        }\n")
+                .append("        ").append(configType).append(" it = new ").append(configType).append("();\n")
+                .append("        try {\n")
+                .append("            in.beginObject();\n")
+                .append("            while (in.hasNext()) {\n")
+                .append("                switch (in.nextName()) {\n");
+        for (int i = 0; i < fields.size(); ++i) {
+            CodecField f = fields.get(i);
+            for (String jsonName : f.jsonNames) {
+                src.append("                    case \"").append(escape(jsonName)).append("\":\n");
+            }
+            if (f.boxed != null) {
+                src.append("                    {\n")
+                        .append("                        ").append(f.boxed).append(" v = (").append(f.boxed).append(") a")
+                        .append(i).append(".read(in);\n")
+                        .append("                        if (v != null) {\n")
+                        .append("                            it.").append(f.name).append(" = v;\n")
+                        .append("                        }\n")
+                        .append("                        break;\n")
+                        .append("                    }\n");
+            } else {
+                src.append("                        it.").append(f.name).append(" = (").append(f.type).append(") a")
+                        .append(i).append(".read(in);\n")
+                        .append("                        break;\n");
+            }
+        }
+        src.append("                    default:\n")
+                .append("                        in.skipValue();\n")
+                .append("                }\n")
+                .append("            }\n")
+                .append("        } catch (IllegalStateException e) {\n")
+                .append("            throw new com.google.gson.JsonSyntaxException(e);\n")
+                .append("        }\n")
+                .append("        in.endObject();\n")
+                .append("        return it;\n")
+                .append("    }\n");
+
+        // write
+        src.append("\n    @Override\n")
+                .append("    public void write(com.google.gson.stream.JsonWriter out, ").append(configType)
+                .append(" it) throws java.io.IOException {\n")
+                .append("        if (it == null) {\n")
+                .append("            out.nullValue();\n")
+                .append("            return;\n")
+                .append("        }\n")
+                .append("        out.beginObject();\n");
+        for (int i = 0; i < fields.size(); ++i) {
+            CodecField f = fields.get(i);
+            String jsonName = escape(f.jsonNames.get(0));
+            if (f.boxed != null) {
+                src.append("        out.name(\"").append(jsonName).append("\");\n")
+                        .append("        w").append(i).append(".write(out, it.").append(f.name).append(");\n");
+            } else {
+                // Gson skips fields that refer back to the object itself
+                src.append("        if ((Object) it.").append(f.name).append(" != it) {\n")
+                        .append("            out.name(\"").append(jsonName).append("\");\n");
+                if (f.staticType) {
+                    src.append("            a").append(i).append(".write(out, it.").append(f.name).append(");\n");
+                } else {
+                    src.append("            writeRuntimeType(out, a").append(i).append(", t").append(i)
+                            .append(", it.").append(f.name).append(");\n");
+                }
+                src.append("        }\n");
+            }
+        }
+        src.append("        out.endObject();\n")
+                .append("    }\n")
+                .append("}\n");
+
+        String codecName = pkg.isEmpty() ? simpleName : pkg + '.' + simpleName;
+        try {
+            JavaFileObject file = this.processingEnv.getFiler().createSourceFile(codecName, type);
+            try (Writer writer = file.openWriter()) {
+                writer.write(src.toString());
+            }
+        } catch (IOException e) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to generate " + codecName + ": " + e, type);
+        }
+    }
+
+    /**
+     * Escape a string for a Java string literal
+     * <p>
+     *     Control characters can't be written as unicode escapes: javac translates those before tokenizing, so an
+     *     escaped line feed would still end the literal. They get character or octal escapes instead.
+     * </p>
+     */
+    private static String escape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"':
+                case '\\':
+                    sb.append('\\').append(c);
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\%03o", (int) c));
+                    } else if (c > 0x7e) {
+                        // not a line break, safe as a unicode escape
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package truenotzero.smart_config.processor;
+
+import truenotzero.smart_config.Config;
+import truenotzero.smart_config.api.ConfigClassLocator;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the {@link ConfigClassLocator#INDEX_RESOURCE config index} at compile time
+ * <p>
+ *     Every class annotated with {@link Config} is recorded by its binary name. The index is written once, in the
+ *     last round, so that classes generated by other processors are included too.
+ *     Entries of a previous (incremental) compilation are kept as long as the class still exists and is still
+ *     annotated.
+ * </p>
+ * <p>
+ *     To use it, add this module to the annotation processor path:
+ *     <pre>
+ *         dependencies {
+ *             annotationProcessor(project(":processor"))
+ *         }
+ *     </pre>
+ * </p>
+ *
+ * @see truenotzero.smart_config.impl.IndexedConfigClassLocator IndexedConfigClassLocator
+ */
+public class ConfigIndexProcessor extends AbstractProcessor {
+    private final Set<String> configs = new TreeSet<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ConfigClassLocator.CONFIG_ANNOTATION.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        Elements elements = this.processingEnv.getElementUtils();
+        for (Element element : roundEnv.getElementsAnnotatedWith(ConfigClassLocator.CONFIG_ANNOTATION)) {
+            if (element.getKind() == ElementKind.CLASS) {
+                this.configs.add(elements.getBinaryName((TypeElement) element).toString());
+            }
+        }
+
+        if (roundEnv.processingOver()) {
+            this.readPreviousIndex();
+            this.writeIndex();
+        }
+
+        // other processors may be interested in @Config too
+        return false;
+    }
+
+    /**
+     * Keep entries from an earlier compilation that are still valid
+     */
+    private void readPreviousIndex() {
+        Filer filer = this.processingEnv.getFiler();
+        Elements elements = this.processingEnv.getElementUtils();
+        try {
+            FileObject previous = filer.getResource(StandardLocation.CLASS_OUTPUT, "", ConfigClassLocator.INDEX_RESOURCE);
+            try (Reader reader = previous.openReader(true);
+                 BufferedReader lines = new BufferedReader(reader)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    String name = line.trim();
+                    if (name.isEmpty() || this.configs.contains(name)) {
+                        continue;
+                    }
+                    TypeElement type = elements.getTypeElement(name.replace('$', '.'));
+                    if (type != null && type.getAnnotation(ConfigClassLocator.CONFIG_ANNOTATION) != null) {
+                        this.configs.add(name);
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // No previous index, nothing to keep
+        }
+    }
+
+    private void writeIndex() {
+        Filer filer = this.processingEnv.getFiler();
+        try {
+            FileObject index = filer.createResource(StandardLocation.CLASS_OUTPUT, "", ConfigClassLocator.INDEX_RESOURCE);
+            try (Writer writer = index.openWriter()) {
+                for (String name : this.configs) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Failed to write " + ConfigClassLocator.INDEX_RESOURCE + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package truenotzero.smart_config.processor;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import truenotzero.smart_config.impl.JsonCodec;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ConfigCodecProcessorTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File output;
+
+    @Before
+    public void before() throws IOException {
+        output = tmp.newFolder("classes");
+    }
+
+    private static JavaFileObject source(String name, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private void compile(JavaFileObject... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            files.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(output));
+            String classpath = System.getProperty("java.class.path") + File.pathSeparator + output;
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, null,
+                    Arrays.asList("-classpath", classpath), null, Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new ConfigCodecProcessor()));
+            assertTrue("compilation failed", task.call());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void escapesControlCharactersInNames() throws Exception {
+        // every kind of escape: quotes, backslashes, the named escapes, octal, and non-ASCII
+        String name = "a\"b\\c\nd\re\tf\bg\fh\u0001i\u001fj\u00e9";
+        String literal = "a\\\"b\\\\c\\nd\\re\\tf\\bg\\fh\\u0001i\\u001fj\\u00e9";
+        compile(source("a.Escaped", "package a; @truenotzero.smart_config.Config(\"escaped.json\") public class Escaped {"
+                + " @com.google.gson.annotations.SerializedName(\"" + literal + "\") public int value = 1; }"));
+        assertTrue(new File(output, "a/Escaped" + JsonCodec.SUFFIX + ".class").isFile());
+
+        Gson gson = new Gson();
+        try (URLClassLoader classes = new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> config = classes.loadClass("a.Escaped");
+            JsonCodec<Object> codec = (JsonCodec<Object>) classes.loadClass("a.Escaped" + JsonCodec.SUFFIX)
+                    .getConstructor(Gson.class).newInstance(gson);
+
+            StringWriter json = new StringWriter();
+            codec.write(new JsonWriter(json), config.getConstructor().newInstance());
+            assertEquals(gson.toJson(config.getConstructor().newInstance()), json.toString());
+            assertEquals(Collections.singletonMap(name, 1.0), gson.fromJson(json.toString(), Object.class));
+
+            Object read = codec.read(new JsonReader(new StringReader("{" + gson.toJson(name) + ":2}")));
+            assertEquals(2, config.getField("value").getInt(read));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package truenotzero.smart_config.processor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import truenotzero.smart_config.api.ConfigClassLocator;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConfigIndexProcessorTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File output;
+
+    @Before
+    public void before() throws IOException {
+        output = tmp.newFolder("classes");
+    }
+
+    private static JavaFileObject source(String name, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    private List<String> compile(JavaFileObject... sources) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            files.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(output));
+            String classpath = System.getProperty("java.class.path") + File.pathSeparator + output;
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files, null,
+                    Arrays.asList("-classpath", classpath), null, Arrays.asList(sources));
+            task.setProcessors(Collections.singletonList(new ConfigIndexProcessor()));
+            assertTrue("compilation failed", task.call());
+        }
+        return Files.readAllLines(new File(output, ConfigClassLocator.INDEX_RESOURCE).toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void indexesConfigClasses() throws IOException {
+        List<String> index = compile(
+                source("a.First", "package a; @truenotzero.smart_config.Config(\"first.json\") public class First {"
+                        + " @truenotzero.smart_config.Config(\"nested.json\") public static class Nested { } }"),
+                source("b.NotAConfig", "package b; public class NotAConfig { }"));
+
+        assertEquals(Arrays.asList("a.First", "a.First$Nested"), index);
+    }
+
+    @Test
+    public void dropsStaleEntries() throws IOException {
+        compile(source("a.First", "package a; @truenotzero.smart_config.Config(\"first.json\") public class First { }"));
+        assertTrue(new File(output, "a/First.class").delete());
+        List<String> index = compile(
+                source("a.Second", "package a; @truenotzero.smart_config.Config(\"second.json\") public class Second { }"));
+
+        assertEquals(Collections.singletonList("a.Second"), index);
+    }
+
+    @Test
+    public void keepsPreviousEntries() throws IOException {
+        compile(source("a.First", "package a; @truenotzero.smart_config.Config(\"first.json\") public class First { }"));
+        List<String> index = compile(
+                source("a.Second", "package a; @truenotzero.smart_config.Config(\"second.json\") public class Second { }"));
+
+        assertEquals(Arrays.asList("a.First", "a.Second"), index);
+    }
+}
@@ -10,3 +10,5 @@
 rootProject.name = "smart_config"
 include("api")
 include("filejson")
+include("processor")
+include("benchmarks")